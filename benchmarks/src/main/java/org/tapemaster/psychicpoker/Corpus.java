@@ -0,0 +1,113 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fixed set of random games shared by benchmarks, so that results of
+ * different runs are comparable.
+ */
+final class Corpus {
+
+    /**
+     * Number of games in the corpus, a power of two for cheap cycling.
+     */
+    static final int SIZE = 4096;
+
+    private static final long SEED = 131;
+
+    /**
+     * Hand cards of the games.
+     */
+    final Card[][] mHands = new Card[SIZE][];
+
+    /**
+     * Deck cards of the games.
+     */
+    final Card[][] mDecks = new Card[SIZE][];
+
+    /**
+     * Games as input lines.
+     */
+    final String[] mLines = new String[SIZE];
+
+    Corpus() {
+        final Random random = new Random(SEED);
+        final List<Card> cards = newDeck();
+        for (int i = 0; i < SIZE; i++) {
+            Collections.shuffle(cards, random);
+            mHands[i] = cards.subList(0, Hand.NUMBER_OF_CARDS).toArray(
+                    new Card[Hand.NUMBER_OF_CARDS]);
+            mDecks[i] = cards.subList(Hand.NUMBER_OF_CARDS, Hand.NUMBER_OF_CARDS * 2).toArray(
+                    new Card[Hand.NUMBER_OF_CARDS]);
+            mLines[i] = toLine(cards);
+        }
+    }
+
+    /**
+     * Writes given number of random games to the file.
+     */
+    static void writeFile(File file, int lines) throws IOException {
+        final Random random = new Random(SEED);
+        final List<Card> cards = newDeck();
+        final BufferedWriter writer = new BufferedWriter(new FileWriter(file), 1024 * 1024);
+        try {
+            for (int i = 0; i < lines; i++) {
+                Collections.shuffle(cards, random);
+                writer.write(toLine(cards));
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static List<Card> newDeck() {
+        final List<Card> cards = new ArrayList<Card>();
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            cards.add(Card.of(i));
+        }
+        return cards;
+    }
+
+    private static String toLine(List<Card> cards) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < Hand.NUMBER_OF_CARDS * 2; i++) {
+            if (i != 0) {
+                builder.append(' ');
+            }
+            builder.append(cards.get(i));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Channel discarding everything written to it.
+     */
+    static class NullChannel implements WritableByteChannel {
+
+        @Override
+        public int write(ByteBuffer source) {
+            final int result = source.remaining();
+            source.position(source.limit());
+            return result;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.tapemaster.psychicpoker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the full analysis of draws of a hand.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DrawAnalysisBenchmark {
+
+    private Hand[] mHands;
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        final Corpus corpus = new Corpus();
+        mHands = new Hand[Corpus.SIZE];
+        for (int i = 0; i < Corpus.SIZE; i++) {
+            mHands[i] = new Hand(corpus.mHands[i].clone());
+        }
+    }
+
+    @Benchmark
+    public int analyze() {
+        mIndex = (mIndex + 1) & (Corpus.SIZE - 1);
+        return DrawAnalysis.analyze(mHands[mIndex]).getBestDiscardMask();
+    }
+}
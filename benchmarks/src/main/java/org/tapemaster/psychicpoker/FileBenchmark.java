@@ -0,0 +1,67 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end benchmarks of solving a generated file in parallel. One operation
+ * is one line of the file, so the scores are lines per second. Solving on one
+ * thread is measured by {@link MappedFileBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileBenchmark {
+
+    /**
+     * Number of lines in the generated file.
+     */
+    static final int LINES = 2000000;
+
+    /**
+     * Number of threads of {@link #parallel()}.
+     */
+    @Param({ "1", "4" })
+    public int mThreads;
+
+    private File mFile;
+    private final PrintStream mErr = new PrintStream(new ByteArrayOutputStream());
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("games", ".txt");
+        Corpus.writeFile(mFile, LINES);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void parallel() throws IOException {
+        new ParallelSolver(mThreads).solve(mFile, new Corpus.NullChannel(), mErr);
+    }
+}
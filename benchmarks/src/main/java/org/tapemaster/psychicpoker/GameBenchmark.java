@@ -0,0 +1,101 @@
+package org.tapemaster.psychicpoker;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of solving single games. Each invocation builds a new hand from
+ * the cards of the next game in input order, as {@link PsychicPoker} does for
+ * each line, so values cached in a hand by an earlier call are not reused.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+    private final PrunedSearch mSearch = new PrunedSearch();
+    private final GrayCodeSearch mGrayCodeSearch = new GrayCodeSearch();
+    private final GameSolver mVectorSearch = VectorSupport.createSearch();
+    private Card[][] mHands;
+    private Card[][] mDecks;
+    private final Card[] mHandCards = new Card[Hand.NUMBER_OF_CARDS];
+    private LongBuffer mPacked;
+    private ByteBuffer mResults;
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        final Corpus corpus = new Corpus();
+        mHands = corpus.mHands;
+        mDecks = corpus.mDecks;
+        mPacked = ByteBuffer.allocateDirect(Corpus.SIZE * BinaryGames.GAME_BYTES).asLongBuffer();
+        for (int i = 0; i < Corpus.SIZE; i++) {
+            mPacked.put(BinaryGames.pack(corpus.mHands[i], mDecks[i]));
+        }
+        mResults = ByteBuffer.allocateDirect(Corpus.SIZE);
+    }
+
+    /**
+     * Moves to the next game and builds its hand in a reused buffer.
+     */
+    private Hand nextHand() {
+        mIndex = (mIndex + 1) & (Corpus.SIZE - 1);
+        System.arraycopy(mHands[mIndex], 0, mHandCards, 0, mHandCards.length);
+        return new Hand(mHandCards);
+    }
+
+    @Benchmark
+    public Hand.Value getBestHand() {
+        final Hand hand = nextHand();
+        return new Game(hand, mDecks[mIndex]).getBestHand();
+    }
+
+    @Benchmark
+    public Hand.Value getBestHandPruned() {
+        final Hand hand = nextHand();
+        return mSearch.getBestHand(hand, mDecks[mIndex]);
+    }
+
+    @Benchmark
+    public Hand.Value getBestHandGrayCode() {
+        final Hand hand = nextHand();
+        return mGrayCodeSearch.getBestHand(hand, mDecks[mIndex]);
+    }
+
+    @Benchmark
+    public Hand.Value getBestHandVector() {
+        final Hand hand = nextHand();
+        return mVectorSearch.getBestHand(hand, mDecks[mIndex]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Corpus.SIZE)
+    public ByteBuffer solveBatch() {
+        mPacked.clear();
+        mResults.clear();
+        Game.solveBatch(mPacked, mResults);
+        return mResults;
+    }
+
+    @Benchmark
+    public Hand getStrongestHand() {
+        final Hand hand = nextHand();
+        return new Game(hand, mDecks[mIndex]).getStrongestHand();
+    }
+}
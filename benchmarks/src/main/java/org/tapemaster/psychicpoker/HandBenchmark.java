@@ -0,0 +1,69 @@
+package org.tapemaster.psychicpoker;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of evaluating hands and discarding cards.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HandBenchmark {
+
+    private static final int[] DISCARD = { 0, 2, 4 };
+
+    @Param({ "table", "reference" })
+    public String mEvaluatorName;
+
+    private HandEvaluator mEvaluator;
+    private Corpus mCorpus;
+    private Hand[] mHands;
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        mEvaluator = mEvaluatorName.equals("reference") ? new ReferenceHandEvaluator()
+                : new TableHandEvaluator();
+        mCorpus = new Corpus();
+        mHands = new Hand[Corpus.SIZE];
+        for (int i = 0; i < Corpus.SIZE; i++) {
+            mHands[i] = new Hand(mCorpus.mHands[i].clone());
+        }
+    }
+
+    private int next() {
+        mIndex = (mIndex + 1) & (Corpus.SIZE - 1);
+        return mIndex;
+    }
+
+    @Benchmark
+    public Hand.Value getValue() {
+        return mHands[next()].getValue(mEvaluator);
+    }
+
+    @Benchmark
+    public int getStrength() {
+        return mEvaluator.getStrength(mCorpus.mHands[next()]);
+    }
+
+    @Benchmark
+    public Hand discard() {
+        final int index = next();
+        return mHands[index].discard(DISCARD, mCorpus.mDecks[index]);
+    }
+}
@@ -0,0 +1,64 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end benchmark of solving a generated file on one thread from the
+ * mapped file. One operation is one line of the file, so the score is lines
+ * per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappedFileBenchmark {
+
+    private File mFile;
+    private final PrintStream mErr = new PrintStream(new ByteArrayOutputStream());
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("games", ".txt");
+        Corpus.writeFile(mFile, FileBenchmark.LINES);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FileBenchmark.LINES)
+    public void mapped() throws IOException {
+        final ResultWriter writer = new ResultWriter(new Corpus.NullChannel());
+        final RandomAccessFile file = new RandomAccessFile(mFile, "r");
+        try {
+            new PsychicPoker(writer, mErr).readMappedInputAndPlay(
+                    new MappedLineReader(file.getChannel()));
+            writer.flush();
+        } finally {
+            file.close();
+        }
+    }
+}
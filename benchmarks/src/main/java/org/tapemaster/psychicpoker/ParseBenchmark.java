@@ -0,0 +1,82 @@
+package org.tapemaster.psychicpoker;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of creating cards and parsing input lines.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+
+    private static final String[] CAPTIONS = new String[Card.NUMBER_OF_CARDS];
+
+    static {
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            CAPTIONS[i] = Card.of(i).toString();
+        }
+    }
+
+    private Corpus mCorpus;
+    private byte[][] mLineBytes;
+    private final Card[] mCards = new Card[Hand.NUMBER_OF_CARDS];
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        mCorpus = new Corpus();
+        mLineBytes = new byte[Corpus.SIZE][];
+        for (int i = 0; i < Corpus.SIZE; i++) {
+            mLineBytes[i] = mCorpus.mLines[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private int next() {
+        mIndex = (mIndex + 1) & (Corpus.SIZE - 1);
+        return mIndex;
+    }
+
+    @Benchmark
+    public Card cardConstructor() {
+        return new Card(CAPTIONS[next() % Card.NUMBER_OF_CARDS]);
+    }
+
+    @Benchmark
+    public Card cardOf() {
+        final String caption = CAPTIONS[next() % Card.NUMBER_OF_CARDS];
+        return Card.of(caption.charAt(0), caption.charAt(1));
+    }
+
+    @Benchmark
+    public Card[] parseCardsString() {
+        return PsychicPoker.parseCards(mCorpus.mLines[next()].substring(0, 14));
+    }
+
+    @Benchmark
+    public Card[] parseCardsCharSequence() {
+        PsychicPoker.parseCards(mCorpus.mLines[next()], 0, mCards);
+        return mCards;
+    }
+
+    @Benchmark
+    public Card[] parseCardsBytes() {
+        PsychicPoker.parseCards(mLineBytes[next()], 0, mCards);
+        return mCards;
+    }
+}
@@ -0,0 +1,79 @@
+package org.tapemaster.psychicpoker;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join task solving packed games with {@link Game#solveBatch}. The
+ * buffers are split in halves until parts are small enough, parts share
+ * memory of the buffers, so nothing is copied.
+ * <p>
+ * When the task is done, positions of the buffers are advanced as by
+ * {@link Game#solveBatch}.
+ */
+public class BatchTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Default number of games solved without splitting.
+     */
+    public static final int DEFAULT_THRESHOLD = 16 * 1024;
+
+    private final LongBuffer mGames;
+    private final ByteBuffer mResults;
+    private final int mThreshold;
+
+    /**
+     * Creates task with default threshold.
+     */
+    public BatchTask(LongBuffer games, ByteBuffer results) {
+        this(games, results, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates task.
+     * 
+     * @param games
+     *            packed games from position to limit
+     * @param results
+     *            buffer to put one result for each game into
+     * @param threshold
+     *            number of games solved without splitting
+     */
+    public BatchTask(LongBuffer games, ByteBuffer results, int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Threshold must be positive");
+        }
+        if (results.remaining() < games.remaining()) {
+            throw new IllegalArgumentException("Results buffer must have space for "
+                    + games.remaining() + " games");
+        }
+        mGames = games;
+        mResults = results;
+        mThreshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+        final int count = mGames.remaining();
+        if (count <= mThreshold) {
+            Game.solveBatch(mGames, mResults);
+            return;
+        }
+        final int half = count / 2;
+        final LongBuffer firstGames = mGames.duplicate();
+        firstGames.limit(firstGames.position() + half);
+        final ByteBuffer firstResults = mResults.duplicate();
+        firstResults.limit(firstResults.position() + half);
+        final LongBuffer secondGames = mGames.duplicate();
+        secondGames.position(secondGames.position() + half);
+        final ByteBuffer secondResults = mResults.duplicate();
+        secondResults.position(secondResults.position() + half);
+        invokeAll(new BatchTask(firstGames, firstResults, mThreshold),
+                new BatchTask(secondGames, secondResults, mThreshold));
+        mGames.position(mGames.limit());
+        mResults.position(mResults.position() + count);
+    }
+}
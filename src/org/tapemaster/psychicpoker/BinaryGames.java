@@ -0,0 +1,292 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Compact binary format of games and results. A game of the standard size is
+ * packed into one little-endian long: the {@link Card#getIndex()} of each card
+ * takes 6 bits, the hand in bits 0-29 and the deck in bits 30-59, in order of
+ * the text format. A result is one byte, the ordinal of the best
+ * {@link Value}, or {@link #ERROR} if the game couldn't be solved, so the
+ * results file has one byte per game of the games file.
+ * <p>
+ * The main method converts games between the text and binary formats.
+ */
+public final class BinaryGames {
+
+    /**
+     * Number of bits of one card.
+     */
+    public static final int CARD_BITS = 6;
+
+    /**
+     * Number of bytes of one game.
+     */
+    public static final int GAME_BYTES = 8;
+
+    /**
+     * Result byte of a game that couldn't be solved.
+     */
+    public static final byte ERROR = (byte) 0xFF;
+
+    /**
+     * Default size of the window mapped at once, a multiple of game size.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final int CARD_MASK = (1 << CARD_BITS) - 1;
+
+    /**
+     * Length of input line without trailing whitespace.
+     */
+    private static final int LINE_LENGTH = (Card.CAPTION_LENGTH + 1) * Hand.NUMBER_OF_CARDS * 2 - 1;
+
+    /**
+     * Captions of cards indexed by {@link Card#getIndex()}.
+     */
+    private static final byte[][] sCaptions = new byte[Card.NUMBER_OF_CARDS][];
+
+    static {
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            sCaptions[i] = Card.of(i).toString().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Receives games found by {@link BinaryGames#read}.
+     */
+    public interface GameHandler {
+
+        /**
+         * Called for each game of the input.
+         *
+         * @param index
+         *            number of the game from 0
+         * @param game
+         *            the packed game
+         */
+        void onGame(long index, long game);
+    }
+
+    private BinaryGames() {
+    }
+
+    /**
+     * Packs the game into a long.
+     *
+     * @param hand
+     *            {@link Hand#NUMBER_OF_CARDS} cards of the hand
+     * @param deck
+     *            {@link Hand#NUMBER_OF_CARDS} cards of the deck
+     */
+    public static long pack(Card[] hand, Card[] deck) {
+        if (hand.length != Hand.NUMBER_OF_CARDS || deck.length != Hand.NUMBER_OF_CARDS) {
+            throw new IllegalArgumentException("Only games of size " + GameSize.STANDARD
+                    + " can be packed");
+        }
+        long game = 0;
+        for (int i = Hand.NUMBER_OF_CARDS - 1; i >= 0; i--) {
+            game = (game << CARD_BITS) | deck[i].getIndex();
+        }
+        for (int i = Hand.NUMBER_OF_CARDS - 1; i >= 0; i--) {
+            game = (game << CARD_BITS) | hand[i].getIndex();
+        }
+        return game;
+    }
+
+    /**
+     * Unpacks the game into arrays of {@link Hand#NUMBER_OF_CARDS} cards.
+     *
+     * @throws IllegalArgumentException
+     *             if the game has a wrong card index
+     */
+    public static void unpack(long game, Card[] hand, Card[] deck) {
+        for (int i = 0; i < Hand.NUMBER_OF_CARDS; i++) {
+            hand[i] = Card.of((int) game & CARD_MASK);
+            game >>>= CARD_BITS;
+        }
+        for (int i = 0; i < Hand.NUMBER_OF_CARDS; i++) {
+            deck[i] = Card.of((int) game & CARD_MASK);
+            game >>>= CARD_BITS;
+        }
+        if (game != 0) {
+            throw new IllegalArgumentException("Unused bits of the game are set");
+        }
+    }
+
+    /**
+     * Reads all games of the file by mapping it into memory in windows of
+     * default size.
+     *
+     * @throws IOException
+     *             if the file can't be mapped or its size is not a multiple of
+     *             {@link #GAME_BYTES}
+     */
+    public static void read(FileChannel channel, GameHandler handler) throws IOException {
+        read(channel, DEFAULT_WINDOW_SIZE, handler);
+    }
+
+    /**
+     * Reads all games of the file by mapping it into memory in windows of
+     * given size, rounded down to a multiple of {@link #GAME_BYTES}.
+     */
+    static void read(FileChannel channel, int windowSize, GameHandler handler)
+            throws IOException {
+        final long size = channel.size();
+        if (size % GAME_BYTES != 0) {
+            throw new IOException("Size of binary games file must be a multiple of "
+                    + GAME_BYTES);
+        }
+        final int window = Math.max(GAME_BYTES, windowSize - windowSize % GAME_BYTES);
+        long index = 0;
+        for (long windowStart = 0; windowStart < size; windowStart += window) {
+            final int length = (int) Math.min(window, size - windowStart);
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    windowStart, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < length; i += GAME_BYTES) {
+                handler.onGame(index++, buffer.getLong(i));
+            }
+        }
+    }
+
+    /**
+     * Converts games of text file to binary format, lines in wrong format are
+     * reported and skipped.
+     *
+     * @return number of games written
+     */
+    public static long toBinary(File input, File output) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(input, "r");
+        final FileOutputStream stream = new FileOutputStream(output);
+        try {
+            final FileChannel out = stream.getChannel();
+            final ByteBuffer buffer = ByteBuffer.allocate(ResultWriter.DEFAULT_BUFFER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            final Card[] hand = new Card[Hand.NUMBER_OF_CARDS];
+            final Card[] deck = new Card[Hand.NUMBER_OF_CARDS];
+            final long[] counts = new long[2];
+            final LineValidator validator = new LineValidator(GameSize.STANDARD);
+            new MappedLineReader(file.getChannel()).read(new MappedLineReader.LineHandler() {
+                @Override
+                public void onLine(ByteBuffer line, int start, int end) {
+                    counts[0]++;
+                    final int error = validator.validate(line, start, end, hand, deck);
+                    if (error != LineValidator.VALID) {
+                        System.err.println("Skipped line " + counts[0] + ": "
+                                + LineValidator.getMessage(error));
+                        return;
+                    }
+                    if (!buffer.hasRemaining()) {
+                        writeFully(out, buffer);
+                    }
+                    buffer.putLong(pack(hand, deck));
+                    counts[1]++;
+                }
+            });
+            writeFully(out, buffer);
+            return counts[1];
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            try {
+                file.close();
+            } finally {
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * Converts games of binary file to text format, games with wrong card
+     * indices are reported and skipped.
+     *
+     * @return number of games written
+     */
+    public static long toText(File input, File output) throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(input, "r");
+        final FileOutputStream stream = new FileOutputStream(output);
+        try {
+            final FileChannel out = stream.getChannel();
+            final ByteBuffer buffer = ByteBuffer.allocate(ResultWriter.DEFAULT_BUFFER_SIZE);
+            final byte[] separator = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+            final Card[] hand = new Card[Hand.NUMBER_OF_CARDS];
+            final Card[] deck = new Card[Hand.NUMBER_OF_CARDS];
+            final long[] count = new long[1];
+            read(file.getChannel(), new GameHandler() {
+                @Override
+                public void onGame(long index, long game) {
+                    try {
+                        unpack(game, hand, deck);
+                    } catch (IllegalArgumentException e) {
+                        System.err.println("Skipped game " + index + ": " + e.getMessage());
+                        return;
+                    }
+                    if (buffer.remaining() < LINE_LENGTH + separator.length) {
+                        writeFully(out, buffer);
+                    }
+                    for (int i = 0; i < Hand.NUMBER_OF_CARDS * 2; i++) {
+                        final Card card = (i < Hand.NUMBER_OF_CARDS) ? hand[i]
+                                : deck[i - Hand.NUMBER_OF_CARDS];
+                        if (i != 0) {
+                            buffer.put((byte) ' ');
+                        }
+                        buffer.put(sCaptions[card.getIndex()]);
+                    }
+                    buffer.put(separator);
+                    count[0]++;
+                }
+            });
+            writeFully(out, buffer);
+            return count[0];
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            try {
+                file.close();
+            } finally {
+                stream.close();
+            }
+        }
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Converts games between text and binary formats.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !(args[0].equals("--to-binary") || args[0].equals("--to-text"))) {
+            System.out.println("Usage: java BinaryGames --to-binary | --to-text "
+                    + "source_file result_file");
+            System.exit(1);
+        }
+        final File input = new File(args[1]);
+        final File output = new File(args[2]);
+        final long count = args[0].equals("--to-binary") ? toBinary(input, output)
+                : toText(input, output);
+        System.out.println("Written " + count + " games to " + output);
+    }
+}
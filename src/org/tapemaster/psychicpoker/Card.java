@@ -13,6 +13,11 @@ public class Card implements Comparable<Card> {
      */
     public static final int CAPTION_LENGTH = 2;
 
+    /**
+     * Number of distinct cards in the deck.
+     */
+    public static final int NUMBER_OF_CARDS = 52;
+
     /**
      * Rank of the card. Goes with card's caption:
      * 2, 3, 4, 5, 6, 7, 8, 9, T, J, Q, K and A.
@@ -33,12 +38,14 @@ public class Card implements Comparable<Card> {
         ACE("A");
 
         private static final Map<String, Rank> sDirectory;
+        private static final Rank[] sByChar = new Rank[128];
         private final String mCaption;
 
         static {
             sDirectory = new HashMap<String, Rank>();
             for (Rank value : Rank.values()) {
                 sDirectory.put(value.mCaption, value);
+                sByChar[value.mCaption.charAt(0)] = value;
             }
         }
 
@@ -56,6 +63,15 @@ public class Card implements Comparable<Card> {
             return result;
         }
 
+        /**
+         * Gets Ranking object by caption character.
+         * 
+         * @return Rank or null if no such caption exists
+         */
+        public static Rank getByCaption(char caption) {
+            return caption < sByChar.length ? sByChar[caption] : null;
+        }
+
         /**
          * Creates new Ranking with caption.
          */
@@ -75,6 +91,14 @@ public class Card implements Comparable<Card> {
     public enum Suit {
         C, D, H, S;
 
+        private static final Suit[] sByChar = new Suit[128];
+
+        static {
+            for (Suit value : Suit.values()) {
+                sByChar[value.name().charAt(0)] = value;
+            }
+        }
+
         /**
          * Gets suit by caption, this method is needed to get better error
          * message in case the suit is not found.
@@ -86,10 +110,96 @@ public class Card implements Comparable<Card> {
                 return null;
             }
         }
+
+        /**
+         * Gets suit by caption character.
+         * 
+         * @return Suit or null if no such caption exists
+         */
+        public static Suit getByCaption(char caption) {
+            return caption < sByChar.length ? sByChar[caption] : null;
+        }
+    }
+
+    /**
+     * All 52 cards indexed by {@link #getIndex()}, shared by {@link #of}.
+     */
+    private static final Card[] sCards = new Card[NUMBER_OF_CARDS];
+
+    /**
+     * Cards indexed by rank caption and suit caption characters, null for
+     * invalid captions.
+     */
+    private static final Card[][] sByCaption = new Card[128][128];
+
+    static {
+        for (Rank rank : Rank.values()) {
+            for (Suit suit : Suit.values()) {
+                final Card card = new Card(rank, suit);
+                sCards[card.mIndex] = card;
+                sByCaption[rank.toString().charAt(0)][suit.name().charAt(0)] = card;
+            }
+        }
     }
 
     private final Rank mValue;
     private final Suit mSuit;
+    private final int mIndex;
+
+    /**
+     * Finds shared card by its captions without throwing exceptions.
+     * 
+     * @return the card or null if rank or suit caption is unknown
+     */
+    static Card find(char rank, char suit) {
+        return (rank < 128 && suit < 128) ? sByCaption[rank][suit] : null;
+    }
+
+    /**
+     * Gets shared card by its captions.
+     * 
+     * @param rank
+     *            rank caption character
+     * @param suit
+     *            suit caption character
+     * @throws IllegalArgumentException
+     *             if rank or suit caption is unknown
+     */
+    public static Card of(char rank, char suit) {
+        final Card result = find(rank, suit);
+        if (result == null) {
+            if (Rank.getByCaption(rank) == null) {
+                throw new IllegalArgumentException("Couldn't find value '" + rank + "'");
+            }
+            throw new IllegalArgumentException("Couldn't find suit '" + suit + "'");
+        }
+        return result;
+    }
+
+    /**
+     * Gets shared card by its index.
+     * 
+     * @param index
+     *            index of the card as returned by {@link #getIndex()}
+     * @throws IllegalArgumentException
+     *             if index is not in range from 0 to NUMBER_OF_CARDS-1
+     */
+    public static Card of(int index) {
+        if (index < 0 || index >= NUMBER_OF_CARDS) {
+            throw new IllegalArgumentException("Card index must be from 0 to "
+                    + (NUMBER_OF_CARDS - 1));
+        }
+        return sCards[index];
+    }
+
+    /**
+     * Creates new card from rank and suit, used to fill the shared table.
+     */
+    private Card(Rank value, Suit suit) {
+        mValue = value;
+        mSuit = suit;
+        mIndex = indexOf(value, suit);
+    }
 
     /**
      * Creates new Card object from input string.
@@ -105,18 +215,14 @@ public class Card implements Comparable<Card> {
             throw new IllegalArgumentException("Card caption size must be " + CAPTION_LENGTH);
         }
 
-        final String valuePart = input.substring(0, 1);
-        final String suitPart = input.substring(1, 2);
+        final Card shared = of(input.charAt(0), input.charAt(1));
+        mValue = shared.mValue;
+        mSuit = shared.mSuit;
+        mIndex = shared.mIndex;
+    }
 
-        mValue = Rank.getByCaption(valuePart);
-        mSuit = Suit.getByCaption(suitPart);
-        
-        if (mValue == null) {
-            throw new IllegalArgumentException("Couldn't find value '" + valuePart + "'");
-        }
-        if (mSuit == null) {
-            throw new IllegalArgumentException("Couldn't find suit '" + suitPart + "'");
-        }
+    private static int indexOf(Rank value, Suit suit) {
+        return value.ordinal() * Suit.values().length + suit.ordinal();
     }
 
     @Override
@@ -146,6 +252,15 @@ public class Card implements Comparable<Card> {
         return mSuit;
     }
 
+    /**
+     * Gets index of the card from 0 to NUMBER_OF_CARDS-1. Cards are ordered
+     * by ranking first, so index / 4 is the ordinal of ranking and index % 4
+     * is the ordinal of suit.
+     */
+    public int getIndex() {
+        return mIndex;
+    }
+
     /**
      * Checks if this card's ranking is in sequence with other card.
      * 
@@ -0,0 +1,358 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves games of files dropped into a spool directory, as they are created
+ * and grow. Results of each file are appended to the file of the same name in
+ * the result directory; complete lines are solved, a line without terminator
+ * waits until the file grows.
+ * <p>
+ * Progress of each file is kept in a checkpoint file next to its results,
+ * holding positions in the input and the results files and the number of
+ * lines solved, so that errors give numbers of lines in the whole file. It is
+ * replaced atomically after each step of solved lines. A restarted watcher truncates
+ * the results to the checkpoint and resumes from there, so no line is lost or
+ * solved twice. Several files are solved concurrently, each of them by one
+ * thread at a time.
+ */
+public class DirectoryWatcher implements Closeable {
+
+    /**
+     * Suffix of checkpoint files.
+     */
+    public static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    /**
+     * Maximal number of bytes of input solved between checkpoints.
+     */
+    public static final int CHECKPOINT_BYTES = 16 * 1024 * 1024;
+
+    private final File mDirectory;
+    private final File mResultDirectory;
+    private final ExecutorService mExecutor;
+    private GameSolver mSolver = GameSolver.ALL_VARIATIONS;
+    private GameSize mSize = GameSize.STANDARD;
+    private boolean mDiscards;
+    private Statistics mStatistics;
+    private WatchService mWatchService;
+    private boolean mClosed;
+
+    /**
+     * Names of files being solved or waiting for it.
+     */
+    private final Set<String> mActive = new HashSet<String>();
+
+    /**
+     * Names of files that changed while being solved, to be solved again.
+     */
+    private final Set<String> mChanged = new HashSet<String>();
+
+    /**
+     * Creates watcher.
+     * 
+     * @param directory
+     *            the spool directory
+     * @param resultDirectory
+     *            directory to write results and checkpoints to
+     * @param threads
+     *            number of files solved concurrently
+     * @throws IllegalArgumentException
+     *             if directories are the same or number of threads is not
+     *             positive
+     */
+    public DirectoryWatcher(File directory, File resultDirectory, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        if (directory.getAbsoluteFile().equals(resultDirectory.getAbsoluteFile())) {
+            throw new IllegalArgumentException("Result directory must differ from spool");
+        }
+        mDirectory = directory;
+        mResultDirectory = resultDirectory;
+        mExecutor = Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * Sets solver of games shared by all threads, it must be thread-safe.
+     * {@link GameSolver#ALL_VARIATIONS} is used by default.
+     */
+    public void setSolver(GameSolver solver) {
+        mSolver = solver;
+    }
+
+    /**
+     * Sets size of games in the files, {@link GameSize#STANDARD} by default.
+     */
+    public void setGameSize(GameSize size) {
+        mSize = size;
+    }
+
+    /**
+     * Sets whether cards to discard are written with results, see
+     * {@link ResultWriter#write(Card[], Card[], GameResult)}.
+     */
+    public void setDiscards(boolean discards) {
+        mDiscards = discards;
+    }
+
+    /**
+     * Sets statistics shared by all threads, nothing is recorded by default.
+     */
+    public void setStatistics(Statistics statistics) {
+        mStatistics = statistics;
+    }
+
+    /**
+     * Solves new lines of all files in the spool directory and waits until
+     * they are solved.
+     * 
+     * @param err
+     *            stream to print errors to
+     */
+    public void processFiles(PrintStream err) throws InterruptedException {
+        final File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                schedule(file.getName(), err);
+            }
+        }
+        synchronized (this) {
+            while (!mActive.isEmpty()) {
+                wait();
+            }
+        }
+    }
+
+    /**
+     * Solves files in the spool directory as they change, until the watcher
+     * is closed. Lines added while the watcher wasn't running are solved
+     * first.
+     * 
+     * @param err
+     *            stream to print errors to
+     * @throws IOException
+     *             if the directory can't be watched
+     */
+    public void watch(PrintStream err) throws IOException, InterruptedException {
+        final Path directory = mDirectory.toPath();
+        synchronized (this) {
+            if (mClosed) {
+                return;
+            }
+            mWatchService = directory.getFileSystem().newWatchService();
+        }
+        try {
+            directory.register(mWatchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            processFiles(err);
+            while (true) {
+                final WatchKey key = mWatchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        processFiles(err);
+                    } else {
+                        schedule(((Path) event.context()).toString(), err);
+                    }
+                }
+                if (!key.reset()) {
+                    throw new IOException("Directory " + mDirectory + " is not accessible");
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // the watcher is closed
+        }
+    }
+
+    /**
+     * Stops watching and waits for files being solved.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            mClosed = true;
+            if (mWatchService != null) {
+                mWatchService.close();
+            }
+        }
+        mExecutor.shutdown();
+        try {
+            while (!mExecutor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // new lines of files being solved are finished
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Schedules solving of the file, or solving it again if it is being
+     * solved.
+     */
+    private synchronized void schedule(final String name, final PrintStream err) {
+        final File file = new File(mDirectory, name);
+        if (mClosed || name.startsWith(".") || !file.isFile()) {
+            return;
+        }
+        if (!mActive.add(name)) {
+            mChanged.add(name);
+            return;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    processFile(file, err);
+                } catch (IOException e) {
+                    err.println("Error while processing file " + file + ": " + e);
+                }
+                done(name, err);
+            }
+        });
+    }
+
+    private synchronized void done(String name, PrintStream err) {
+        mActive.remove(name);
+        if (mChanged.remove(name)) {
+            schedule(name, err);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Solves complete lines of the file after its checkpoint, updating the
+     * checkpoint after each step.
+     */
+    void processFile(File file, PrintStream err) throws IOException {
+        if (!mResultDirectory.isDirectory() && !mResultDirectory.mkdirs()) {
+            throw new IOException("Couldn't create directory " + mResultDirectory);
+        }
+        final File results = new File(mResultDirectory, file.getName());
+        final File checkpoint = new File(mResultDirectory, file.getName() + CHECKPOINT_SUFFIX);
+        final long[] positions = readCheckpoint(checkpoint);
+
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        final FileChannel output = FileChannel.open(results.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            final FileChannel channel = input.getChannel();
+            final long size = channel.size();
+            if (size < positions[0]) {
+                err.println("File " + file + " is shorter than its checkpoint, "
+                        + "solving it from the start");
+                positions[0] = 0;
+                positions[1] = 0;
+                positions[2] = 0;
+            }
+            output.truncate(positions[1]);
+            output.position(positions[1]);
+
+            final long end = MappedLineReader.findLineEnd(channel, positions[0], size);
+            while (positions[0] < end) {
+                final long stepEnd = MappedLineReader.findLineEnd(channel, positions[0],
+                        Math.min(end, positions[0] + CHECKPOINT_BYTES));
+                final long next = (stepEnd > positions[0]) ? stepEnd
+                        : MappedLineReader.findLineStart(channel,
+                                positions[0] + CHECKPOINT_BYTES);
+                final long lines = solve(channel, positions[0], next, positions[2] + 1,
+                        output, err);
+                output.force(false);
+                positions[0] = next;
+                positions[1] = output.position();
+                positions[2] = lines;
+                writeCheckpoint(checkpoint, positions);
+            }
+        } finally {
+            try {
+                output.close();
+            } finally {
+                input.close();
+            }
+        }
+    }
+
+    /**
+     * Solves lines of a step, numbering them from the given one.
+     * 
+     * @return number of the last line solved
+     */
+    private long solve(FileChannel input, long start, long end, long firstLineNumber,
+            FileChannel output, PrintStream err) throws IOException {
+        final ResultWriter writer = new ResultWriter(output);
+        final PsychicPoker poker = new PsychicPoker(writer, err, mSize);
+        poker.setFirstLineNumber(firstLineNumber);
+        poker.setSolver(mSolver);
+        poker.setDiscards(mDiscards);
+        poker.setStatistics(mStatistics);
+        poker.readMappedInputAndPlay(new MappedLineReader(input, start, end,
+                (int) Math.min(MappedLineReader.DEFAULT_WINDOW_SIZE, end - start)));
+        poker.flushStatistics();
+        writer.flush();
+        if (writer.checkError()) {
+            throw new IOException("Error while writing results");
+        }
+        return poker.getLineNumber();
+    }
+
+    /**
+     * Reads positions in the input and the results and the number of lines
+     * from the checkpoint.
+     * 
+     * @return the positions and lines, zeros if there is no checkpoint
+     */
+    private static long[] readCheckpoint(File checkpoint) throws IOException {
+        if (!checkpoint.exists()) {
+            return new long[3];
+        }
+        final String[] fields = new String(Files.readAllBytes(checkpoint.toPath()),
+                StandardCharsets.US_ASCII).trim().split(" ");
+        try {
+            return new long[] { Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                    Long.parseLong(fields[2]) };
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Wrong checkpoint " + checkpoint);
+        }
+    }
+
+    /**
+     * Replaces the checkpoint atomically with the positions and lines.
+     */
+    private static void writeCheckpoint(File checkpoint, long[] positions) throws IOException {
+        final Path temp = new File(checkpoint.getPath() + ".tmp").toPath();
+        final FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap((positions[0] + " " + positions[1] + " "
+                    + positions[2] + "\n").getBytes(StandardCharsets.US_ASCII));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+        Files.move(temp, checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,348 @@
+package org.tapemaster.psychicpoker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Analysis of a standard hand for a player who doesn't know the deck: for
+ * each way of discarding, exact numbers of draws from the 47 unseen cards
+ * giving each hand value, and so the probabilities of values and the
+ * expected payout. Compared with {@link Game}, it tells what a normal player
+ * could do with the same hand.
+ * <p>
+ * All 2598960 draws of all discard variations are evaluated with the tables
+ * of {@link TableHandEvaluator}, whatever {@link Hand#getEvaluator()} is, on
+ * a fork-join pool: each discard variation is a task, and variations drawing
+ * many cards are split by the first card drawn.
+ * <p>
+ * Discard masks are bitmasks of indices of discarded cards in the hand, in
+ * the order of {@link Hand#toString()}, as in {@link GameResult}.
+ * <p>
+ * The main method analyzes the hand given as card captions.
+ */
+public final class DrawAnalysis {
+
+    /**
+     * Payouts for a bet of one by hand value, as in a video poker pay table
+     * where every pair pays.
+     */
+    public static final double[] DEFAULT_PAYOUTS = { 0, 1, 2, 3, 4, 6, 9, 25, 50 };
+
+    private static final int NUMBER_OF_VALUES = Value.values().length;
+
+    /**
+     * Tasks drawing at least this number of cards are split by the first card
+     * drawn.
+     */
+    private static final int SPLIT_DRAWS = 3;
+
+    /**
+     * Ordinals of values indexed by strength.
+     */
+    private static final byte[] sValueOrdinals = new byte[HandStrength.MAX_STRENGTH + 1];
+
+    static {
+        for (int i = 1; i <= HandStrength.MAX_STRENGTH; i++) {
+            sValueOrdinals[i] = (byte) HandStrength.getValue(i).ordinal();
+        }
+    }
+
+    private final Hand mHand;
+
+    /**
+     * Numbers of draws indexed by discard mask and value ordinal.
+     */
+    private final long[][] mCounts;
+
+    private DrawAnalysis(Hand hand, long[][] counts) {
+        mHand = hand;
+        mCounts = counts;
+    }
+
+    /**
+     * Analyzes the hand on the common fork-join pool.
+     * 
+     * @see #analyze(Hand, ForkJoinPool)
+     */
+    public static DrawAnalysis analyze(Hand hand) {
+        return analyze(hand, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Analyzes the hand on the fork-join pool.
+     * 
+     * @throws IllegalArgumentException
+     *             if the hand isn't of {@link Hand#NUMBER_OF_CARDS} cards
+     */
+    public static DrawAnalysis analyze(Hand hand, ForkJoinPool pool) {
+        final Card[] cards = hand.getCards();
+        if (cards.length != Hand.NUMBER_OF_CARDS) {
+            throw new IllegalArgumentException("Hand must have " + Hand.NUMBER_OF_CARDS
+                    + " cards");
+        }
+        long seen = 0;
+        for (Card card : cards) {
+            seen |= 1L << card.getIndex();
+        }
+        final int[] unseen = new int[Card.NUMBER_OF_CARDS - cards.length];
+        int count = 0;
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            if ((seen & (1L << i)) == 0) {
+                unseen[count++] = TableHandEvaluator.getCode(i);
+            }
+        }
+
+        final int[] masks = GameSize.STANDARD.getDiscardMasks();
+        final List<DrawTask> tasks = new ArrayList<DrawTask>(masks.length);
+        for (int mask : masks) {
+            final int[] codes = new int[Hand.NUMBER_OF_CARDS];
+            int kept = 0;
+            for (int i = 0; i < cards.length; i++) {
+                if ((mask & (1 << i)) == 0) {
+                    codes[kept++] = TableHandEvaluator.getCode(cards[i].getIndex());
+                }
+            }
+            tasks.add(new DrawTask(codes, kept, unseen, 0, unseen.length - (codes.length - kept)
+                    + 1));
+        }
+        pool.invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        final long[][] counts = new long[1 << Hand.NUMBER_OF_CARDS][];
+        for (int i = 0; i < masks.length; i++) {
+            counts[masks[i]] = tasks.get(i).join();
+        }
+        return new DrawAnalysis(hand, counts);
+    }
+
+    /**
+     * Gets the analyzed hand.
+     */
+    public Hand getHand() {
+        return mHand;
+    }
+
+    /**
+     * Gets number of possible draws after discarding.
+     */
+    public long getDraws(int discardMask) {
+        long result = 0;
+        for (long count : getCounts(discardMask)) {
+            result += count;
+        }
+        return result;
+    }
+
+    /**
+     * Gets number of draws after discarding that give hand of the value.
+     */
+    public long getCount(int discardMask, Value value) {
+        return getCounts(discardMask)[value.ordinal()];
+    }
+
+    /**
+     * Gets probability of getting hand of the value after discarding.
+     */
+    public double getProbability(int discardMask, Value value) {
+        return (double) getCount(discardMask, value) / getDraws(discardMask);
+    }
+
+    /**
+     * Gets expected payout after discarding, with {@link #DEFAULT_PAYOUTS}.
+     */
+    public double getExpectedValue(int discardMask) {
+        return getExpectedValue(discardMask, DEFAULT_PAYOUTS);
+    }
+
+    /**
+     * Gets expected payout after discarding.
+     * 
+     * @param payouts
+     *            payouts indexed by value ordinal
+     * @throws IllegalArgumentException
+     *             if there isn't a payout for every value
+     */
+    public double getExpectedValue(int discardMask, double[] payouts) {
+        if (payouts.length != NUMBER_OF_VALUES) {
+            throw new IllegalArgumentException("Payouts must be given for " + NUMBER_OF_VALUES
+                    + " values");
+        }
+        final long[] counts = getCounts(discardMask);
+        double sum = 0;
+        for (int i = 0; i < NUMBER_OF_VALUES; i++) {
+            sum += counts[i] * payouts[i];
+        }
+        return sum / getDraws(discardMask);
+    }
+
+    /**
+     * Gets discard mask with the highest expected payout, with
+     * {@link #DEFAULT_PAYOUTS}.
+     */
+    public int getBestDiscardMask() {
+        return getBestDiscardMask(DEFAULT_PAYOUTS);
+    }
+
+    /**
+     * Gets discard mask with the highest expected payout. Of masks with equal
+     * payouts the one discarding fewer cards is returned.
+     */
+    public int getBestDiscardMask(double[] payouts) {
+        final int[] masks = GameSize.STANDARD.getDiscardMasks();
+        int best = masks[0];
+        double bestValue = getExpectedValue(best, payouts);
+        for (int i = 1; i < masks.length; i++) {
+            final double value = getExpectedValue(masks[i], payouts);
+            if (value > bestValue) {
+                best = masks[i];
+                bestValue = value;
+            }
+        }
+        return best;
+    }
+
+    private long[] getCounts(int discardMask) {
+        if (discardMask < 0 || discardMask >= mCounts.length) {
+            throw new IllegalArgumentException("Discard mask must be from 0 to "
+                    + (mCounts.length - 1));
+        }
+        return mCounts[discardMask];
+    }
+
+    /**
+     * Analyzes the hand given as card captions and prints expected payout of
+     * each way of discarding and probabilities of the best one.
+     */
+    public static void main(String[] args) {
+        final StringBuilder input = new StringBuilder();
+        for (String arg : args) {
+            input.append((input.length() > 0) ? " " : "").append(arg);
+        }
+        final Hand hand;
+        try {
+            hand = new Hand(PsychicPoker.parseCards(input));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Usage: java DrawAnalysis card card card card card");
+            System.exit(1);
+            return;
+        }
+
+        final DrawAnalysis analysis = analyze(hand);
+        for (int mask : GameSize.STANDARD.getDiscardMasks()) {
+            System.out.println("Discard: " + getCaptions(hand, mask) + " expected value: "
+                    + String.format("%.6f", analysis.getExpectedValue(mask)));
+        }
+        final int best = analysis.getBestDiscardMask();
+        final StringBuilder result = new StringBuilder();
+        result.append("Best discard: ").append(getCaptions(hand, best));
+        for (Value value : Value.values()) {
+            result.append(", ").append(value).append(": ")
+                    .append(String.format("%.6f", analysis.getProbability(best, value)));
+        }
+        System.out.println(result);
+    }
+
+    private static String getCaptions(Hand hand, int mask) {
+        final StringBuilder result = new StringBuilder();
+        for (int i = 0; i < Hand.NUMBER_OF_CARDS; i++) {
+            if ((mask & (1 << i)) != 0) {
+                result.append((result.length() > 0) ? " " : "").append(hand.getCards()[i]);
+            }
+        }
+        return (result.length() > 0) ? result.toString() : "none";
+    }
+
+    /**
+     * Task counting values of all draws completing the kept cards, whose
+     * first drawn card is in a range of unseen cards.
+     */
+    private static class DrawTask extends RecursiveTask<long[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] mCodes;
+        private final int mKept;
+        private final int[] mUnseen;
+        private final int mFrom;
+        private final int mTo;
+
+        /**
+         * Creates task.
+         * 
+         * @param codes
+         *            codes of a hand, kept cards first
+         * @param kept
+         *            number of kept cards
+         * @param unseen
+         *            codes of unseen cards to draw from
+         * @param from
+         *            index of the first unseen card that may be drawn first
+         * @param to
+         *            index after the last one
+         */
+        DrawTask(int[] codes, int kept, int[] unseen, int from, int to) {
+            mCodes = codes;
+            mKept = kept;
+            mUnseen = unseen;
+            mFrom = from;
+            mTo = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (mCodes.length - mKept >= SPLIT_DRAWS && mTo - mFrom > 1) {
+                final int middle = (mFrom + mTo) >>> 1;
+                final DrawTask left = new DrawTask(mCodes, mKept, mUnseen, mFrom, middle);
+                final DrawTask right = new DrawTask(mCodes, mKept, mUnseen, middle, mTo);
+                invokeAll(left, right);
+                final long[] counts = left.join();
+                final long[] rightCounts = right.join();
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] += rightCounts[i];
+                }
+                return counts;
+            }
+
+            final long[] counts = new long[NUMBER_OF_VALUES];
+            final int[] codes = mCodes.clone();
+            if (mKept == codes.length) {
+                counts[sValueOrdinals[TableHandEvaluator.getStrength(codes[0], codes[1],
+                        codes[2], codes[3], codes[4])]]++;
+                return counts;
+            }
+            for (int i = mFrom; i < mTo; i++) {
+                codes[mKept] = mUnseen[i];
+                draw(codes, mKept + 1, i + 1, counts);
+            }
+            return counts;
+        }
+
+        /**
+         * Fills the rest of the hand with every combination of unseen cards
+         * from given index and counts values of the hands.
+         */
+        private void draw(int[] codes, int filled, int from, long[] counts) {
+            if (filled == codes.length) {
+                counts[sValueOrdinals[TableHandEvaluator.getStrength(codes[0], codes[1],
+                        codes[2], codes[3], codes[4])]]++;
+                return;
+            }
+            final int last = mUnseen.length - (codes.length - filled);
+            for (int i = from; i <= last; i++) {
+                codes[filled] = mUnseen[i];
+                draw(codes, filled + 1, i + 1, counts);
+            }
+        }
+    }
+}
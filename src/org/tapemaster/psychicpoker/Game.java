@@ -1,8 +1,7 @@
 package org.tapemaster.psychicpoker;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
 
 import org.tapemaster.psychicpoker.Hand.Value;
 
@@ -11,67 +10,265 @@ import org.tapemaster.psychicpoker.Hand.Value;
  */
 public class Game {
 
-    private final Card[] mDeck;
-    private final Hand mHand;
+    private static final int CARD_MASK = (1 << BinaryGames.CARD_BITS) - 1;
 
     /**
-     * All possible discard variations as array of card indices.
+     * Number of bits of value ordinal in the result of search.
      */
-    private static final List<int[]> sVariations = new ArrayList<int[]>();
+    private static final int VALUE_BITS = 4;
+    private static final int VALUE_MASK = (1 << VALUE_BITS) - 1;
+
+    private static final Value[] sValues = Value.values();
 
-    static {
-        getVariations(new ArrayList<Integer>(), 0);
-    }
-    
     /**
-     * This function is called recursively, and on each iteration it adds new
-     * discard variation.
-     * 
-     * @param base
-     *            the base of the discard list to add new element
-     * @param start
-     *            the index to start from to skip duplicate variations
-     */
-    private static void getVariations(List<Integer> base, int start) {
-        for (int i = start; i < Hand.NUMBER_OF_CARDS; i++) {
-            List<Integer> newVariation = new ArrayList<Integer>(base);
-            newVariation.add(i);
-            sVariations.add(integerListToIntArray(newVariation));
-            getVariations(newVariation, i + 1);
+     * Number of straight flushes among distinct hands, they are the strongest
+     * ones.
+     */
+    private static final int STRAIGHT_FLUSHES = 10;
+
+    /**
+     * For each discard variation of a standard game, in order of
+     * {@link GameSize#getDiscardMasks()}, indices of the five cards of the
+     * candidate hand among the ten cards of the game, hand cards first.
+     */
+    private static final int[] sBatchSources;
+
+    static {
+        final int[] masks = GameSize.STANDARD.getDiscardMasks();
+        sBatchSources = new int[masks.length * Hand.NUMBER_OF_CARDS];
+        for (int i = 0; i < masks.length; i++) {
+            int deckIndex = 0;
+            for (int card = 0; card < Hand.NUMBER_OF_CARDS; card++) {
+                sBatchSources[i * Hand.NUMBER_OF_CARDS + card] = ((masks[i] & (1 << card)) != 0)
+                        ? Hand.NUMBER_OF_CARDS + deckIndex++ : card;
+            }
         }
     }
 
+    private final Card[] mDeck;
+    private final Hand mHand;
+    private final GameSize mSize;
+
     /**
-     * Converts List<Integer> to int[], for convenience.
+     * Buffers for candidate hands of each size, reused by all games solved on
+     * the thread.
      */
-    private static int[] integerListToIntArray(List<Integer> list) {
-        final int[] result = new int[list.size()];
-        for (int i = 0; i < list.size(); i++) {
-            result[i] = list.get(i);
+    private static final ThreadLocal<Card[][]> sCandidates = new ThreadLocal<Card[][]>() {
+        @Override
+        protected Card[][] initialValue() {
+            return new Card[GameSize.MAX_CARDS + 1][];
         }
-        return result;
-    }
+    };
 
     /**
      * Creates new Game object from Hand and deck.
+     * 
+     * @throws IllegalArgumentException
+     *             if deck has more than {@link GameSize#MAX_CARDS} cards
      */
     public Game(Hand hand, Card[] deck) {
+        this(hand, deck, GameSize.of(hand.size(), deck.length));
+    }
+
+    /**
+     * Creates new Game object of known size from Hand and deck.
+     * 
+     * @throws IllegalArgumentException
+     *             if the hand or the deck doesn't have the number of cards of
+     *             the size
+     */
+    public Game(Hand hand, Card[] deck, GameSize size) {
+        if (hand.size() != size.getHandSize() || deck.length != size.getDeckSize()) {
+            throw new IllegalArgumentException("Game must be of size " + size);
+        }
+        mSize = size;
         mHand = hand;
         mDeck = deck;
     }
 
     /**
-     * Gets value of the best possible hand.
+     * Gets size of this game.
+     */
+    public GameSize getSize() {
+        return mSize;
+    }
+
+    /**
+     * Gets value of the best possible hand. Candidate hands are built in a
+     * buffer reused between games, each of them is evaluated once and the
+     * search stops as soon as the highest value is found.
      */
     public Value getBestHand() {
-        final List<Hand> possibleHands = new ArrayList<Hand>();
-        possibleHands.add(mHand); //starting from hand without any cards changed
+        return getValue(search());
+    }
 
-        for (int[] variation : sVariations) {
-            final Hand otherHand = mHand.discard(variation, mDeck);
-            possibleHands.add(otherHand);
+    /**
+     * Finds the best hand and the way of discarding that gives it, in the
+     * same search as {@link #getBestHand()}. Discard variations are tried in
+     * order of number of discarded cards and only a higher value replaces the
+     * best one, so the result discards the fewest cards possible.
+     */
+    public GameResult solve() {
+        final int result = search();
+        return new GameResult(mHand, mDeck, getValue(result), getDiscardMask(result));
+    }
+
+    /**
+     * Searches for the best hand.
+     * 
+     * @return ordinal of the best value in the lowest {@link #VALUE_BITS}
+     *         bits and the first discard mask giving it in the higher ones,
+     *         so that {@link #getBestHand()} creates no objects; see
+     *         {@link #getValue(int)} and {@link #getDiscardMask(int)}
+     */
+    int search() {
+        Value best = mHand.getValue(); //starting from hand without any cards changed
+        int bestMask = 0;
+        if (best != Value.STRAIGHT_FLUSH) {
+            final HandEvaluator evaluator = Hand.getEvaluator();
+            final Card[] candidate = getCandidate();
+            final int[] masks = mSize.getDiscardMasks();
+            for (int i = 1; i < masks.length; i++) {
+                fillCandidate(masks[i], candidate);
+                final Value value = GameSize.getBestValue(candidate, evaluator);
+                if (value.compareTo(best) > 0) {
+                    best = value;
+                    bestMask = masks[i];
+                    if (best == Value.STRAIGHT_FLUSH) {
+                        break;
+                    }
+                }
+            }
         }
+        return (bestMask << VALUE_BITS) | best.ordinal();
+    }
 
-        return Collections.max(possibleHands).getValue();
+    /**
+     * Gets value of the best hand from the result of {@link #search()}.
+     */
+    static Value getValue(int result) {
+        return sValues[result & VALUE_MASK];
+    }
+
+    /**
+     * Gets discard mask of the best hand from the result of {@link #search()}.
+     */
+    static int getDiscardMask(int result) {
+        return result >>> VALUE_BITS;
+    }
+
+    /**
+     * Gets the strongest possible hand, taking kickers into account. If
+     * several ways of discarding give hands of equal strength, the one found
+     * first is returned.
+     */
+    public Hand getStrongestHand() {
+        int best = mHand.getStrength();
+        int bestMask = 0;
+
+        final HandEvaluator evaluator = Hand.getEvaluator();
+        final Card[] candidate = getCandidate();
+        final int[] masks = mSize.getDiscardMasks();
+        for (int i = 1; i < masks.length; i++) {
+            if (best == HandStrength.MAX_STRENGTH) {
+                break;
+            }
+            fillCandidate(masks[i], candidate);
+            final int strength = GameSize.getBestStrength(candidate, evaluator);
+            if (strength > best) {
+                best = strength;
+                bestMask = masks[i];
+            }
+        }
+        return (bestMask == 0) ? mHand : mHand.discard(bestMask, mDeck);
+    }
+
+    /**
+     * Gets strength of the strongest possible hand, see {@link HandStrength}.
+     */
+    public int getBestStrength() {
+        return getStrongestHand().getStrength();
+    }
+
+    /**
+     * Solves games of standard size packed as in {@link BinaryGames}, without
+     * creating any objects for them. Games are taken from position to limit of
+     * the games buffer and for each of them one byte is put into the results
+     * buffer: ordinal of the best {@link Value}, or {@link BinaryGames#ERROR}
+     * if the game has a wrong card index or a card occurring twice. Positions
+     * of both buffers are advanced. Hands are evaluated with the tables of
+     * {@link TableHandEvaluator}, whatever {@link Hand#getEvaluator()} is.
+     * <p>
+     * Buffers may be heap or direct ones, {@link BatchTask} solves them in
+     * parallel.
+     * 
+     * @throws IllegalArgumentException
+     *             if there is less space remaining in results than games
+     */
+    public static void solveBatch(LongBuffer games, ByteBuffer results) {
+        if (results.remaining() < games.remaining()) {
+            throw new IllegalArgumentException("Results buffer must have space for "
+                    + games.remaining() + " games");
+        }
+        final int[] codes = new int[Hand.NUMBER_OF_CARDS * 2];
+        while (games.hasRemaining()) {
+            results.put(solvePacked(games.get(), codes));
+        }
+    }
+
+    /**
+     * Solves the packed game using given buffer for codes of its cards.
+     */
+    private static byte solvePacked(long game, int[] codes) {
+        long seen = 0;
+        for (int i = 0; i < codes.length; i++) {
+            final int index = (int) (game >>> (i * BinaryGames.CARD_BITS)) & CARD_MASK;
+            final long bit = 1L << index;
+            if (index >= Card.NUMBER_OF_CARDS || (seen & bit) != 0) {
+                return BinaryGames.ERROR;
+            }
+            seen |= bit;
+            codes[i] = TableHandEvaluator.getCode(index);
+        }
+        if ((game >>> (codes.length * BinaryGames.CARD_BITS)) != 0) {
+            return BinaryGames.ERROR;
+        }
+
+        final int[] sources = sBatchSources;
+        final int straightFlush = HandStrength.MAX_STRENGTH - STRAIGHT_FLUSHES + 1;
+        int best = 0;
+        for (int i = 0; i < sources.length && best < straightFlush; i += Hand.NUMBER_OF_CARDS) {
+            final int strength = TableHandEvaluator.getStrength(codes[sources[i]],
+                    codes[sources[i + 1]], codes[sources[i + 2]], codes[sources[i + 3]],
+                    codes[sources[i + 4]]);
+            if (strength > best) {
+                best = strength;
+            }
+        }
+        return (byte) HandStrength.getValue(best).ordinal();
+    }
+
+    /**
+     * Gets candidate buffer of the hand size for the current thread.
+     */
+    private Card[] getCandidate() {
+        final Card[][] candidates = sCandidates.get();
+        final int size = mSize.getHandSize();
+        if (candidates[size] == null) {
+            candidates[size] = new Card[size];
+        }
+        return candidates[size];
+    }
+
+    /**
+     * Fills candidate with cards of the hand, replacing discarded ones given
+     * as bitmask of their indices with cards from the top of the deck.
+     */
+    private void fillCandidate(int mask, Card[] candidate) {
+        System.arraycopy(mHand.getCards(), 0, candidate, 0, candidate.length);
+        int deckIndex = 0;
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            candidate[Integer.numberOfTrailingZeros(bits)] = mDeck[deckIndex++];
+        }
     }
 }
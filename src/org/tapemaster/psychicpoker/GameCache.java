@@ -0,0 +1,284 @@
+package org.tapemaster.psychicpoker;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Bounded cache of best hands of games, keyed by {@link GameKey}. The cache is
+ * split into stripes, each of them guarded by its own lock, so that threads
+ * solving different games rarely wait for each other.
+ * <p>
+ * A stripe is an open addressing table of primitive keys and value ordinals,
+ * so lookups create no objects. When it is full, a game is evicted by the
+ * clock algorithm, which approximates least recently used: games found since
+ * the clock hand passed them get a second chance.
+ */
+public class GameCache implements GameSolver {
+
+    /**
+     * Default number of stripes.
+     */
+    public static final int DEFAULT_STRIPES = 16;
+
+    private final Stripe[] mStripes;
+    private final GameSolver mSolver;
+
+    /**
+     * Creates cache with default number of stripes, solving games with
+     * {@link Game}.
+     * 
+     * @param capacity
+     *            maximum number of games in the cache
+     */
+    public GameCache(int capacity) {
+        this(capacity, DEFAULT_STRIPES, GameSolver.ALL_VARIATIONS);
+    }
+
+    /**
+     * Creates cache with default number of stripes.
+     * 
+     * @param capacity
+     *            maximum number of games in the cache
+     * @param solver
+     *            thread-safe solver of games not found in the cache
+     */
+    public GameCache(int capacity, GameSolver solver) {
+        this(capacity, DEFAULT_STRIPES, solver);
+    }
+
+    /**
+     * Creates cache.
+     * 
+     * @param capacity
+     *            maximum number of games in the cache
+     * @param stripes
+     *            number of independently locked parts of the cache
+     * @param solver
+     *            thread-safe solver of games not found in the cache
+     */
+    public GameCache(int capacity, int stripes, GameSolver solver) {
+        if (stripes <= 0 || capacity < stripes) {
+            throw new IllegalArgumentException("Capacity must be at least number of stripes, "
+                    + "which must be positive");
+        }
+        mSolver = solver;
+        mStripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            mStripes[i] = new Stripe(capacity / stripes + (i < capacity % stripes ? 1 : 0));
+        }
+    }
+
+    /**
+     * Gets value of the best possible hand, from the cache if the same game or
+     * an equivalent one was solved before. Games of non-standard size are
+     * not cached.
+     */
+    @Override
+    public Value getBestHand(Hand hand, Card[] deck) {
+        if (hand.size() != Hand.NUMBER_OF_CARDS || deck.length != Hand.NUMBER_OF_CARDS) {
+            return mSolver.getBestHand(hand, deck);
+        }
+        final long key = GameKey.getKey(hand, deck);
+        final long hash = mix(key);
+        final Stripe stripe = mStripes[(int) ((hash >>> 1) % mStripes.length)];
+
+        synchronized (stripe) {
+            final Value cached = stripe.get(key, hash);
+            if (cached != null) {
+                stripe.mHits++;
+                return cached;
+            }
+            stripe.mMisses++;
+        }
+
+        final Value value = mSolver.getBestHand(hand, deck);
+        synchronized (stripe) {
+            stripe.put(key, hash, value);
+        }
+        return value;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        return key ^ (key >>> 33);
+    }
+
+    /**
+     * Gets number of games found in the cache.
+     */
+    public long getHits() {
+        long result = 0;
+        for (Stripe stripe : mStripes) {
+            synchronized (stripe) {
+                result += stripe.mHits;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets number of games not found in the cache.
+     */
+    public long getMisses() {
+        long result = 0;
+        for (Stripe stripe : mStripes) {
+            synchronized (stripe) {
+                result += stripe.mMisses;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets number of games removed from the cache to free space.
+     */
+    public long getEvictions() {
+        long result = 0;
+        for (Stripe stripe : mStripes) {
+            synchronized (stripe) {
+                result += stripe.mEvictions;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets number of games in the cache.
+     */
+    public int size() {
+        int result = 0;
+        for (Stripe stripe : mStripes) {
+            synchronized (stripe) {
+                result += stripe.size();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "hits: " + getHits() + ", misses: " + getMisses() + ", evictions: "
+                + getEvictions() + ", size: " + size();
+    }
+
+    /**
+     * Part of the cache, accessed only under its own lock.
+     */
+    private static class Stripe {
+
+        private static final Value[] sValues = Value.values();
+
+        private final long[] mKeys;
+
+        /**
+         * Value ordinals plus one, 0 in empty slots.
+         */
+        private final byte[] mValues;
+
+        /**
+         * Whether the game was found since the clock hand passed it.
+         */
+        private final boolean[] mReferenced;
+
+        private final int mMask;
+        private final int mCapacity;
+        private int mSize;
+        private int mClock;
+        long mHits;
+        long mMisses;
+        long mEvictions;
+
+        Stripe(int capacity) {
+            // at most half of the slots are used
+            final int slots = Integer.highestOneBit(capacity * 2 - 1) << 1;
+            mKeys = new long[slots];
+            mValues = new byte[slots];
+            mReferenced = new boolean[slots];
+            mMask = slots - 1;
+            mCapacity = capacity;
+        }
+
+        int size() {
+            return mSize;
+        }
+
+        /**
+         * Gets value of the game, or null if it isn't in the stripe.
+         */
+        Value get(long key, long hash) {
+            for (int i = getSlot(hash); mValues[i] != 0; i = (i + 1) & mMask) {
+                if (mKeys[i] == key) {
+                    mReferenced[i] = true;
+                    return sValues[mValues[i] - 1];
+                }
+            }
+            return null;
+        }
+
+        void put(long key, long hash, Value value) {
+            int i = getSlot(hash);
+            for (; mValues[i] != 0; i = (i + 1) & mMask) {
+                if (mKeys[i] == key) {
+                    // solved by another thread in the meantime
+                    return;
+                }
+            }
+            if (mSize == mCapacity) {
+                evict();
+                i = getSlot(hash);
+                while (mValues[i] != 0) {
+                    i = (i + 1) & mMask;
+                }
+            }
+            mKeys[i] = key;
+            mValues[i] = (byte) (value.ordinal() + 1);
+            mReferenced[i] = false;
+            mSize++;
+        }
+
+        /**
+         * Removes the first game after the clock hand that wasn't found since
+         * the hand passed it.
+         */
+        private void evict() {
+            while (true) {
+                final int i = mClock;
+                mClock = (mClock + 1) & mMask;
+                if (mValues[i] == 0) {
+                    continue;
+                }
+                if (mReferenced[i]) {
+                    mReferenced[i] = false;
+                    continue;
+                }
+                remove(i);
+                mEvictions++;
+                return;
+            }
+        }
+
+        /**
+         * Removes the game of the slot, moving games that follow it back so
+         * that they can still be found.
+         */
+        private void remove(int slot) {
+            int hole = slot;
+            for (int i = (slot + 1) & mMask; mValues[i] != 0; i = (i + 1) & mMask) {
+                final int home = getSlot(mix(mKeys[i]));
+                if (((i - home) & mMask) >= ((i - hole) & mMask)) {
+                    mKeys[hole] = mKeys[i];
+                    mValues[hole] = mValues[i];
+                    mReferenced[hole] = mReferenced[i];
+                    hole = i;
+                }
+            }
+            mValues[hole] = 0;
+            mReferenced[hole] = false;
+            mSize--;
+        }
+
+        private int getSlot(long hash) {
+            return (int) (hash >>> 32) & mMask;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.tapemaster.psychicpoker;
+
+/**
+ * Builds keys identifying games up to renaming of suits and order of cards in
+ * the hand, which don't change the best possible hand.
+ * <p>
+ * Suits are renamed in the order of their first appearance in the deck, whose
+ * order matters. Suits appearing only in the hand are named after them, by
+ * the set of ranks they have there, so suits with the same ranks are
+ * interchangeable and the naming doesn't depend on the order of the hand.
+ * The key packs indices of the renamed hand cards in ascending order, then
+ * the renamed deck cards in their order, 6 bits each. For example
+ * "2H 5H 7H AD AC 3H ..." and "2S 5S 7S AC AH 3S ..." get the same key, and
+ * so do "AD AC ..." and "AC AD ...".
+ */
+public final class GameKey {
+
+    /**
+     * Number of bits used for one card in the key.
+     */
+    public static final int CARD_BITS = 6;
+
+    private static final int SUIT_BITS = 3;
+    private static final int NUMBER_OF_SUITS = Card.Suit.values().length;
+
+    /**
+     * Number of bits of the set of ranks of a suit.
+     */
+    private static final int RANK_BITS = 16;
+
+    private GameKey() {
+    }
+
+    /**
+     * Gets key of the game.
+     * 
+     * @param hand
+     *            the hand of {@link Hand#NUMBER_OF_CARDS} cards
+     * @param deck
+     *            the deck, {@link Hand#NUMBER_OF_CARDS} cards
+     */
+    public static long getKey(Hand hand, Card[] deck) {
+        final Card[] cards = hand.getCards();
+        int suits = 0;
+        int nextSuit = 0;
+        for (int i = 0; i < Hand.NUMBER_OF_CARDS; i++) {
+            final int suitShift = deck[i].getSuit().ordinal() * SUIT_BITS;
+            if (((suits >>> suitShift) & ((1 << SUIT_BITS) - 1)) == 0) {
+                suits |= ++nextSuit << suitShift;
+            }
+        }
+
+        // suits only in the hand are named by decreasing set of ranks
+        long ranks = 0;
+        for (int i = 0; i < Hand.NUMBER_OF_CARDS; i++) {
+            final int suit = cards[i].getSuit().ordinal();
+            if (((suits >>> (suit * SUIT_BITS)) & ((1 << SUIT_BITS) - 1)) == 0) {
+                ranks |= 1L << (suit * RANK_BITS + cards[i].getValue().ordinal());
+            }
+        }
+        while (ranks != 0) {
+            int best = 0;
+            long bestRanks = 0;
+            for (int suit = 0; suit < NUMBER_OF_SUITS; suit++) {
+                final long suitRanks = (ranks >>> (suit * RANK_BITS)) & ((1L << RANK_BITS) - 1);
+                if (suitRanks > bestRanks) {
+                    best = suit;
+                    bestRanks = suitRanks;
+                }
+            }
+            suits |= ++nextSuit << (best * SUIT_BITS);
+            ranks &= ~(((1L << RANK_BITS) - 1) << (best * RANK_BITS));
+        }
+
+        long handIndices = 0;
+        for (int i = 0; i < Hand.NUMBER_OF_CARDS; i++) {
+            handIndices |= 1L << getIndex(cards[i], suits);
+        }
+        long key = 0;
+        int shift = 0;
+        while (handIndices != 0) {
+            key |= (long) Long.numberOfTrailingZeros(handIndices) << shift;
+            handIndices &= handIndices - 1;
+            shift += CARD_BITS;
+        }
+        for (int i = 0; i < Hand.NUMBER_OF_CARDS; i++) {
+            key |= (long) getIndex(deck[i], suits) << shift;
+            shift += CARD_BITS;
+        }
+        return key;
+    }
+
+    /**
+     * Gets index of the card with its suit renamed.
+     */
+    private static int getIndex(Card card, int suits) {
+        final int suit = (suits >>> (card.getSuit().ordinal() * SUIT_BITS))
+                & ((1 << SUIT_BITS) - 1);
+        return card.getValue().ordinal() * NUMBER_OF_SUITS + suit - 1;
+    }
+}
@@ -0,0 +1,60 @@
+package org.tapemaster.psychicpoker;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Result of a game found by {@link Game#solve()}: value of the best hand and
+ * the way of discarding that reaches it with the fewest cards taken from the
+ * deck.
+ * <p>
+ * The final hand is built when the result is created, so the result stays
+ * valid when the caller reuses the arrays of the hand and the deck for the
+ * next game.
+ */
+public final class GameResult {
+
+    private final Value mValue;
+    private final int mDiscardMask;
+    private final Hand mFinalHand;
+
+    GameResult(Hand hand, Card[] deck, Value value, int discardMask) {
+        mValue = value;
+        mDiscardMask = discardMask;
+        // copies cards even when nothing is discarded
+        mFinalHand = hand.discard(discardMask, deck);
+    }
+
+    /**
+     * Gets value of the best possible hand.
+     */
+    public Value getValue() {
+        return mValue;
+    }
+
+    /**
+     * Gets bitmask of indices of discarded cards in the hand, in the order of
+     * {@link Hand#toString()}.
+     */
+    public int getDiscardMask() {
+        return mDiscardMask;
+    }
+
+    /**
+     * Gets number of discarded cards, the minimal one giving the best value.
+     */
+    public int getDiscards() {
+        return Integer.bitCount(mDiscardMask);
+    }
+
+    /**
+     * Gets the hand after discarding.
+     */
+    public Hand getFinalHand() {
+        return mFinalHand;
+    }
+
+    @Override
+    public String toString() {
+        return mValue + " discarding " + getDiscards() + ": " + getFinalHand();
+    }
+}
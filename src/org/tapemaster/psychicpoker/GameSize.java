@@ -0,0 +1,237 @@
+package org.tapemaster.psychicpoker;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Numbers of cards in the hand and in the deck of a game. The standard game
+ * has five cards in both, other sizes are used by variants of the game. Hands
+ * of more than {@link Hand#NUMBER_OF_CARDS} cards are valued by their best
+ * five cards.
+ * <p>
+ * Instances are shared per size together with their tables: discard
+ * variations as bitmasks of hand card indices, and index subsets for choosing
+ * five cards of a hand. They are created when first needed and then read
+ * without locking, so threads solving games never wait for each other here.
+ */
+public final class GameSize {
+
+    /**
+     * Maximum number of cards in the hand or in the deck.
+     */
+    public static final int MAX_CARDS = 16;
+
+    /**
+     * Shared sizes indexed by hand size * (MAX_CARDS + 1) + deck size.
+     */
+    private static final AtomicReferenceArray<GameSize> sSizes =
+            new AtomicReferenceArray<GameSize>((MAX_CARDS + 1) * (MAX_CARDS + 1));
+
+    /**
+     * Subsets of five card indices for hands of each size, created when
+     * first needed.
+     */
+    private static final AtomicReferenceArray<int[][]> sSubsets =
+            new AtomicReferenceArray<int[][]>(MAX_CARDS + 1);
+
+    /**
+     * Buffers for five cards chosen from larger hands.
+     */
+    private static final ThreadLocal<Card[]> sFiveCards = new ThreadLocal<Card[]>() {
+        @Override
+        protected Card[] initialValue() {
+            return new Card[Hand.NUMBER_OF_CARDS];
+        }
+    };
+
+    /**
+     * Size of the standard game.
+     */
+    public static final GameSize STANDARD = of(Hand.NUMBER_OF_CARDS, Hand.NUMBER_OF_CARDS);
+
+    private final int mHandSize;
+    private final int mDeckSize;
+    private final int[] mDiscardMasks;
+
+    private GameSize(int handSize, int deckSize) {
+        mHandSize = handSize;
+        mDeckSize = deckSize;
+        mDiscardMasks = getDiscardMasks(handSize, Math.min(handSize, deckSize));
+    }
+
+    /**
+     * Gets shared size object.
+     * 
+     * @param handSize
+     *            number of cards in the hand, from {@link Hand#NUMBER_OF_CARDS}
+     *            to {@link #MAX_CARDS}
+     * @param deckSize
+     *            number of cards in the deck, from 0 to {@link #MAX_CARDS}
+     * @throws IllegalArgumentException
+     *             if sizes are out of range
+     */
+    public static GameSize of(int handSize, int deckSize) {
+        if (handSize < Hand.NUMBER_OF_CARDS || handSize > MAX_CARDS) {
+            throw new IllegalArgumentException("Number of cards in hand must be from "
+                    + Hand.NUMBER_OF_CARDS + " to " + MAX_CARDS);
+        }
+        if (deckSize < 0 || deckSize > MAX_CARDS) {
+            throw new IllegalArgumentException("Deck size must be from 0 to " + MAX_CARDS);
+        }
+        final int index = handSize * (MAX_CARDS + 1) + deckSize;
+        final GameSize result = sSizes.get(index);
+        if (result != null) {
+            return result;
+        }
+        // threads racing here create equal sizes, only the first is kept
+        sSizes.compareAndSet(index, null, new GameSize(handSize, deckSize));
+        return sSizes.get(index);
+    }
+
+    /**
+     * Gets all discard variations as bitmasks of hand card indices, in order
+     * of increasing number of discarded cards. Masks of the same number of
+     * bits are enumerated with Gosper's hack.
+     * 
+     * @param handSize
+     *            number of cards in the hand
+     * @param maxDiscards
+     *            maximum number of cards to discard
+     */
+    private static int[] getDiscardMasks(int handSize, int maxDiscards) {
+        int count = 0;
+        for (int bits = 0; bits <= maxDiscards; bits++) {
+            count += binomial(handSize, bits);
+        }
+        final int[] result = new int[count];
+        int index = 0;
+        for (int bits = 0; bits <= maxDiscards; bits++) {
+            for (int mask = (1 << bits) - 1; mask < (1 << handSize); mask = nextWithSameBits(mask)) {
+                result[index++] = mask;
+                if (mask == 0) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets next larger number with the same number of set bits (Gosper's
+     * hack).
+     */
+    private static int nextWithSameBits(int mask) {
+        final int lowest = mask & -mask;
+        final int ripple = mask + lowest;
+        return (((ripple ^ mask) >>> 2) / lowest) | ripple;
+    }
+
+    private static int binomial(int n, int k) {
+        long result = 1;
+        for (int i = 0; i < k; i++) {
+            result = result * (n - i) / (i + 1);
+        }
+        return (int) result;
+    }
+
+    /**
+     * Gets number of cards in the hand.
+     */
+    public int getHandSize() {
+        return mHandSize;
+    }
+
+    /**
+     * Gets number of cards in the deck.
+     */
+    public int getDeckSize() {
+        return mDeckSize;
+    }
+
+    /**
+     * Checks if this is the size of the standard game.
+     */
+    public boolean isStandard() {
+        return this == STANDARD;
+    }
+
+    /**
+     * Gets all discard variations as bitmasks of hand card indices, in order
+     * of increasing number of discarded cards, the array must not be modified.
+     */
+    int[] getDiscardMasks() {
+        return mDiscardMasks;
+    }
+
+    /**
+     * Gets all subsets of five card indices of the hand of given size, the
+     * array must not be modified.
+     */
+    static int[][] getSubsets(int handSize) {
+        final int[][] result = sSubsets.get(handSize);
+        if (result != null) {
+            return result;
+        }
+        final int[][] subsets = new int[binomial(handSize, Hand.NUMBER_OF_CARDS)][];
+        int index = 0;
+        final int first = (1 << Hand.NUMBER_OF_CARDS) - 1;
+        for (int mask = first; mask < (1 << handSize); mask = nextWithSameBits(mask)) {
+            final int[] subset = new int[Hand.NUMBER_OF_CARDS];
+            int count = 0;
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                subset[count++] = Integer.numberOfTrailingZeros(bits);
+            }
+            subsets[index++] = subset;
+        }
+        sSubsets.compareAndSet(handSize, null, subsets);
+        return sSubsets.get(handSize);
+    }
+
+    /**
+     * Gets value of the best five of given cards.
+     */
+    static Value getBestValue(Card[] cards, HandEvaluator evaluator) {
+        if (cards.length == Hand.NUMBER_OF_CARDS) {
+            return evaluator.getValue(cards);
+        }
+        final Card[] five = sFiveCards.get();
+        Value best = Value.HIGHEST_CARD;
+        for (int[] subset : getSubsets(cards.length)) {
+            for (int i = 0; i < Hand.NUMBER_OF_CARDS; i++) {
+                five[i] = cards[subset[i]];
+            }
+            final Value value = evaluator.getValue(five);
+            if (value.compareTo(best) > 0) {
+                best = value;
+                if (best == Value.STRAIGHT_FLUSH) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets strength of the best five of given cards.
+     */
+    static int getBestStrength(Card[] cards, HandEvaluator evaluator) {
+        if (cards.length == Hand.NUMBER_OF_CARDS) {
+            return evaluator.getStrength(cards);
+        }
+        final Card[] five = sFiveCards.get();
+        int best = 0;
+        for (int[] subset : getSubsets(cards.length)) {
+            for (int i = 0; i < Hand.NUMBER_OF_CARDS; i++) {
+                five[i] = cards[subset[i]];
+            }
+            best = Math.max(best, evaluator.getStrength(five));
+        }
+        return best;
+    }
+
+    @Override
+    public String toString() {
+        return mHandSize + "x" + mDeckSize;
+    }
+}
@@ -0,0 +1,31 @@
+package org.tapemaster.psychicpoker;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Finds value of the best hand possible in a game.
+ */
+public interface GameSolver {
+
+    /**
+     * Solver evaluating every discard variation with {@link Game}.
+     */
+    GameSolver ALL_VARIATIONS = new GameSolver() {
+        @Override
+        public Value getBestHand(Hand hand, Card[] deck) {
+            return new Game(hand, deck).getBestHand();
+        }
+    };
+
+    /**
+     * Gets value of the best possible hand.
+     * 
+     * @param hand
+     *            the hand
+     * @param deck
+     *            the deck
+     * @throws IllegalArgumentException
+     *             if size of the game is not supported by the solver
+     */
+    Value getBestHand(Hand hand, Card[] deck);
+}
@@ -0,0 +1,171 @@
+package org.tapemaster.psychicpoker;
+
+import org.tapemaster.psychicpoker.Card.Rank;
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Finds the best hand of a game by visiting discard variations in Gray code
+ * order, so that each variation differs from the previous one by a single
+ * card of the hand being discarded or taken back.
+ * <p>
+ * Discarded cards are always replaced from the top of the deck, so
+ * discarding one more card removes it and adds the next deck card, and taking
+ * a card back removes the last deck card used. The search keeps counts of
+ * rankings and suits, number of pairs, threes and fours, and bits of present
+ * rankings, and updates them for the two cards changed on each step. Value of
+ * the hand is then derived from these counts without sorting or evaluating it
+ * from scratch.
+ */
+public class GrayCodeSearch implements GameSolver {
+
+    private static final int NUMBER_OF_RANKS = Rank.values().length;
+
+    /**
+     * Tells for all combinations of ranking bits if they make a straight.
+     */
+    private static final boolean[] sStraights = new boolean[1 << NUMBER_OF_RANKS];
+
+    static {
+        sStraights[HandStrength.WHEEL] = true;
+        for (int lowest = 0; lowest + Hand.NUMBER_OF_CARDS <= NUMBER_OF_RANKS; lowest++) {
+            sStraights[0x1F << lowest] = true;
+        }
+    }
+
+    /**
+     * State of search reused by all games solved on the thread.
+     */
+    private static final ThreadLocal<State> sState = new ThreadLocal<State>() {
+        @Override
+        protected State initialValue() {
+            return new State();
+        }
+    };
+
+    @Override
+    public Value getBestHand(Hand hand, Card[] deck) {
+        if (hand.size() != Hand.NUMBER_OF_CARDS || deck.length != Hand.NUMBER_OF_CARDS) {
+            throw new IllegalArgumentException("Only games of size " + GameSize.STANDARD
+                    + " are supported");
+        }
+        final Card[] cards = hand.getCards();
+        final State state = sState.get();
+        state.reset();
+        for (Card card : cards) {
+            state.add(card);
+        }
+
+        Value best = state.getValue();
+        int discarded = 0;
+        for (int step = 1; step < (1 << Hand.NUMBER_OF_CARDS) && best != Value.STRAIGHT_FLUSH;
+                step++) {
+            final int card = Integer.numberOfTrailingZeros(step);
+            if (((getDiscardMask(step) >>> card) & 1) != 0) {
+                state.remove(cards[card]);
+                state.add(deck[discarded++]);
+            } else {
+                state.remove(deck[--discarded]);
+                state.add(cards[card]);
+            }
+
+            final Value value = state.getValue();
+            if (value.compareTo(best) > 0) {
+                best = value;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets cards of the hand discarded on given step, the Gray code of the
+     * step. It differs from the previous step only in the card given by the
+     * lowest set bit of the step.
+     */
+    static int getDiscardMask(int step) {
+        return step ^ (step >>> 1);
+    }
+
+    /**
+     * Counts describing the current hand.
+     */
+    private static class State {
+        private final int[] mRankCounts = new int[NUMBER_OF_RANKS];
+        private final int[] mSuitCounts = new int[Card.Suit.values().length];
+
+        /**
+         * Number of rankings present exactly once, twice, three and four
+         * times, indexed by the count.
+         */
+        private final int[] mGroups = new int[Card.Suit.values().length + 1];
+        private int mRankBits;
+        private int mFlushes;
+
+        void reset() {
+            for (int i = 0; i < mRankCounts.length; i++) {
+                mRankCounts[i] = 0;
+            }
+            for (int i = 0; i < mSuitCounts.length; i++) {
+                mSuitCounts[i] = 0;
+            }
+            for (int i = 0; i < mGroups.length; i++) {
+                mGroups[i] = 0;
+            }
+            mRankBits = 0;
+            mFlushes = 0;
+        }
+
+        void add(Card card) {
+            final int rank = card.getValue().ordinal();
+            final int count = mRankCounts[rank]++;
+            mGroups[count]--;
+            mGroups[count + 1]++;
+            mRankBits |= 1 << rank;
+            if (++mSuitCounts[card.getSuit().ordinal()] == Hand.NUMBER_OF_CARDS) {
+                mFlushes++;
+            }
+        }
+
+        void remove(Card card) {
+            final int rank = card.getValue().ordinal();
+            final int count = mRankCounts[rank]--;
+            mGroups[count]--;
+            mGroups[count - 1]++;
+            if (count == 1) {
+                mRankBits &= ~(1 << rank);
+            }
+            if (mSuitCounts[card.getSuit().ordinal()]-- == Hand.NUMBER_OF_CARDS) {
+                mFlushes--;
+            }
+        }
+
+        Value getValue() {
+            final boolean flush = (mFlushes != 0);
+            final boolean straight = sStraights[mRankBits];
+            if (flush && straight) {
+                return Value.STRAIGHT_FLUSH;
+            }
+            if (mGroups[4] != 0) {
+                return Value.FOUR_OF_A_KIND;
+            }
+            if (mGroups[3] != 0 && mGroups[2] != 0) {
+                return Value.FULL_HOUSE;
+            }
+            if (flush) {
+                return Value.FLUSH;
+            }
+            if (straight) {
+                return Value.STRAIGHT;
+            }
+            if (mGroups[3] != 0) {
+                return Value.THREE_OF_A_KIND;
+            }
+            if (mGroups[2] == 2) {
+                return Value.TWO_PAIRS;
+            }
+            if (mGroups[2] == 1) {
+                return Value.ONE_PAIR;
+            }
+            return Value.HIGHEST_CARD;
+        }
+    }
+}
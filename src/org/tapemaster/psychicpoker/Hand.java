@@ -1,10 +1,6 @@
 package org.tapemaster.psychicpoker;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
-
-import org.tapemaster.psychicpoker.Card.Rank;
 
 /**
  * Represents hand of cards.
@@ -12,7 +8,8 @@ import org.tapemaster.psychicpoker.Card.Rank;
 public class Hand implements Comparable<Hand> {
 
     /**
-     * Number of cards in a hand.
+     * Number of cards in the standard hand, hands of more cards are valued
+     * by their best five cards.
      */
     public static final int NUMBER_OF_CARDS = 5;
 
@@ -45,155 +42,105 @@ public class Hand implements Comparable<Hand> {
         }
     }
     
+    /**
+     * Evaluator set by {@link #setEvaluator(HandEvaluator)}, or null for the
+     * default one.
+     */
+    private static volatile HandEvaluator sEvaluator;
+
     private final Card[] mCards;
+    private Value mValue;
+    private int mStrength;
 
     /**
      * Creates new Hand object.
      * 
      * @param cards
-     *            the cards that are in this hand
+     *            the cards that are in this hand, from {@link #NUMBER_OF_CARDS}
+     *            to {@link GameSize#MAX_CARDS}
      */
     public Hand(Card[] cards) {
-        if (cards.length != NUMBER_OF_CARDS) {
-            throw new IllegalArgumentException("Number of cards in hand must be " + NUMBER_OF_CARDS);
+        if (cards.length < NUMBER_OF_CARDS || cards.length > GameSize.MAX_CARDS) {
+            throw new IllegalArgumentException("Number of cards in hand must be from "
+                    + NUMBER_OF_CARDS + " to " + GameSize.MAX_CARDS);
         }
         mCards = cards;
         Arrays.sort(mCards);
     }
 
     /**
-     * Gets value of this hand.
+     * Gets value of this hand using the current evaluator. The value is
+     * calculated once and then cached.
      */
     public Value getValue() {
-        if (isFlush() && isStraight()) {
-            return Value.STRAIGHT_FLUSH;
+        if (mValue == null) {
+            mValue = GameSize.getBestValue(mCards, getEvaluator());
         }
+        return mValue;
+    }
 
-        final List<Rank> pairs = findPairs();
-        final Rank three = findThreeOfaKind();
-
-        if (findFourOfaKind() != null) {
-            return Value.FOUR_OF_A_KIND;
-        }
-        if ((three != null) && (pairs.size() == 1)) {
-            return Value.FULL_HOUSE;
-        }
-        if (isFlush()) {
-            return Value.FLUSH;
-        }
-        if (isStraight()) {
-            return Value.STRAIGHT;
-        }
-        if (three != null) {
-            return Value.THREE_OF_A_KIND;
-        }
-        if (pairs.size() == 2) {
-            return Value.TWO_PAIRS;
-        }
-        if (pairs.size() != 0) {
-            return Value.ONE_PAIR;
+    /**
+     * Gets strength of this hand using the current evaluator, see
+     * {@link HandStrength}. Unlike {@link #compareTo(Hand)}, comparison of
+     * strengths takes kickers into account. The strength is calculated once
+     * and then cached.
+     */
+    public int getStrength() {
+        if (mStrength == 0) {
+            mStrength = GameSize.getBestStrength(mCards, getEvaluator());
         }
-
-        return Value.HIGHEST_CARD;
+        return mStrength;
     }
 
-    private Rank findFourOfaKind() {
-        return findNOfaKind(4);
+    /**
+     * Gets value of this hand using given evaluator.
+     */
+    public Value getValue(HandEvaluator evaluator) {
+        return GameSize.getBestValue(mCards, evaluator);
     }
 
-    private Rank findThreeOfaKind() {
-        return findNOfaKind(3);
+    /**
+     * Gets number of cards in this hand.
+     */
+    public int size() {
+        return mCards.length;
     }
 
     /**
-     * Helper method that looks for number of cards with the same ranking in
-     * this hand. Supposed to be used only with n=3 and n=4, that's why in the
-     * sorted array of cards, mCards[2] will be involved in combination if it is
-     * three or four of a kind.
-     * 
-     * @param n
-     *            the number of cards to look for
-     * @return Rank of the card if found, null if number of cards with this
-     *         ranking is less or more than n
+     * Gets sorted cards of this hand, the array must not be modified.
      */
-    private Rank findNOfaKind(int n) {
-        Rank middle = mCards[2].getValue();
-
-        int foundCardsLikeMiddle = 0;
-        for (int i = 0; i < NUMBER_OF_CARDS; i++) {
-            if (mCards[i].getValue() == middle) {
-                foundCardsLikeMiddle++;
-            }
-        }
-
-        if (foundCardsLikeMiddle == n) {
-            return middle;
-        } else {
-            return null;
-        }
+    Card[] getCards() {
+        return mCards;
     }
 
     /**
-     * Helper method looking for pairs in this hand. 
-     * Skips three and four of a kind.
-     * 
-     * @return List of pairs found
+     * Gets evaluator used by {@link #getValue()}.
      */
-    private List<Rank> findPairs() {
-        List<Rank> result = new ArrayList<Rank>();
-        for (int i = 1; i < NUMBER_OF_CARDS - 1; i++) {
-            final Rank current = mCards[i].getValue();
-            final Rank prev = mCards[i - 1].getValue();
-            final Rank next = mCards[i + 1].getValue();
-            if (current == prev) {
-                if (current != next) { // check for three of a kind
-                    result.add(current);
-                }
-                i++;
-            }
-        }
-
-        final Rank current = mCards[NUMBER_OF_CARDS - 2].getValue();
-        final Rank prev = mCards[NUMBER_OF_CARDS - 3].getValue();
-        final Rank next = mCards[NUMBER_OF_CARDS - 1].getValue();
-        if (current == next) {
-            if (current != prev) {
-                result.add(current);
-            }
-        }
-        return result;
+    public static HandEvaluator getEvaluator() {
+        final HandEvaluator evaluator = sEvaluator;
+        return (evaluator != null) ? evaluator : DefaultEvaluatorHolder.EVALUATOR;
     }
 
-    private boolean isFlush() {
-        for (int i = 1; i < NUMBER_OF_CARDS; i++) {
-            if (mCards[i].getSuit() != mCards[i - 1].getSuit()) {
-                return false;
-            }
-        }
-        return true;
+    /**
+     * Holds the default evaluator, so that its tables are not built when
+     * another evaluator is set at startup.
+     */
+    private static class DefaultEvaluatorHolder {
+        static final HandEvaluator EVALUATOR = new TableHandEvaluator();
     }
 
-    private boolean isStraight() {
-        // check first four cards
-        for (int i = 1; i < NUMBER_OF_CARDS - 1; i++) {
-            if (mCards[i].isNextOf(mCards[i - 1]) == false) {
-                return false;
-            }
-        }
-        
-        final Card last = mCards[NUMBER_OF_CARDS - 1];
-        final Card lastButOne = mCards[NUMBER_OF_CARDS - 2];
-        final Card first = mCards[0];
-
-        if (last.isNextOf(lastButOne)) {
-            return true; //normal straight
-        }
-
-        if ((last.getValue() == Rank.ACE) && (first.getValue() == Rank.TWO)) {
-            return true; // a wheel
+    /**
+     * Sets evaluator used by {@link #getValue()} for all hands.
+     * 
+     * @param evaluator
+     *            the evaluator, {@link TableHandEvaluator} is used by default
+     *            and {@link ReferenceHandEvaluator} is the reference one
+     */
+    public static void setEvaluator(HandEvaluator evaluator) {
+        if (evaluator == null) {
+            throw new IllegalArgumentException("Evaluator must not be null");
         }
-
-        return false;
+        sEvaluator = evaluator;
     }
 
     /**
@@ -203,25 +150,25 @@ public class Hand implements Comparable<Hand> {
      * @param toDiscard
      *            array of integer indices of cards that must be discarded
      * @param deck
-     *            the deck of the cards to take from, the size must be
-     *            {@link NUMBER_OF_CARDS}
+     *            the deck of the cards to take from, it must have at least as
+     *            many cards as there are indices to discard
      * @return new hand with changed cards
-     * @throws IllegalArgumentException
-     *             if deck size is not {@link NUMBER_OF_CARDS} or toDiscard
-     *             indices are not in range from 0 to NUMBER_OF_CARDS-1
+     * @throws IllegalStateException
+     *             if the deck is too small or toDiscard indices are not in
+     *             range from 0 to number of cards in the hand minus one
      */
     public Hand discard(int[] toDiscard, Card[] deck) {
-        if (deck.length != NUMBER_OF_CARDS) {
-            throw new IllegalStateException("Deck size must be " + NUMBER_OF_CARDS);
+        if (toDiscard.length > deck.length) {
+            throw new IllegalStateException("Deck size must be at least " + toDiscard.length);
         }
-        final Card[] newCards = Arrays.copyOf(mCards, NUMBER_OF_CARDS);
+        final Card[] newCards = Arrays.copyOf(mCards, mCards.length);
 
         int deckIndex = 0;
         for (int discardIndex : toDiscard) {
-            if (discardIndex < 0 || discardIndex >= NUMBER_OF_CARDS) {
+            if (discardIndex < 0 || discardIndex >= mCards.length) {
                 throw new IllegalStateException(
                         "Discard indices must be from 0 to "
-                                + (NUMBER_OF_CARDS - 1));
+                                + (mCards.length - 1));
             }
             newCards[discardIndex] = deck[deckIndex];
             deckIndex++;
@@ -230,6 +177,20 @@ public class Hand implements Comparable<Hand> {
         return new Hand(newCards);
     }
 
+    /**
+     * Creates new hand by discarding cards given as bitmask of their indices.
+     * Discarded cards are replaced with cards from the top of the deck in
+     * order of their indices.
+     */
+    Hand discard(int toDiscard, Card[] deck) {
+        final Card[] newCards = Arrays.copyOf(mCards, mCards.length);
+        int deckIndex = 0;
+        for (int bits = toDiscard; bits != 0; bits &= bits - 1) {
+            newCards[Integer.numberOfTrailingZeros(bits)] = deck[deckIndex++];
+        }
+        return new Hand(newCards);
+    }
+
     @Override
     /**
      * Compares by value of hands.
@@ -0,0 +1,27 @@
+package org.tapemaster.psychicpoker;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Calculates value and strength of a hand of cards.
+ */
+public interface HandEvaluator {
+
+    /**
+     * Gets value of the hand made of given cards.
+     * 
+     * @param cards
+     *            {@link Hand#NUMBER_OF_CARDS} cards in any order, the array is
+     *            not modified
+     */
+    Value getValue(Card[] cards);
+
+    /**
+     * Gets strength of the hand made of given cards, see {@link HandStrength}.
+     * 
+     * @param cards
+     *            {@link Hand#NUMBER_OF_CARDS} cards in any order, the array is
+     *            not modified
+     */
+    int getStrength(Card[] cards);
+}
@@ -0,0 +1,169 @@
+package org.tapemaster.psychicpoker;
+
+import java.util.Arrays;
+
+import org.tapemaster.psychicpoker.Card.Rank;
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Strength of a hand is its position among all distinct five-card poker
+ * hands, from 1 for 7-5-4-3-2 of different suits to {@link #MAX_STRENGTH} for
+ * royal flush. Hands of equal strength differ only by suits, so comparison of
+ * strengths takes all kickers into account.
+ */
+public final class HandStrength {
+
+    /**
+     * Number of distinct five-card hands, which is also the strength of the
+     * strongest one.
+     */
+    public static final int MAX_STRENGTH = 7462;
+
+    private static final int NUMBER_OF_RANKS = Rank.values().length;
+    private static final int RANK_BITS = 4;
+
+    /**
+     * Bits of rankings in a wheel: A, 2, 3, 4 and 5.
+     */
+    static final int WHEEL = (1 << Rank.ACE.ordinal()) | 0xF;
+
+    /**
+     * Ordering keys of all distinct hands, sorted.
+     */
+    private static final int[] sKeys = new int[MAX_STRENGTH];
+
+    /**
+     * Values of hands indexed by strength.
+     */
+    private static final Value[] sValues = new Value[MAX_STRENGTH + 1];
+
+    private static int sKeyCount;
+
+    static {
+        fillKeys(new int[NUMBER_OF_RANKS], 0, 0);
+        if (sKeyCount != MAX_STRENGTH) {
+            throw new IllegalStateException("Found " + sKeyCount + " distinct hands");
+        }
+        Arrays.sort(sKeys);
+        for (int strength = 1; strength <= MAX_STRENGTH; strength++) {
+            sValues[strength] = Value.values()[sKeys[strength - 1] >>> (RANK_BITS * 5)];
+        }
+    }
+
+    private HandStrength() {
+    }
+
+    /**
+     * Recursively goes through all multisets of rankings of the hand size and
+     * collects their keys, with flush keys for five different rankings.
+     */
+    private static void fillKeys(int[] counts, int size, int start) {
+        if (size == Hand.NUMBER_OF_CARDS) {
+            sKeys[sKeyCount++] = getKey(counts, false);
+            if (getRankBits(counts) != 0) {
+                sKeys[sKeyCount++] = getKey(counts, true);
+            }
+            return;
+        }
+        for (int rank = start; rank < NUMBER_OF_RANKS; rank++) {
+            if (counts[rank] < Card.Suit.values().length) {
+                counts[rank]++;
+                fillKeys(counts, size + 1, rank);
+                counts[rank]--;
+            }
+        }
+    }
+
+    /**
+     * Gets bits of rankings if all of them are different, 0 otherwise.
+     * 
+     * @param counts
+     *            number of cards of each ranking
+     */
+    static int getRankBits(int[] counts) {
+        int bits = 0;
+        for (int rank = 0; rank < NUMBER_OF_RANKS; rank++) {
+            if (counts[rank] > 1) {
+                return 0;
+            }
+            bits |= counts[rank] << rank;
+        }
+        return bits;
+    }
+
+    /**
+     * Gets ordering key of the hand: its value followed by rankings grouped by
+     * number of cards, larger groups and higher rankings first.
+     * 
+     * @param counts
+     *            number of cards of each ranking
+     * @param flush
+     *            true if all cards are of the same suit, it must be false if
+     *            some rankings repeat
+     */
+    static int getKey(int[] counts, boolean flush) {
+        final int bits = getRankBits(counts);
+        final boolean straight = (bits == WHEEL)
+                || (bits != 0 && bits == (0x1F << Integer.numberOfTrailingZeros(bits)));
+
+        int key = 0;
+        int groups = 0;
+        int maxCount = 0;
+        for (int count = 4; count > 0; count--) {
+            for (int rank = NUMBER_OF_RANKS - 1; rank >= 0; rank--) {
+                if (counts[rank] == count) {
+                    key = (key << RANK_BITS) | rank;
+                    groups++;
+                    maxCount = Math.max(maxCount, count);
+                }
+            }
+        }
+        key <<= RANK_BITS * (Hand.NUMBER_OF_CARDS - groups);
+        if (bits == WHEEL) {
+            key = Rank.FIVE.ordinal() << (RANK_BITS * 4);
+        }
+
+        final Value value;
+        if (straight) {
+            value = flush ? Value.STRAIGHT_FLUSH : Value.STRAIGHT;
+        } else if (flush) {
+            value = Value.FLUSH;
+        } else if (maxCount == 4) {
+            value = Value.FOUR_OF_A_KIND;
+        } else if (maxCount == 3) {
+            value = (groups == 2) ? Value.FULL_HOUSE : Value.THREE_OF_A_KIND;
+        } else if (maxCount == 2) {
+            value = (groups == 3) ? Value.TWO_PAIRS : Value.ONE_PAIR;
+        } else {
+            value = Value.HIGHEST_CARD;
+        }
+        return (value.ordinal() << (RANK_BITS * 5)) | key;
+    }
+
+    /**
+     * Gets strength of the hand by its ordering key.
+     * 
+     * @param key
+     *            key returned by {@link #getKey(int[], boolean)}
+     */
+    static int getStrength(int key) {
+        final int index = Arrays.binarySearch(sKeys, key);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown hand key " + Integer.toHexString(key));
+        }
+        return index + 1;
+    }
+
+    /**
+     * Gets value of the hand by its strength.
+     * 
+     * @throws IllegalArgumentException
+     *             if strength is not in range from 1 to MAX_STRENGTH
+     */
+    public static Value getValue(int strength) {
+        if (strength < 1 || strength > MAX_STRENGTH) {
+            throw new IllegalArgumentException("Strength must be from 1 to " + MAX_STRENGTH);
+        }
+        return sValues[strength];
+    }
+}
@@ -0,0 +1,201 @@
+package org.tapemaster.psychicpoker;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Validates lines of games and parses their cards without throwing
+ * exceptions. Problems are reported as error codes, so that dirty input with
+ * many bad lines costs no more than clean input: no exception, stack trace or
+ * message is created for a rejected line.
+ * <p>
+ * Cards are checked in order of the line, the first problem found is
+ * reported. A line may have trailing whitespace.
+ */
+public final class LineValidator {
+
+    /**
+     * The line is valid.
+     */
+    public static final int VALID = 0;
+
+    /**
+     * The line is too short or has something after the last card.
+     */
+    public static final int WRONG_LENGTH = 1;
+
+    /**
+     * A card has unknown rank caption.
+     */
+    public static final int BAD_RANK = 2;
+
+    /**
+     * A card has unknown suit caption.
+     */
+    public static final int BAD_SUIT = 3;
+
+    /**
+     * A card occurs more than once in the hand and the deck.
+     */
+    public static final int DUPLICATE_CARD = 4;
+
+    /**
+     * Two cards are not separated with a single space.
+     */
+    public static final int BAD_SEPARATOR = 5;
+
+    /**
+     * Number of codes, valid one included.
+     */
+    static final int NUMBER_OF_CODES = BAD_SEPARATOR + 1;
+
+    /**
+     * Names of errors indexed by code, as written to quarantine.
+     */
+    private static final String[] NAMES = { "valid", "wrong-length", "bad-rank", "bad-suit",
+            "duplicate-card", "bad-separator" };
+
+    private static final String[] MESSAGES = { "Line is valid", "Line has wrong length",
+            "Card has unknown rank", "Card has unknown suit", "Card occurs more than once",
+            "Cards are not separated with space" };
+
+    /**
+     * Length of one card in input line, including the separator.
+     */
+    private static final int CARD_INPUT_LENGTH = Card.CAPTION_LENGTH + 1;
+
+    private final int mHandSize;
+    private final int mDeckSize;
+    private final int mLineLength;
+
+    /**
+     * Creates validator of lines of games of given size.
+     */
+    public LineValidator(GameSize size) {
+        mHandSize = size.getHandSize();
+        mDeckSize = size.getDeckSize();
+        // the last card of the hand or of a non-empty deck has no separator
+        mLineLength = CARD_INPUT_LENGTH * (mHandSize + mDeckSize) - 1;
+    }
+
+    /**
+     * Validates the line of the buffer and parses its cards.
+     * 
+     * @param line
+     *            buffer with ASCII bytes of the line, its position is not
+     *            changed
+     * @param start
+     *            position of the first byte of the line
+     * @param end
+     *            position after the last byte of the line
+     * @param hand
+     *            array to fill with cards of the hand
+     * @param deck
+     *            array to fill with cards of the deck
+     * @return {@link #VALID} or error code, cards are undefined on error
+     */
+    public int validate(ByteBuffer line, int start, int end, Card[] hand, Card[] deck) {
+        if (end - start < mLineLength) {
+            return WRONG_LENGTH;
+        }
+        for (int i = start + mLineLength; i < end; i++) {
+            if ((line.get(i) & 0xFF) > ' ') {
+                return WRONG_LENGTH;
+            }
+        }
+        long seen = 0;
+        for (int i = 0; i < mHandSize + mDeckSize; i++) {
+            final int pos = start + i * CARD_INPUT_LENGTH;
+            if (i > 0 && line.get(pos - 1) != ' ') {
+                return BAD_SEPARATOR;
+            }
+            final Card card = Card.find((char) (line.get(pos) & 0xFF),
+                    (char) (line.get(pos + 1) & 0xFF));
+            if (card == null) {
+                return Card.Rank.getByCaption((char) (line.get(pos) & 0xFF)) == null
+                        ? BAD_RANK : BAD_SUIT;
+            }
+            final long bit = 1L << card.getIndex();
+            if ((seen & bit) != 0) {
+                return DUPLICATE_CARD;
+            }
+            seen |= bit;
+            put(card, i, hand, deck);
+        }
+        return VALID;
+    }
+
+    /**
+     * Validates the line of characters and parses its cards.
+     * 
+     * @return {@link #VALID} or error code, cards are undefined on error
+     * @see #validate(ByteBuffer, int, int, Card[], Card[])
+     */
+    public int validate(CharSequence line, Card[] hand, Card[] deck) {
+        if (line.length() < mLineLength) {
+            return WRONG_LENGTH;
+        }
+        for (int i = mLineLength; i < line.length(); i++) {
+            if (line.charAt(i) > ' ') {
+                return WRONG_LENGTH;
+            }
+        }
+        long seen = 0;
+        for (int i = 0; i < mHandSize + mDeckSize; i++) {
+            final int pos = i * CARD_INPUT_LENGTH;
+            if (i > 0 && line.charAt(pos - 1) != ' ') {
+                return BAD_SEPARATOR;
+            }
+            final Card card = Card.find(line.charAt(pos), line.charAt(pos + 1));
+            if (card == null) {
+                return Card.Rank.getByCaption(line.charAt(pos)) == null ? BAD_RANK : BAD_SUIT;
+            }
+            final long bit = 1L << card.getIndex();
+            if ((seen & bit) != 0) {
+                return DUPLICATE_CARD;
+            }
+            seen |= bit;
+            put(card, i, hand, deck);
+        }
+        return VALID;
+    }
+
+    /**
+     * Checks that no card occurs twice in the hand and the deck.
+     * 
+     * @return {@link #VALID} or {@link #DUPLICATE_CARD}
+     */
+    public static int validate(Card[] hand, Card[] deck) {
+        long seen = 0;
+        for (int i = 0; i < hand.length + deck.length; i++) {
+            final long bit = 1L << ((i < hand.length) ? hand[i] : deck[i - hand.length])
+                    .getIndex();
+            if ((seen & bit) != 0) {
+                return DUPLICATE_CARD;
+            }
+            seen |= bit;
+        }
+        return VALID;
+    }
+
+    /**
+     * Gets short name of the error, such as "bad-suit".
+     */
+    public static String getName(int error) {
+        return NAMES[error];
+    }
+
+    /**
+     * Gets message describing the error.
+     */
+    public static String getMessage(int error) {
+        return MESSAGES[error];
+    }
+
+    private void put(Card card, int index, Card[] hand, Card[] deck) {
+        if (index < mHandSize) {
+            hand[index] = card;
+        } else {
+            deck[index - mHandSize] = card;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Evaluator reading values of hands from a file holding the value of every
+ * possible hand, one byte each. The file is generated once and then
+ * memory-mapped, so a new process gets a ready evaluator without building any
+ * tables.
+ * <p>
+ * A hand is located by its index in the combinatorial number system: with
+ * card indices sorted as c0 &lt; c1 &lt; ... &lt; c4, the index is C(c0, 1) +
+ * C(c1, 2) + ... + C(c4, 5). Strength of a hand is not stored in the file, it
+ * is calculated by {@link TableHandEvaluator} when first needed.
+ * <p>
+ * The values follow a header of {@link #HEADER_SIZE} bytes: the magic number
+ * {@link #MAGIC}, the format version and CRC32 of the values, all big-endian.
+ * The checksum is verified when the file is loaded, so a damaged or foreign
+ * file is rejected instead of giving wrong values.
+ */
+public class MappedHandEvaluator implements HandEvaluator {
+
+    /**
+     * Number of possible hands, one byte of the file for each.
+     */
+    public static final int NUMBER_OF_HANDS = 2598960;
+
+    /**
+     * Magic number the file starts with, "PPHV" in ASCII.
+     */
+    public static final int MAGIC = 0x50504856;
+
+    /**
+     * Version of the file format, a file of an older version is generated
+     * again.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the header before the values.
+     */
+    public static final int HEADER_SIZE = 16;
+
+    /**
+     * Default location of the file.
+     */
+    public static final String DEFAULT_FILE = "res/categories.bin";
+
+    /**
+     * Binomial coefficients C(n, k) for n up to number of cards and k up to
+     * number of cards in a hand.
+     */
+    private static final int[][] sBinomials = new int[Hand.NUMBER_OF_CARDS + 1][Card.NUMBER_OF_CARDS];
+
+    private static final Value[] sValues = Value.values();
+
+    static {
+        for (int n = 0; n < Card.NUMBER_OF_CARDS; n++) {
+            sBinomials[0][n] = 1;
+            for (int k = 1; k <= Hand.NUMBER_OF_CARDS; k++) {
+                sBinomials[k][n] = (n == 0) ? 0 : sBinomials[k][n - 1] + sBinomials[k - 1][n - 1];
+            }
+        }
+    }
+
+    private final MappedByteBuffer mTable;
+
+    private MappedHandEvaluator(MappedByteBuffer table) {
+        mTable = table;
+    }
+
+    /**
+     * Maps the file with values of hands, generating it first if it doesn't
+     * exist or has an older version. Any other file is left untouched.
+     * 
+     * @throws IOException
+     *             if the file can't be generated or mapped, isn't a file of
+     *             hand values of this version or its checksum doesn't match
+     */
+    public static MappedHandEvaluator load(File file) throws IOException {
+        if (!file.exists()) {
+            generate(file);
+        }
+        ByteBuffer header = readHeader(file);
+        if (header == null || header.getInt(0) != MAGIC) {
+            throw new IOException("File " + file + " is not a table of hand values");
+        }
+        if (header.getInt(4) < VERSION) {
+            generate(file);
+            header = readHeader(file);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("File " + file + " has unknown version " + header.getInt(4));
+        }
+        if (file.length() != HEADER_SIZE + NUMBER_OF_HANDS) {
+            throw new IOException("File " + file + " has wrong size " + file.length());
+        }
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            final MappedByteBuffer table = input.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE, NUMBER_OF_HANDS);
+            final CRC32 checksum = new CRC32();
+            checksum.update(table.duplicate());
+            if (checksum.getValue() != header.getLong(8)) {
+                throw new IOException("Checksum of hand values in " + file + " doesn't match");
+            }
+            return new MappedHandEvaluator(table);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Reads header of the file.
+     * 
+     * @return the header or null if the file is shorter
+     */
+    private static ByteBuffer readHeader(File file) throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            if (input.length() < HEADER_SIZE) {
+                return null;
+            }
+            final byte[] header = new byte[HEADER_SIZE];
+            input.readFully(header);
+            return ByteBuffer.wrap(header);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Writes values of all hands to the file. The file is written under a
+     * temporary name and then renamed, so a concurrent reader never sees a
+     * partially written file.
+     * 
+     * @throws IOException
+     *             if the file can't be written
+     */
+    public static void generate(File file) throws IOException {
+        final File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory " + directory);
+        }
+        final File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+        final byte[] table = new byte[NUMBER_OF_HANDS];
+        final HandEvaluator evaluator = new TableHandEvaluator();
+        final Card[] cards = new Card[Hand.NUMBER_OF_CARDS];
+        fillTable(table, evaluator, cards, 0, 0);
+
+        final CRC32 checksum = new CRC32();
+        checksum.update(table);
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(temporary)));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(checksum.getValue());
+            output.write(table);
+        } finally {
+            output.close();
+        }
+        if (!temporary.renameTo(file)) {
+            file.delete();
+            if (!temporary.renameTo(file)) {
+                temporary.delete();
+                throw new IOException("Can't rename " + temporary + " to " + file);
+            }
+        }
+    }
+
+    /**
+     * Recursively goes through all hands and puts their values into the table.
+     * 
+     * @param count
+     *            number of cards chosen so far
+     * @param start
+     *            the lowest card index that may be chosen
+     */
+    private static void fillTable(byte[] table, HandEvaluator evaluator, Card[] cards, int count,
+            int start) {
+        if (count == Hand.NUMBER_OF_CARDS) {
+            table[getIndex(cards[0].getIndex(), cards[1].getIndex(), cards[2].getIndex(),
+                    cards[3].getIndex(), cards[4].getIndex())] =
+                    (byte) evaluator.getValue(cards).ordinal();
+            return;
+        }
+        for (int i = start; i < Card.NUMBER_OF_CARDS; i++) {
+            cards[count] = Card.of(i);
+            fillTable(table, evaluator, cards, count + 1, i + 1);
+        }
+    }
+
+    /**
+     * Gets index of the hand by indices of its cards in increasing order.
+     */
+    private static int getIndex(int c0, int c1, int c2, int c3, int c4) {
+        return sBinomials[1][c0] + sBinomials[2][c1] + sBinomials[3][c2] + sBinomials[4][c3]
+                + sBinomials[5][c4];
+    }
+
+    @Override
+    public Value getValue(Card[] cards) {
+        int c0 = cards[0].getIndex();
+        int c1 = cards[1].getIndex();
+        int c2 = cards[2].getIndex();
+        int c3 = cards[3].getIndex();
+        int c4 = cards[4].getIndex();
+        int t;
+
+        // sorting network for five elements
+        if (c0 > c1) { t = c0; c0 = c1; c1 = t; }
+        if (c3 > c4) { t = c3; c3 = c4; c4 = t; }
+        if (c2 > c4) { t = c2; c2 = c4; c4 = t; }
+        if (c2 > c3) { t = c2; c2 = c3; c3 = t; }
+        if (c1 > c4) { t = c1; c1 = c4; c4 = t; }
+        if (c0 > c3) { t = c0; c0 = c3; c3 = t; }
+        if (c0 > c2) { t = c0; c0 = c2; c2 = t; }
+        if (c1 > c3) { t = c1; c1 = c3; c3 = t; }
+        if (c1 > c2) { t = c1; c1 = c2; c2 = t; }
+
+        return sValues[mTable.get(getIndex(c0, c1, c2, c3, c4))];
+    }
+
+    @Override
+    public int getStrength(Card[] cards) {
+        return StrengthEvaluatorHolder.EVALUATOR.getStrength(cards);
+    }
+
+    /**
+     * Holds evaluator of strengths, so that its tables are built only when
+     * strength is needed and not at startup.
+     */
+    private static class StrengthEvaluatorHolder {
+        static final HandEvaluator EVALUATOR = new TableHandEvaluator();
+    }
+
+    /**
+     * Generates the file with values of all hands.
+     * 
+     * @param args
+     *            optional name of the file, {@link #DEFAULT_FILE} by default
+     */
+    public static void main(String[] args) throws IOException {
+        final File file = new File(args.length > 0 ? args[0] : DEFAULT_FILE);
+        generate(file);
+        System.out.println("Written " + NUMBER_OF_HANDS + " hand values to " + file);
+    }
+}
@@ -0,0 +1,185 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads lines of a file by mapping it into memory in large windows and
+ * looking for line boundaries in raw bytes, so that no characters are decoded
+ * and no Strings are created.
+ */
+public class MappedLineReader {
+
+    /**
+     * Default size of the window mapped at once.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Receives lines found by the reader.
+     */
+    public interface LineHandler {
+
+        /**
+         * Called for each line of the input, without line terminator.
+         * 
+         * @param buffer
+         *            mapped window containing the line, valid only during the
+         *            call
+         * @param start
+         *            position of the first byte of the line in buffer
+         * @param end
+         *            position after the last byte of the line in buffer
+         */
+        void onLine(ByteBuffer buffer, int start, int end);
+    }
+
+    private final FileChannel mChannel;
+    private final long mStart;
+    private final long mEnd;
+    private final int mWindowSize;
+
+    /**
+     * Creates reader of the whole file.
+     */
+    public MappedLineReader(FileChannel channel) throws IOException {
+        this(channel, 0, channel.size(), DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Creates reader of the part of the file.
+     * 
+     * @param channel
+     *            the file to read
+     * @param start
+     *            position of the first line to read
+     * @param end
+     *            position after the last line to read
+     * @param windowSize
+     *            size of the window mapped at once, must be larger than the
+     *            longest line
+     */
+    public MappedLineReader(FileChannel channel, long start, long end, int windowSize) {
+        if (start < 0 || start > end) {
+            throw new IllegalArgumentException("Wrong range to read: " + start + "-" + end);
+        }
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive");
+        }
+        mChannel = channel;
+        mStart = start;
+        mEnd = end;
+        mWindowSize = windowSize;
+    }
+
+    /**
+     * Reads all lines, passing each of them to the handler. Lines are
+     * terminated with '\n', a preceding '\r' is dropped, the last line may have
+     * no terminator.
+     * 
+     * @throws IOException
+     *             if the file can't be mapped or a line is longer than window
+     */
+    public void read(LineHandler handler) throws IOException {
+        long windowStart = mStart;
+        while (windowStart < mEnd) {
+            final int size = (int) Math.min(mWindowSize, mEnd - windowStart);
+            final boolean lastWindow = (windowStart + size == mEnd);
+            final MappedByteBuffer buffer = mChannel.map(FileChannel.MapMode.READ_ONLY,
+                    windowStart, size);
+
+            int lineStart = 0;
+            for (int i = 0; i < size; i++) {
+                if (buffer.get(i) == '\n') {
+                    handleLine(handler, buffer, lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            if (lastWindow) {
+                if (lineStart < size) {
+                    handleLine(handler, buffer, lineStart, size);
+                }
+                lineStart = size;
+            } else if (lineStart == 0) {
+                throw new IOException("Line at position " + windowStart
+                        + " is longer than " + mWindowSize + " bytes");
+            }
+            windowStart += lineStart;
+        }
+    }
+
+    /**
+     * Finds start of the first line at or after given position, that is the
+     * position itself if it is 0 or follows '\n', or the position after the
+     * next '\n'.
+     * 
+     * @return position of the line start, or size of the file if there are no
+     *         more lines
+     */
+    public static long findLineStart(FileChannel channel, long position) throws IOException {
+        final long size = channel.size();
+        if (position <= 0) {
+            return 0;
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long current = position - 1;
+        while (current < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, current);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return current + i + 1;
+                }
+            }
+            current += read;
+        }
+        return size;
+    }
+
+    /**
+     * Finds end of the last complete line in the part of the file, that is the
+     * position after the last '\n' in it.
+     * 
+     * @param start
+     *            position of the first line
+     * @param end
+     *            position to look for the last '\n' before
+     * @return position after the last '\n', or start if the part has no
+     *         complete line
+     */
+    public static long findLineEnd(FileChannel channel, long start, long end)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long current = end;
+        while (current > start) {
+            final int length = (int) Math.min(buffer.capacity(), current - start);
+            buffer.clear().limit(length);
+            final long position = current - length;
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("File is shorter than " + end + " bytes");
+                }
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            current = position;
+        }
+        return start;
+    }
+
+    private static void handleLine(LineHandler handler, ByteBuffer buffer, int start,
+            int end) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        handler.onLine(buffer, start, end);
+    }
+}
@@ -0,0 +1,489 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.PrintStream;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line options of {@link PsychicPoker}. The mode is chosen by its
+ * option, such as --serve, and is solving the source file without one. Modes
+ * accepting each option and options that can't be used together are given
+ * by tables, which are also printed as the usage, so the usage lists exactly
+ * what is accepted.
+ */
+final class Options {
+
+    /**
+     * Modes of running, with their option and required arguments.
+     */
+    enum Mode {
+        SOLVE(null, "source_file", true, false),
+        CONNECT("--connect", "port_or_socket source_file", true, false),
+        SERVE("--serve", "port_or_socket", false, false),
+        WATCH("--watch", "spool_dir --output result_dir", false, true),
+        SHARDS("--shards", "N source_file", true, false),
+        WORKER("--range", "start end --output result_file source_file", true, true);
+
+        private final String mOption;
+        private final String mArguments;
+        private final boolean mSourceFile;
+        private final boolean mOutputRequired;
+
+        private Mode(String option, String arguments, boolean sourceFile,
+                boolean outputRequired) {
+            mOption = option;
+            mArguments = arguments;
+            mSourceFile = sourceFile;
+            mOutputRequired = outputRequired;
+        }
+
+        @Override
+        public String toString() {
+            return name().toLowerCase() + " mode";
+        }
+    }
+
+    /**
+     * Options with their argument and the modes accepting them.
+     */
+    enum Option {
+        /**
+         * The file is memory-mapped and parsed as raw bytes.
+         */
+        MMAP("--mmap", Mode.SOLVE),
+
+        /**
+         * Chunks of the file, or files of the spool directory, are solved by
+         * given number of threads.
+         */
+        THREADS("--threads", "N", 1, Integer.MAX_VALUE, Mode.SOLVE, Mode.WATCH),
+
+        /**
+         * Results of up to given number of distinct games are cached.
+         */
+        CACHE("--cache", "N", GameCache.DEFAULT_STRIPES, Integer.MAX_VALUE, Mode.SOLVE,
+                Mode.SERVE, Mode.WATCH, Mode.SHARDS, Mode.WORKER),
+
+        /**
+         * Games are solved by {@link PrunedSearch}.
+         */
+        PRUNED("--pruned", Mode.SOLVE, Mode.SERVE, Mode.WATCH, Mode.SHARDS, Mode.WORKER),
+
+        /**
+         * Games are solved by {@link GrayCodeSearch}.
+         */
+        GRAY("--gray", Mode.SOLVE, Mode.SERVE, Mode.WATCH, Mode.SHARDS, Mode.WORKER),
+
+        /**
+         * Games are solved with the Vector API, see {@link VectorSupport}.
+         */
+        VECTOR("--vector", Mode.SOLVE, Mode.SERVE, Mode.WATCH, Mode.SHARDS, Mode.WORKER),
+
+        /**
+         * Number of cards of the hand.
+         */
+        HAND_SIZE("--hand-size", "N", Hand.NUMBER_OF_CARDS, GameSize.MAX_CARDS, Mode.SOLVE,
+                Mode.SERVE, Mode.WATCH, Mode.SHARDS, Mode.WORKER),
+
+        /**
+         * Number of cards of the deck.
+         */
+        DECK_SIZE("--deck-size", "N", 0, GameSize.MAX_CARDS, Mode.SOLVE, Mode.SERVE,
+                Mode.WATCH, Mode.SHARDS, Mode.WORKER),
+
+        /**
+         * Values of hands are read from the mapped table file, which is
+         * generated if it doesn't exist.
+         */
+        TABLE("--table", "table_file", Mode.SOLVE, Mode.SERVE, Mode.WATCH, Mode.SHARDS,
+                Mode.WORKER),
+
+        /**
+         * Results are written to the file instead of standard output.
+         */
+        OUTPUT("--output", "result_file", Mode.SOLVE, Mode.CONNECT, Mode.WATCH, Mode.SHARDS,
+                Mode.WORKER),
+
+        /**
+         * Rejected lines are written to the file, see {@link Quarantine}.
+         */
+        QUARANTINE("--quarantine", "quarantine_file", Mode.SOLVE),
+
+        /**
+         * The file holds games in binary format, see {@link BinaryGames}.
+         */
+        BINARY_INPUT("--binary-input", Mode.SOLVE),
+
+        /**
+         * Results are written in binary format, see {@link BinaryGames}.
+         */
+        BINARY_OUTPUT("--binary-output", Mode.SOLVE, Mode.SHARDS, Mode.WORKER),
+
+        /**
+         * The fewest cards to discard are written after the best hand.
+         */
+        DISCARDS("--discards", Mode.SOLVE, Mode.WATCH, Mode.SHARDS, Mode.WORKER),
+
+        /**
+         * Counts of games are written at the end instead of results, see
+         * {@link Summary}.
+         */
+        SUMMARY("--summary", Mode.SOLVE, Mode.SHARDS, Mode.WORKER),
+
+        /**
+         * Statistics are printed at the end, see {@link Statistics}.
+         */
+        STATS("--stats", Mode.SOLVE, Mode.SERVE, Mode.WATCH, Mode.WORKER),
+
+        /**
+         * Statistics are also printed every given number of seconds.
+         */
+        STATS_INTERVAL("--stats-interval", "seconds", 1, Integer.MAX_VALUE, Mode.SOLVE,
+                Mode.SERVE, Mode.WATCH, Mode.WORKER),
+
+        /**
+         * Lines slower than given number of microseconds are reported as JFR
+         * events, with statistics.
+         */
+        SLOW_LINE("--slow-line", "micros", 1, Integer.MAX_VALUE, Mode.SOLVE, Mode.SERVE,
+                Mode.WATCH, Mode.WORKER),
+
+        CONNECT("--connect", "port_or_socket", Mode.CONNECT),
+        SERVE("--serve", "port_or_socket", Mode.SERVE),
+        WATCH("--watch", "spool_dir", Mode.WATCH),
+        SHARDS("--shards", "N", 1, Integer.MAX_VALUE, Mode.SHARDS),
+        RANGE("--range", "start end", Mode.WORKER);
+
+        private final String mName;
+        private final String mArgument;
+        private final int mMin;
+        private final int mMax;
+        private final Set<Mode> mModes;
+
+        private Option(String name, Mode... modes) {
+            this(name, null, modes);
+        }
+
+        private Option(String name, String argument, Mode... modes) {
+            this(name, argument, 0, -1, modes);
+        }
+
+        private Option(String name, String argument, int min, int max, Mode... modes) {
+            mName = name;
+            mArgument = argument;
+            mMin = min;
+            mMax = max;
+            mModes = EnumSet.copyOf(Arrays.asList(modes));
+        }
+
+        /**
+         * Gets option of given name, or null if there is none.
+         */
+        static Option of(String name) {
+            for (Option option : values()) {
+                if (option.mName.equals(name)) {
+                    return option;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return mName;
+        }
+    }
+
+    /**
+     * Options choosing the solver, at most one of them is given.
+     */
+    private static final Option[] SOLVERS = { Option.PRUNED, Option.GRAY, Option.VECTOR };
+
+    /**
+     * Options that can't be used together: the first option of a row with
+     * any of the others.
+     */
+    private static final Option[][] CONFLICTS = {
+            { Option.DISCARDS, Option.PRUNED, Option.GRAY, Option.VECTOR, Option.CACHE,
+                    Option.BINARY_OUTPUT },
+            { Option.SUMMARY, Option.PRUNED, Option.GRAY, Option.VECTOR, Option.CACHE,
+                    Option.DISCARDS, Option.BINARY_OUTPUT },
+            { Option.QUARANTINE, Option.BINARY_INPUT } };
+
+    /**
+     * Options needing games of {@link GameSize#STANDARD} size.
+     */
+    private static final Option[] STANDARD_SIZE = { Option.PRUNED, Option.GRAY,
+            Option.VECTOR, Option.BINARY_INPUT };
+
+    /**
+     * Options that can't be used when binary input is solved with threads by
+     * {@link Game#solveBatch}, which also needs binary output.
+     */
+    private static final Option[] BATCH_CONFLICTS = { Option.PRUNED, Option.GRAY,
+            Option.VECTOR, Option.CACHE, Option.STATS, Option.STATS_INTERVAL,
+            Option.SLOW_LINE };
+
+    private final Map<Option, String[]> mValues = new EnumMap<Option, String[]>(Option.class);
+    private Mode mMode = Mode.SOLVE;
+    private String mFileName;
+
+    private Options() {
+    }
+
+    /**
+     * Parses command line arguments.
+     * 
+     * @throws IllegalArgumentException
+     *             if arguments are wrong, with the reason as message
+     */
+    static Options parse(String[] args) {
+        final Options options = new Options();
+        for (int i = 0; i < args.length; i++) {
+            final Option option = Option.of(args[i]);
+            if (option == null) {
+                if (args[i].startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+                if (options.mFileName != null) {
+                    throw new IllegalArgumentException("More than one source file");
+                }
+                options.mFileName = args[i];
+                continue;
+            }
+            final int count = (option == Option.RANGE) ? 2 : (option.mArgument != null) ? 1 : 0;
+            if (i + count >= args.length) {
+                throw new IllegalArgumentException(option + " needs " + option.mArgument);
+            }
+            final String[] values = Arrays.copyOfRange(args, i + 1, i + 1 + count);
+            i += count;
+            checkValues(option, values);
+            options.mValues.put(option, values);
+            for (Mode mode : Mode.values()) {
+                if (option.mName.equals(mode.mOption) && options.mMode == Mode.SOLVE) {
+                    options.mMode = mode;
+                }
+            }
+        }
+        options.validate();
+        return options;
+    }
+
+    private static void checkValues(Option option, String[] values) {
+        final boolean valid;
+        if (option.mMin <= option.mMax) {
+            final long number = parseNumber(values[0]);
+            valid = (number >= option.mMin && number <= option.mMax);
+        } else if (option == Option.CONNECT || option == Option.SERVE) {
+            valid = (parseAddress(values[0]) != null);
+        } else if (option == Option.RANGE) {
+            final long start = parseNumber(values[0]);
+            valid = (start >= 0 && parseNumber(values[1]) >= start);
+        } else {
+            valid = true;
+        }
+        if (!valid) {
+            throw new IllegalArgumentException("Wrong " + option + " " + option.mArgument + ": "
+                    + String.join(" ", values));
+        }
+    }
+
+    /**
+     * Checks options given against the tables.
+     */
+    private void validate() {
+        for (Option option : mValues.keySet()) {
+            if (!option.mModes.contains(mMode)) {
+                throw new IllegalArgumentException(option + " is not accepted in " + mMode);
+            }
+        }
+        if (mMode.mSourceFile != (mFileName != null)) {
+            throw new IllegalArgumentException(mMode.mSourceFile ? "Source file is missing"
+                    : "Source file is not accepted in " + mMode);
+        }
+        if (mMode.mOutputRequired && !has(Option.OUTPUT)) {
+            throw new IllegalArgumentException(Option.OUTPUT + " is required in " + mMode);
+        }
+        Option solver = null;
+        for (Option option : SOLVERS) {
+            if (has(option) && solver != null) {
+                throw new IllegalArgumentException(option + " can't be used with " + solver);
+            }
+            solver = has(option) ? option : solver;
+        }
+        for (Option[] row : CONFLICTS) {
+            for (int i = 1; i < row.length; i++) {
+                if (has(row[0]) && has(row[i])) {
+                    throw new IllegalArgumentException(row[0] + " can't be used with " + row[i]);
+                }
+            }
+        }
+        for (Option option : STANDARD_SIZE) {
+            if (has(option) && !getGameSize().isStandard()) {
+                throw new IllegalArgumentException(option + " needs the standard game size");
+            }
+        }
+        if (has(Option.BINARY_INPUT) && has(Option.THREADS)) {
+            if (!has(Option.BINARY_OUTPUT)) {
+                throw new IllegalArgumentException(Option.BINARY_INPUT + " with "
+                        + Option.THREADS + " needs " + Option.BINARY_OUTPUT);
+            }
+            for (Option option : BATCH_CONFLICTS) {
+                if (has(option)) {
+                    throw new IllegalArgumentException(Option.BINARY_INPUT + " with "
+                            + Option.THREADS + " can't be used with " + option);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints usage of every mode and the options that can't be used together.
+     */
+    static void printUsage(PrintStream out) {
+        for (Mode mode : Mode.values()) {
+            final StringBuilder line = new StringBuilder((mode == Mode.SOLVE) ? "Usage: "
+                    : "       ").append("java PsychicPoker");
+            for (Option option : Option.values()) {
+                if (!option.mModes.contains(mode) || option.mName.equals(mode.mOption)
+                        || option == Option.OUTPUT && mode.mOutputRequired
+                        || option == Option.GRAY || option == Option.VECTOR) {
+                    continue;
+                }
+                if (option == Option.PRUNED) {
+                    line.append(" [").append(join(SOLVERS, " | ")).append(']');
+                } else if (option.mArgument != null) {
+                    line.append(" [").append(option).append(' ').append(option.mArgument)
+                            .append(']');
+                } else {
+                    line.append(" [").append(option).append(']');
+                }
+            }
+            if (mode.mOption != null) {
+                line.append(' ').append(mode.mOption);
+            }
+            out.println(line.append(' ').append(mode.mArguments));
+        }
+        for (Option[] row : CONFLICTS) {
+            out.println(row[0] + " can't be used with "
+                    + join(Arrays.copyOfRange(row, 1, row.length), ", "));
+        }
+        out.println(join(STANDARD_SIZE, ", ") + " need the standard game size");
+        out.println(Option.BINARY_INPUT + " with " + Option.THREADS + " needs "
+                + Option.BINARY_OUTPUT + " and can't be used with " + join(BATCH_CONFLICTS, ", "));
+    }
+
+    private static String join(Option[] options, String separator) {
+        final StringBuilder result = new StringBuilder();
+        for (Option option : options) {
+            result.append((result.length() > 0) ? separator : "").append(option);
+        }
+        return result.toString();
+    }
+
+    Mode getMode() {
+        return mMode;
+    }
+
+    boolean has(Option option) {
+        return mValues.containsKey(option);
+    }
+
+    /**
+     * Gets value of a number option, or the default if it is not given.
+     */
+    int getNumber(Option option, int defaultValue) {
+        return has(option) ? Integer.parseInt(mValues.get(option)[0]) : defaultValue;
+    }
+
+    /**
+     * Gets argument of an option, or null if it is not given.
+     */
+    String getText(Option option) {
+        return has(option) ? mValues.get(option)[0] : null;
+    }
+
+    /**
+     * Gets address to serve at or to connect to, or null in other modes.
+     */
+    SocketAddress getAddress() {
+        final String address = has(Option.SERVE) ? getText(Option.SERVE)
+                : getText(Option.CONNECT);
+        return (address != null) ? parseAddress(address) : null;
+    }
+
+    long getRangeStart() {
+        return Long.parseLong(mValues.get(Option.RANGE)[0]);
+    }
+
+    long getRangeEnd() {
+        return Long.parseLong(mValues.get(Option.RANGE)[1]);
+    }
+
+    String getFileName() {
+        return mFileName;
+    }
+
+    GameSize getGameSize() {
+        return GameSize.of(getNumber(Option.HAND_SIZE, Hand.NUMBER_OF_CARDS),
+                getNumber(Option.DECK_SIZE, Hand.NUMBER_OF_CARDS));
+    }
+
+    /**
+     * Whether statistics are recorded, which any of the statistics options
+     * turns on.
+     */
+    boolean hasStatistics() {
+        return has(Option.STATS) || has(Option.STATS_INTERVAL) || has(Option.SLOW_LINE);
+    }
+
+    /**
+     * Gets options given that are passed on to workers of shards, which are
+     * those accepted by both modes except the output and the summary, given
+     * to every worker by {@link ShardedRunner}.
+     */
+    List<String> getWorkerArguments() {
+        final List<String> arguments = new ArrayList<String>();
+        for (Map.Entry<Option, String[]> entry : mValues.entrySet()) {
+            final Option option = entry.getKey();
+            if (option.mModes.contains(Mode.SHARDS) && option.mModes.contains(Mode.WORKER)
+                    && option != Option.OUTPUT && option != Option.SUMMARY) {
+                arguments.add(option.mName);
+                arguments.addAll(Arrays.asList(entry.getValue()));
+            }
+        }
+        return arguments;
+    }
+
+    /**
+     * Parses number argument.
+     * 
+     * @return the number or -1 if argument is not a non-negative integer
+     */
+    private static long parseNumber(String arg) {
+        try {
+            return Math.max(-1, Long.parseLong(arg));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses address argument.
+     * 
+     * @return the address or null if argument is not a valid address
+     */
+    private static SocketAddress parseAddress(String arg) {
+        try {
+            return SolverServer.parseAddress(arg);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Solves games of the input file on several threads. The file is split into
+ * chunks at line boundaries, chunks are solved on a fork-join pool and their
+ * results are printed in the order of the input, so the output is the same as
+ * when solving on one thread.
+ */
+public class ParallelSolver {
+
+    /**
+     * Default size of the chunk in bytes.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Number of chunks per thread that may be solved ahead of the one being
+     * printed, limits memory used for results.
+     */
+    private static final int CHUNKS_AHEAD = 4;
+
+    /**
+     * Size of the buffer for results of a chunk, which are then collected in
+     * memory.
+     */
+    private static final int RESULT_BUFFER_SIZE = 64 * 1024;
+
+    private final int mThreads;
+    private final int mChunkSize;
+    private GameSolver mSolver = GameSolver.ALL_VARIATIONS;
+    private GameSize mSize = GameSize.STANDARD;
+    private boolean mBinaryOutput;
+    private boolean mDiscards;
+    private Summary mSummary;
+    private WritableByteChannel mQuarantine;
+    private Statistics mStatistics;
+
+    /**
+     * Creates solver with given number of threads and default chunk size.
+     */
+    public ParallelSolver(int threads) {
+        this(threads, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates solver.
+     * 
+     * @param threads
+     *            number of threads to solve on
+     * @param chunkSize
+     *            approximate size of the chunk in bytes, it is extended to
+     *            the end of the line
+     */
+    public ParallelSolver(int threads, int chunkSize) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        mThreads = threads;
+        mChunkSize = chunkSize;
+    }
+
+    /**
+     * Sets solver of games shared by all threads, it must be thread-safe.
+     * {@link GameSolver#ALL_VARIATIONS} is used by default.
+     */
+    public void setSolver(GameSolver solver) {
+        mSolver = solver;
+    }
+
+    /**
+     * Sets statistics shared by all threads, nothing is recorded by default.
+     */
+    public void setStatistics(Statistics statistics) {
+        mStatistics = statistics;
+    }
+
+    /**
+     * Sets whether results are written in binary format, see
+     * {@link BinaryGames}.
+     */
+    public void setBinaryOutput(boolean binary) {
+        mBinaryOutput = binary;
+    }
+
+    /**
+     * Sets whether cards to discard are written with results, see
+     * {@link ResultWriter#write(Card[], Card[], GameResult)}.
+     */
+    public void setDiscards(boolean discards) {
+        mDiscards = discards;
+    }
+
+    /**
+     * Sets summary to count results into instead of writing them, see
+     * {@link Summary}. Each chunk is counted into its own summary, which is
+     * added to this one when the chunk is solved.
+     */
+    public void setSummary(Summary summary) {
+        mSummary = summary;
+    }
+
+    /**
+     * Sets channel to write lines rejected by validation to, see
+     * {@link Quarantine}. Errors of such lines are printed by default.
+     */
+    public void setQuarantine(WritableByteChannel quarantine) {
+        mQuarantine = quarantine;
+    }
+
+    /**
+     * Sets size of games in the file, {@link GameSize#STANDARD} by default.
+     */
+    public void setGameSize(GameSize size) {
+        mSize = size;
+    }
+
+    /**
+     * Solves all games of the file.
+     * 
+     * @param inputFile
+     *            the file with a game on each line
+     * @param out
+     *            channel to write results to
+     * @param err
+     *            stream to print errors to
+     * @throws IOException
+     *             if the file can't be read or results can't be written
+     */
+    public void solve(File inputFile, WritableByteChannel out, PrintStream err)
+            throws IOException {
+        final OutputStream outStream = Channels.newOutputStream(out);
+        final Quarantine quarantine = (mQuarantine != null) ? new Quarantine(mQuarantine)
+                : null;
+        final RandomAccessFile file = new RandomAccessFile(inputFile, "r");
+        final ForkJoinPool pool = new ForkJoinPool(mThreads);
+        try {
+            final FileChannel channel = file.getChannel();
+            final long size = channel.size();
+            final Queue<ForkJoinTask<Chunk>> pending = new ArrayDeque<ForkJoinTask<Chunk>>();
+
+            long position = 0;
+            long lines = 0;
+            while (position < size || !pending.isEmpty()) {
+                while (position < size && pending.size() < mThreads * CHUNKS_AHEAD) {
+                    final long end = MappedLineReader.findLineStart(channel,
+                            Math.min(size, position + mChunkSize));
+                    pending.add(pool.submit(new ChunkTask(channel, position, end, mSolver,
+                            mSize, mBinaryOutput, mDiscards, mSummary, mStatistics,
+                            quarantine != null)));
+                    position = end;
+                }
+
+                final Chunk chunk = pending.remove().join();
+                if (chunk.mError != null) {
+                    throw chunk.mError;
+                }
+                chunk.mOut.writeTo(outStream);
+                // chunks number lines from 1, as lines before them are only
+                // counted by the time they are written
+                if (chunk.mErr.size() > 0) {
+                    for (String message : chunk.mErr.toString().split("\\R")) {
+                        err.println(PsychicPoker.shiftLineNumber(message, lines));
+                    }
+                }
+                if (quarantine != null) {
+                    quarantine.addShifted(chunk.mQuarantine.toByteArray(),
+                            chunk.mQuarantine.size(), lines);
+                }
+                lines += chunk.mLines;
+            }
+            if (quarantine != null) {
+                quarantine.flush();
+                if (quarantine.checkError()) {
+                    throw new IOException("Error while writing quarantine");
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            file.close();
+        }
+    }
+
+    /**
+     * Solves all games of the file in binary format, writing results in
+     * binary format, see {@link BinaryGames}. The file is mapped in windows
+     * and games of each window are solved by a {@link BatchTask}, without
+     * creating objects for them. The solver and game size that were set are
+     * not used, and games are always of standard size.
+     * 
+     * @param inputFile
+     *            the file with packed games
+     * @param out
+     *            channel to write results to
+     * @param err
+     *            stream to print errors of wrong games to
+     * @throws IOException
+     *             if the file can't be read or results can't be written
+     */
+    public void solveBinary(File inputFile, WritableByteChannel out, PrintStream err)
+            throws IOException {
+        final RandomAccessFile file = new RandomAccessFile(inputFile, "r");
+        final ForkJoinPool pool = new ForkJoinPool(mThreads);
+        try {
+            final FileChannel channel = file.getChannel();
+            final long size = channel.size();
+            if (size % BinaryGames.GAME_BYTES != 0) {
+                throw new IOException("Size of binary games file must be a multiple of "
+                        + BinaryGames.GAME_BYTES);
+            }
+            final int window = BinaryGames.DEFAULT_WINDOW_SIZE;
+            final ByteBuffer results = ByteBuffer.allocate(window / BinaryGames.GAME_BYTES);
+            for (long windowStart = 0; windowStart < size; windowStart += window) {
+                final int length = (int) Math.min(window, size - windowStart);
+                final LongBuffer games = channel.map(FileChannel.MapMode.READ_ONLY,
+                        windowStart, length).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+                results.clear();
+                pool.invoke(new BatchTask(games, results));
+                results.flip();
+                final long firstIndex = windowStart / BinaryGames.GAME_BYTES;
+                for (int i = 0; i < results.limit(); i++) {
+                    if (results.get(i) == BinaryGames.ERROR) {
+                        err.println("Error while processing game " + (firstIndex + i)
+                                + ": wrong card index or duplicate card");
+                    }
+                }
+                while (results.hasRemaining()) {
+                    out.write(results);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            file.close();
+        }
+    }
+
+    /**
+     * Output of a solved chunk.
+     */
+    private static class Chunk {
+        final ByteArrayOutputStream mOut = new ByteArrayOutputStream();
+        final ByteArrayOutputStream mErr = new ByteArrayOutputStream();
+        final ByteArrayOutputStream mQuarantine = new ByteArrayOutputStream();
+        long mLines;
+        IOException mError;
+    }
+
+    /**
+     * Task solving the lines of the chunk.
+     */
+    private static class ChunkTask extends RecursiveTask<Chunk> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel mChannel;
+        private final long mStart;
+        private final long mEnd;
+        private final GameSolver mSolver;
+        private final GameSize mSize;
+        private final boolean mBinaryOutput;
+        private final boolean mDiscards;
+        private final Summary mSummary;
+        private final Statistics mStatistics;
+        private final boolean mQuarantine;
+
+        /**
+         * Creates task, lines are numbered from 1. Lines rejected by
+         * validation are written to the quarantine of the chunk if quarantine
+         * is set, or printed otherwise.
+         */
+        ChunkTask(FileChannel channel, long start, long end, GameSolver solver, GameSize size,
+                boolean binaryOutput, boolean discards, Summary summary,
+                Statistics statistics, boolean quarantine) {
+            mChannel = channel;
+            mStart = start;
+            mEnd = end;
+            mSolver = solver;
+            mSize = size;
+            mBinaryOutput = binaryOutput;
+            mDiscards = discards;
+            mSummary = summary;
+            mStatistics = statistics;
+            mQuarantine = quarantine;
+        }
+
+        @Override
+        protected Chunk compute() {
+            final Chunk chunk = new Chunk();
+            final ResultWriter out = new ResultWriter(Channels.newChannel(chunk.mOut),
+                    RESULT_BUFFER_SIZE, mBinaryOutput);
+            final PrintStream err = new PrintStream(chunk.mErr);
+            final PsychicPoker poker = new PsychicPoker(out, err, mSize);
+            poker.setSolver(mSolver);
+            poker.setDiscards(mDiscards);
+            poker.setStatistics(mStatistics);
+            final Summary summary = (mSummary != null) ? new Summary(mSize) : null;
+            poker.setSummary(summary);
+            final Quarantine quarantine = mQuarantine
+                    ? new Quarantine(Channels.newChannel(chunk.mQuarantine)) : null;
+            if (quarantine != null) {
+                poker.setQuarantine(quarantine);
+            }
+            try {
+                final int windowSize = (int) Math.min(MappedLineReader.DEFAULT_WINDOW_SIZE,
+                        Math.max(1, mEnd - mStart));
+                poker.readMappedInputAndPlay(new MappedLineReader(mChannel, mStart, mEnd,
+                        windowSize));
+            } catch (IOException e) {
+                chunk.mError = e;
+            }
+            poker.flushStatistics();
+            chunk.mLines = poker.getLineNumber();
+            if (summary != null) {
+                mSummary.add(summary);
+            }
+            if (quarantine != null) {
+                quarantine.flush();
+            }
+            out.flush();
+            err.flush();
+            return chunk;
+        }
+    }
+}
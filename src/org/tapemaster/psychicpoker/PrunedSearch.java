@@ -0,0 +1,346 @@
+package org.tapemaster.psychicpoker;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Finds the best hand of a game by branch and bound instead of evaluating
+ * every discard variation.
+ * <p>
+ * Cards of the hand are decided one by one to be kept or discarded. For every
+ * partly decided variation the search estimates the highest value it can
+ * possibly reach: cards already kept and cards taken from the top of the deck
+ * for the discarded ones must be in the final hand, the rest of it comes from
+ * undecided cards and the following deck cards. The estimate looks only at
+ * suits, rankings and their multiplicities, so it may be higher than what is
+ * really reachable, but never lower. Variations with higher estimates are
+ * tried first, and those whose estimate doesn't beat the best value found so
+ * far are skipped without evaluation.
+ * <p>
+ * The search is thread-safe, so one instance may be shared to collect
+ * statistics over all games.
+ */
+public class PrunedSearch implements GameSolver {
+
+    /**
+     * Number of discard variations including keeping all cards.
+     */
+    public static final int NUMBER_OF_VARIATIONS = 1 << Hand.NUMBER_OF_CARDS;
+
+    /**
+     * Cards are represented as bits of a long, 16 bits for each suit and one
+     * bit for each ranking within the suit.
+     */
+    private static final int SUIT_BITS = 16;
+    private static final long RANKS_MASK = (1L << Card.Rank.values().length) - 1;
+
+    /**
+     * Marks that cards of any suit may make a flush.
+     */
+    private static final int ANY_SUIT = -2;
+
+    /**
+     * All cards of one ranking.
+     */
+    private static final long RANK_COLUMN = 0x0001000100010001L;
+
+    /**
+     * Ranking bits of all straights, from the wheel to the highest.
+     */
+    private static final int[] STRAIGHTS = new int[10];
+
+    static {
+        STRAIGHTS[0] = HandStrength.WHEEL;
+        for (int i = 1; i < STRAIGHTS.length; i++) {
+            STRAIGHTS[i] = 0x1F << (i - 1);
+        }
+    }
+
+    /**
+     * State of search reused by all games solved on the thread.
+     */
+    private static final ThreadLocal<Search> sSearch = new ThreadLocal<Search>() {
+        @Override
+        protected Search initialValue() {
+            return new Search();
+        }
+    };
+
+    private final LongAdder mGames = new LongAdder();
+    private final LongAdder mEvaluations = new LongAdder();
+    private final LongAdder mBounds = new LongAdder();
+
+    @Override
+    public Value getBestHand(Hand hand, Card[] deck) {
+        if (hand.size() != Hand.NUMBER_OF_CARDS || deck.length != Hand.NUMBER_OF_CARDS) {
+            throw new IllegalArgumentException("Only games of size " + GameSize.STANDARD
+                    + " are supported");
+        }
+        final Search search = sSearch.get();
+        search.start(hand.getCards(), deck, Hand.getEvaluator());
+        search.visit(0, 0, 0, 0);
+        mGames.increment();
+        mEvaluations.add(search.mEvaluations);
+        mBounds.add(search.mBounds);
+        return search.mBest;
+    }
+
+    /**
+     * Gets number of games solved.
+     */
+    public long getGames() {
+        return mGames.sum();
+    }
+
+    /**
+     * Gets number of hands evaluated.
+     */
+    public long getEvaluations() {
+        return mEvaluations.sum();
+    }
+
+    /**
+     * Gets number of upper bounds computed, two for each decided card of the
+     * variations visited.
+     */
+    public long getBounds() {
+        return mBounds.sum();
+    }
+
+    /**
+     * Gets number of hands that were not evaluated thanks to pruning, compared
+     * to evaluating every variation. Bounds computed instead are not
+     * subtracted, see {@link #getBounds()}.
+     */
+    public long getEvaluationsAvoided() {
+        return getGames() * NUMBER_OF_VARIATIONS - getEvaluations();
+    }
+
+    @Override
+    public String toString() {
+        return "games: " + getGames() + ", evaluations: " + getEvaluations()
+                + ", evaluations avoided: " + getEvaluationsAvoided() + ", bounds computed: "
+                + getBounds();
+    }
+
+    /**
+     * Gets bit of the card.
+     */
+    private static long bit(Card card) {
+        return 1L << (card.getSuit().ordinal() * SUIT_BITS + card.getValue().ordinal());
+    }
+
+    /**
+     * Gets ranking bits of the cards of the suit.
+     */
+    private static int suit(long cards, int suit) {
+        return (int) ((cards >>> (suit * SUIT_BITS)) & RANKS_MASK);
+    }
+
+    /**
+     * Estimates the highest value of a hand that contains all required cards
+     * and the rest taken from optional ones.
+     * 
+     * @param required
+     *            cards that must be in the hand, at most five
+     * @param all
+     *            required and optional cards
+     */
+    static Value getUpperBound(long required, long all) {
+        final int c = suit(all, 0);
+        final int d = suit(all, 1);
+        final int h = suit(all, 2);
+        final int s = suit(all, 3);
+        final int any = c | d | h | s;
+        final int twoOrMore = (c & d) | (c & h) | (c & s) | (d & h) | (d & s) | (h & s);
+        final int threeOrMore = (c & d & h) | (c & d & s) | (c & h & s) | (d & h & s);
+        final int four = c & d & h & s;
+
+        final int requiredCount = Long.bitCount(required);
+        final int requiredRanks = suit(required, 0) | suit(required, 1) | suit(required, 2)
+                | suit(required, 3);
+        final boolean requiredDistinct = Integer.bitCount(requiredRanks) == requiredCount;
+        int flushSuit = -1;
+        for (int suit = 0; suit < Card.Suit.values().length && flushSuit == -1; suit++) {
+            if (Integer.bitCount(suit(required, suit)) == requiredCount) {
+                flushSuit = (requiredCount == 0) ? ANY_SUIT : suit;
+            }
+        }
+
+        if (flushSuit != -1) {
+            for (int suit = 0; suit < Card.Suit.values().length; suit++) {
+                if ((flushSuit == ANY_SUIT || flushSuit == suit)
+                        && hasStraight(suit(all, suit), requiredRanks)) {
+                    return Value.STRAIGHT_FLUSH;
+                }
+            }
+        }
+        for (int bits = four; bits != 0; bits &= bits - 1) {
+            if (requiredCount - countOfRank(required, bits) <= 1) {
+                return Value.FOUR_OF_A_KIND;
+            }
+        }
+        for (int three = threeOrMore; three != 0; three &= three - 1) {
+            final int pairs = twoOrMore & ~Integer.lowestOneBit(three);
+            for (int pair = pairs; pair != 0; pair &= pair - 1) {
+                if (requiredCount - countOfRank(required, three) - countOfRank(required, pair)
+                        == 0) {
+                    return Value.FULL_HOUSE;
+                }
+            }
+        }
+        if (flushSuit != -1) {
+            for (int suit = 0; suit < Card.Suit.values().length; suit++) {
+                if ((flushSuit == ANY_SUIT || flushSuit == suit)
+                        && Integer.bitCount(suit(all, suit)) >= Hand.NUMBER_OF_CARDS) {
+                    return Value.FLUSH;
+                }
+            }
+        }
+        if (requiredDistinct && hasStraight(any, requiredRanks)) {
+            return Value.STRAIGHT;
+        }
+        for (int bits = threeOrMore; bits != 0; bits &= bits - 1) {
+            if (requiredCount - countOfRank(required, bits) <= 2) {
+                return Value.THREE_OF_A_KIND;
+            }
+        }
+        for (int first = twoOrMore; first != 0; first &= first - 1) {
+            for (int second = first & (first - 1); second != 0; second &= second - 1) {
+                if (requiredCount - countOfRank(required, first)
+                        - countOfRank(required, second) <= 1) {
+                    return Value.TWO_PAIRS;
+                }
+            }
+        }
+        for (int bits = twoOrMore; bits != 0; bits &= bits - 1) {
+            if (requiredCount - countOfRank(required, bits) <= 3) {
+                return Value.ONE_PAIR;
+            }
+        }
+        return Value.HIGHEST_CARD;
+    }
+
+    /**
+     * Counts required cards of the ranking given by the lowest bit.
+     */
+    private static int countOfRank(long required, int ranks) {
+        final int rank = Integer.numberOfTrailingZeros(ranks);
+        return Long.bitCount(required & (RANK_COLUMN << rank));
+    }
+
+    /**
+     * Checks if a straight can be made of rankings available, containing all
+     * rankings required.
+     */
+    private static boolean hasStraight(int available, int required) {
+        for (int straight : STRAIGHTS) {
+            if ((available & straight) == straight && (required & ~straight) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * State of search for a single game.
+     */
+    private static class Search {
+        private final Card[] mCandidate = new Card[Hand.NUMBER_OF_CARDS];
+        private final long[] mHandBits = new long[Hand.NUMBER_OF_CARDS];
+        private final long[] mDeckBits = new long[Hand.NUMBER_OF_CARDS];
+        private Card[] mCards;
+        private Card[] mDeck;
+        private HandEvaluator mEvaluator;
+        Value mBest;
+        int mEvaluations;
+        int mBounds;
+
+        /**
+         * Prepares search for the game.
+         */
+        void start(Card[] cards, Card[] deck, HandEvaluator evaluator) {
+            mCards = cards;
+            mDeck = deck;
+            mEvaluator = evaluator;
+            mBest = Value.HIGHEST_CARD;
+            mEvaluations = 0;
+            mBounds = 0;
+            for (int i = 0; i < Hand.NUMBER_OF_CARDS; i++) {
+                mHandBits[i] = bit(cards[i]);
+                mDeckBits[i] = bit(deck[i]);
+            }
+        }
+
+        /**
+         * Decides the card of the hand with given index and recursively the
+         * following ones.
+         * 
+         * @param index
+         *            index of the card to decide
+         * @param discardMask
+         *            bits of cards discarded so far
+         * @param required
+         *            cards kept so far and taken from the deck for discarded
+         *            ones
+         * @param discarded
+         *            number of cards discarded so far
+         */
+        void visit(int index, int discardMask, long required, int discarded) {
+            if (index == Hand.NUMBER_OF_CARDS) {
+                evaluate(discardMask);
+                return;
+            }
+
+            final long keepRequired = required | mHandBits[index];
+            final long discardRequired = required | mDeckBits[discarded];
+            final Value keepBound = getUpperBound(keepRequired,
+                    keepRequired | getOptional(index + 1, discarded));
+            final Value discardBound = getUpperBound(discardRequired,
+                    discardRequired | getOptional(index + 1, discarded + 1));
+            mBounds += 2;
+
+            if (keepBound.compareTo(discardBound) >= 0) {
+                visitIfBetter(keepBound, index + 1, discardMask, keepRequired, discarded);
+                visitIfBetter(discardBound, index + 1, discardMask | (1 << index),
+                        discardRequired, discarded + 1);
+            } else {
+                visitIfBetter(discardBound, index + 1, discardMask | (1 << index),
+                        discardRequired, discarded + 1);
+                visitIfBetter(keepBound, index + 1, discardMask, keepRequired, discarded);
+            }
+        }
+
+        private void visitIfBetter(Value bound, int index, int discardMask, long required,
+                int discarded) {
+            if (bound.compareTo(mBest) > 0 || mEvaluations == 0) {
+                visit(index, discardMask, required, discarded);
+            }
+        }
+
+        /**
+         * Gets undecided cards of the hand and the deck cards that may replace
+         * them.
+         */
+        private long getOptional(int index, int discarded) {
+            long result = 0;
+            for (int i = index; i < Hand.NUMBER_OF_CARDS; i++) {
+                result |= mHandBits[i] | mDeckBits[discarded + i - index];
+            }
+            return result;
+        }
+
+        private void evaluate(int discardMask) {
+            int deckIndex = 0;
+            for (int i = 0; i < Hand.NUMBER_OF_CARDS; i++) {
+                mCandidate[i] = ((discardMask & (1 << i)) != 0) ? mDeck[deckIndex++] : mCards[i];
+            }
+            final Value value = mEvaluator.getValue(mCandidate);
+            mEvaluations++;
+            if (value.compareTo(mBest) > 0) {
+                mBest = value;
+            }
+        }
+    }
+}
@@ -2,10 +2,23 @@ package org.tapemaster.psychicpoker;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.tapemaster.psychicpoker.Hand.Value;
+import org.tapemaster.psychicpoker.Options.Mode;
+import org.tapemaster.psychicpoker.Options.Option;
 
 /**
  * Main class of PsychicPoker.
@@ -13,18 +26,378 @@ import org.tapemaster.psychicpoker.Hand.Value;
 public class PsychicPoker {
 
     /**
-     * Reads input file given as a first element in arguments and for each line
-     * prints value of the best possible hand. The lines must contain card
-     * captions for the hand and the deck.
+     * Length of one card in input line, including the separator.
+     */
+    private static final int CARD_INPUT_LENGTH = Card.CAPTION_LENGTH + 1;
+
+    /**
+     * Number of bytes of a range played between progress reports.
+     */
+    private static final int PROGRESS_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * Start of the message printed for a line that couldn't be played,
+     * followed by the line number.
+     */
+    static final String LINE_ERROR = "Error while processing line ";
+
+    /**
+     * Buffers for cards of the line being played, reused between lines.
+     */
+    private final Card[] mHandCards;
+    private final Card[] mDeck;
+
+    private final GameSize mSize;
+    private final LineValidator mValidator;
+    private final ResultWriter mOut;
+    private final PrintStream mErr;
+    private Quarantine mQuarantine;
+    private long mLineNumber;
+    private GameSolver mSolver = GameSolver.ALL_VARIATIONS;
+    private Statistics.Recorder mRecorder;
+    private boolean mDiscards;
+    private Summary mSummary;
+
+    /**
+     * Creates PsychicPoker for games of standard size writing results and
+     * errors to given destinations.
+     */
+    PsychicPoker(ResultWriter out, PrintStream err) {
+        this(out, err, GameSize.STANDARD);
+    }
+
+    /**
+     * Creates PsychicPoker for games of given size writing results and errors
+     * to given destinations.
+     */
+    PsychicPoker(ResultWriter out, PrintStream err, GameSize size) {
+        mOut = out;
+        mErr = err;
+        mSize = size;
+        mHandCards = new Card[size.getHandSize()];
+        mDeck = new Card[size.getDeckSize()];
+        mValidator = new LineValidator(size);
+    }
+
+    /**
+     * Sets solver of games, {@link GameSolver#ALL_VARIATIONS} by default.
+     */
+    void setSolver(GameSolver solver) {
+        mSolver = solver;
+    }
+
+    /**
+     * Sets whether cards to discard are written with results. Games are then
+     * solved by {@link Game#solve()} instead of the solver.
+     */
+    void setDiscards(boolean discards) {
+        mDiscards = discards;
+    }
+
+    /**
+     * Sets summary to count results into instead of writing them, only
+     * errors are printed then. Games are solved by {@link Game} instead of
+     * the solver, to count the cards discarded.
+     */
+    void setSummary(Summary summary) {
+        mSummary = summary;
+    }
+
+    /**
+     * Sets quarantine to write rejected lines to instead of printing errors.
+     */
+    void setQuarantine(Quarantine quarantine) {
+        mQuarantine = quarantine;
+    }
+
+    /**
+     * Sets number of the next line read, for errors and the quarantine, 1 by
+     * default. Lines are counted from it when solving a part of the input.
+     */
+    void setFirstLineNumber(long firstLineNumber) {
+        mLineNumber = firstLineNumber - 1;
+    }
+
+    /**
+     * Gets number of the last line read, counted from the first line number
+     * given to {@link #setFirstLineNumber(long)}.
+     */
+    long getLineNumber() {
+        return mLineNumber;
+    }
+
+    /**
+     * Sets statistics to record played lines into, nothing is recorded by
+     * default. Lines are merged into the statistics in batches, and finally
+     * by {@link #flushStatistics()}.
+     */
+    void setStatistics(Statistics statistics) {
+        mRecorder = (statistics != null) ? statistics.newRecorder() : null;
+    }
+
+    /**
+     * Merges lines recorded so far into the statistics.
+     */
+    void flushStatistics() {
+        if (mRecorder != null) {
+            mRecorder.flush();
+        }
+    }
+
+    /**
+     * Runs in the mode chosen by the arguments, usage is printed if they are
+     * wrong. Options accepted by each mode are described by {@link Options}.
+     * <p>
+     * By default the source file is read and for each line value of the best
+     * possible hand is printed, or written to the file given by --output. The
+     * lines must contain card captions for the hand and the deck. With
+     * --threads option the file is split into chunks solved in parallel, see
+     * {@link ParallelSolver}. Reports of the cache, of the pruned search and
+     * statistics are printed to standard error at the end.
+     * <p>
+     * With --serve option no file is read, instead games sent to the port or
+     * Unix domain socket are solved until the process is stopped, see
+     * {@link SolverServer}. With --connect option the file is solved by the
+     * server listening there, see {@link SolverClient}.
+     * <p>
+     * With --watch option files of the directory are solved as they are
+     * created and grow, until the process is stopped, and results are written
+     * to the directory given by --output option with checkpoints to resume
+     * from, see {@link DirectoryWatcher}.
+     * <p>
+     * With --shards option the file is split into given number of shards
+     * solved by worker processes, and their results or summaries are merged
+     * in order, see {@link ShardedRunner}. Workers play their shard given by
+     * --range option.
      */
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.out.println("Usage: java PsychicPoker source_file");
+        final Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            Options.printUsage(System.out);
             System.exit(1);
+            return;
         }
+        final Mode mode = options.getMode();
+        final int threads = options.getNumber(Option.THREADS, 0);
+        final int cacheSize = options.getNumber(Option.CACHE, 0);
+        final boolean pruned = options.has(Option.PRUNED);
+        final boolean binaryInput = options.has(Option.BINARY_INPUT);
+        final boolean binaryOutput = options.has(Option.BINARY_OUTPUT);
+        final boolean discards = options.has(Option.DISCARDS);
+        final String fileName = options.getFileName();
+        final String outputName = options.getText(Option.OUTPUT);
+        final String tableName = options.getText(Option.TABLE);
+        final String quarantineName = options.getText(Option.QUARANTINE);
+        final int statsInterval = options.getNumber(Option.STATS_INTERVAL, 0);
+        final int slowLineMicros = options.getNumber(Option.SLOW_LINE, 0);
+        final GameSize gameSize = options.getGameSize();
 
-        final File inputFile = new File(args[0]);
-        new PsychicPoker().readInputAndPlay(inputFile);
+        final File inputFile = (fileName != null) ? new File(fileName) : null;
+        final PrunedSearch search = pruned ? new PrunedSearch() : null;
+        GameSolver gameSolver = pruned ? search
+                : options.has(Option.GRAY) ? new GrayCodeSearch()
+                : GameSolver.ALL_VARIATIONS;
+        if (options.has(Option.VECTOR)) {
+            gameSolver = VectorSupport.createSearch();
+            if (!VectorSupport.isAvailable()) {
+                System.err.println("Vector API is not available, add "
+                        + "--add-modules jdk.incubator.vector to use it");
+            }
+        }
+        final GameCache cache = (cacheSize > 0) ? new GameCache(cacheSize, gameSolver) : null;
+        if (cache != null) {
+            gameSolver = cache;
+        }
+        final Statistics statistics = !options.hasStatistics() ? null : (slowLineMicros > 0)
+                ? new Statistics(TimeUnit.MICROSECONDS.toNanos(slowLineMicros))
+                : new Statistics();
+        final Summary results = options.has(Option.SUMMARY) ? new Summary(gameSize)
+                : null;
+        final ScheduledExecutorService dump = (statsInterval > 0)
+                ? statistics.startDump(System.err, statsInterval) : null;
+        FileChannel output = null;
+        FileChannel quarantineOutput = null;
+        try {
+            if (tableName != null) {
+                Hand.setEvaluator(MappedHandEvaluator.load(new File(tableName)));
+            }
+            if (mode == Mode.SERVE) {
+                serve(options.getAddress(), gameSolver, gameSize, statistics);
+                return;
+            }
+            if (mode == Mode.WATCH) {
+                final DirectoryWatcher watcher = new DirectoryWatcher(
+                        new File(options.getText(Option.WATCH)),
+                        new File(outputName), Math.max(1, threads));
+                watcher.setSolver(gameSolver);
+                watcher.setGameSize(gameSize);
+                watcher.setDiscards(discards);
+                watcher.setStatistics(statistics);
+                watch(watcher, statistics);
+                return;
+            }
+            output = (outputName != null) ? new FileOutputStream(outputName).getChannel()
+                    : new FileOutputStream(FileDescriptor.out).getChannel();
+            if (quarantineName != null) {
+                quarantineOutput = new FileOutputStream(quarantineName).getChannel();
+            }
+            if (mode == Mode.CONNECT) {
+                SolverClient.solve(options.getAddress(), inputFile, output);
+            } else if (mode == Mode.SHARDS) {
+                final ShardedRunner runner = new ShardedRunner(
+                        options.getNumber(Option.SHARDS, 0));
+                runner.setWorkerArguments(options.getWorkerArguments());
+                runner.setSummary(results);
+                try {
+                    runner.run(inputFile, output, System.err);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } else if (threads > 0 && binaryInput) {
+                new ParallelSolver(threads).solveBinary(inputFile, output, System.err);
+            } else if (threads > 0) {
+                final ParallelSolver solver = new ParallelSolver(threads);
+                solver.setSolver(gameSolver);
+                solver.setGameSize(gameSize);
+                solver.setBinaryOutput(binaryOutput);
+                solver.setDiscards(discards);
+                solver.setSummary(results);
+                solver.setQuarantine(quarantineOutput);
+                solver.setStatistics(statistics);
+                solver.solve(inputFile, output, System.err);
+            } else {
+                final ResultWriter writer = new ResultWriter(output,
+                        ResultWriter.DEFAULT_BUFFER_SIZE, binaryOutput);
+                final PsychicPoker poker = new PsychicPoker(writer, System.err, gameSize);
+                poker.setSolver(gameSolver);
+                poker.setDiscards(discards);
+                poker.setSummary(results);
+                poker.setStatistics(statistics);
+                final Quarantine quarantine = (quarantineOutput != null)
+                        ? new Quarantine(quarantineOutput) : null;
+                if (quarantine != null) {
+                    poker.setQuarantine(quarantine);
+                }
+                if (binaryInput) {
+                    poker.readBinaryInputAndPlay(inputFile);
+                } else if (mode == Mode.WORKER) {
+                    poker.readRangeAndPlay(inputFile, options.getRangeStart(),
+                            options.getRangeEnd(), System.out);
+                } else if (options.has(Option.MMAP)) {
+                    poker.readMappedInputAndPlay(inputFile);
+                } else {
+                    poker.readInputAndPlay(inputFile);
+                }
+                poker.flushStatistics();
+                writer.flush();
+                if (writer.checkError()) {
+                    System.err.println("Error while writing results");
+                }
+                if (quarantine != null) {
+                    quarantine.flush();
+                    if (quarantine.checkError()) {
+                        System.err.println("Error while writing quarantine");
+                    }
+                }
+            }
+            if (results != null) {
+                final PrintStream summaryOut = new PrintStream(
+                        Channels.newOutputStream(output));
+                results.print(summaryOut);
+                summaryOut.flush();
+                if (summaryOut.checkError()) {
+                    System.err.println("Error while writing summary");
+                }
+            }
+            if (cache != null && mode != Mode.SHARDS) {
+                System.err.println("Cache " + cache);
+            }
+            if (search != null && mode != Mode.SHARDS) {
+                System.err.println("Pruned search " + search);
+            }
+            if (statistics != null) {
+                System.err.println("Statistics " + statistics);
+            }
+        } catch (IOException ioe) {
+            System.err.println("Error while processing file: " + ioe);
+        } finally {
+            if (dump != null) {
+                dump.shutdown();
+            }
+            try {
+                if (output != null && outputName != null) {
+                    output.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Error closing output file: " + e);
+            }
+            try {
+                if (quarantineOutput != null) {
+                    quarantineOutput.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Error closing quarantine file: " + e);
+            }
+        }
+    }
+
+    /**
+     * Solves games sent to the address until the process is stopped,
+     * statistics are printed when it stops.
+     */
+    private static void serve(SocketAddress address, GameSolver solver, GameSize size,
+            Statistics statistics) throws IOException {
+        final SolverServer server = new SolverServer(address);
+        server.setSolver(solver);
+        server.setGameSize(size);
+        server.setStatistics(statistics);
+        System.err.println("Listening on " + server.bind() + " with "
+                + (server.hasVirtualThreads() ? "virtual" : "platform")
+                + " threads per connection");
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing server: " + e);
+                }
+                if (statistics != null) {
+                    System.err.println("Statistics " + statistics);
+                }
+            }
+        });
+        server.serve();
+    }
+
+    /**
+     * Solves files of the spool directory until the process is stopped,
+     * statistics are printed when it stops.
+     */
+    private static void watch(final DirectoryWatcher watcher, final Statistics statistics)
+            throws IOException {
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    watcher.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing watcher: " + e);
+                }
+                if (statistics != null) {
+                    System.err.println("Statistics " + statistics);
+                }
+            }
+        });
+        try {
+            watcher.watch(System.err);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     private void readInputAndPlay(File inputFile) {
@@ -34,46 +407,313 @@ public class PsychicPoker {
             reader = new BufferedReader(new FileReader(inputFile));
             String line;
             while ((line = reader.readLine()) != null) {
+                mLineNumber++;
+                if (mRecorder != null) {
+                    mRecorder.startLine();
+                }
+                final int error = mValidator.validate(line, mHandCards, mDeck);
+                if (error != LineValidator.VALID) {
+                    rejected(error, line);
+                    continue;
+                }
+                if (mRecorder != null) {
+                    mRecorder.parsed();
+                }
                 try {
-                    playGame(line);
+                    playGame(mHandCards, mDeck);
+                    if (mRecorder != null) {
+                        final long latency = mRecorder.endLine();
+                        if (latency != 0) {
+                            Statistics.reportSlowLine(line, latency);
+                        }
+                    }
                 } catch (Exception e) {
-                    System.err.println("Error while processing line '" + line + "': " + e);
+                    failed(line, e.toString());
                 }
             }
         } catch (IOException ioe) {
-            System.err.println("Error while reading from file: " + ioe);
+            mErr.println("Error while reading from file: " + ioe);
         } finally {
             try {
                 if (reader != null) {
                     reader.close();
                 }
             } catch (IOException e) {
-                System.err.println("Error closing input file: " + e);
+                mErr.println("Error closing input file: " + e);
             }
         }
     }
 
-    private void playGame(String line) {
-        final int handLength = (Card.CAPTION_LENGTH + 1) * Hand.NUMBER_OF_CARDS;
-        final String handInput = line.substring(0, handLength).trim();
-        final String deckInput = line.substring(handLength).trim();
+    private void readMappedInputAndPlay(File inputFile) {
+        RandomAccessFile file = null;
 
-        final Hand hand = new Hand(parseCards(handInput));
-        final Card[] deck = parseCards(deckInput);
-        final Game game = new Game(hand, deck);
+        try {
+            file = new RandomAccessFile(inputFile, "r");
+            readMappedInputAndPlay(new MappedLineReader(file.getChannel()));
+        } catch (IOException ioe) {
+            mErr.println("Error while reading from file: " + ioe);
+        } finally {
+            try {
+                if (file != null) {
+                    file.close();
+                }
+            } catch (IOException e) {
+                mErr.println("Error closing input file: " + e);
+            }
+        }
+    }
 
-        final Value best = game.getBestHand();
-        System.out.println("Hand: " + hand.toString() + " Deck: "
-                + cardsArrayToString(deck) + " Best hand: " + best);
+    /**
+     * Plays lines of the part of the file, which must start and end at line
+     * boundaries, and prints numbers of bytes and lines played after every
+     * {@link #PROGRESS_BYTES} or so, see {@link ShardedRunner}.
+     * 
+     * @param start
+     *            position of the first line
+     * @param end
+     *            position after the last line
+     * @param progress
+     *            stream to print progress to
+     */
+    void readRangeAndPlay(File inputFile, long start, long end, PrintStream progress)
+            throws IOException {
+        final long firstLineNumber = mLineNumber;
+        final RandomAccessFile file = new RandomAccessFile(inputFile, "r");
+        try {
+            final FileChannel channel = file.getChannel();
+            if (channel.size() < end) {
+                throw new IOException("File is shorter than " + end + " bytes");
+            }
+            long position = start;
+            while (position < end) {
+                final long stepEnd = Math.min(end,
+                        MappedLineReader.findLineStart(channel, position + PROGRESS_BYTES));
+                readMappedInputAndPlay(new MappedLineReader(channel, position, stepEnd,
+                        (int) Math.min(MappedLineReader.DEFAULT_WINDOW_SIZE, stepEnd - position)));
+                position = stepEnd;
+                progress.println(ShardedRunner.PROGRESS + (position - start) + " "
+                        + (mLineNumber - firstLineNumber));
+                progress.flush();
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Plays all lines given by the reader.
+     */
+    void readMappedInputAndPlay(MappedLineReader reader) throws IOException {
+        reader.read(new MappedLineReader.LineHandler() {
+            @Override
+            public void onLine(ByteBuffer buffer, int start, int end) {
+                playLine(buffer, start, end);
+            }
+        });
+    }
+
+    /**
+     * Plays the line of the buffer, printing an error if it can't be played.
+     */
+    void playLine(ByteBuffer buffer, int start, int end) {
+        mLineNumber++;
+        if (mRecorder != null) {
+            mRecorder.startLine();
+        }
+        final int error = mValidator.validate(buffer, start, end, mHandCards, mDeck);
+        if (error != LineValidator.VALID) {
+            rejected(error, buffer, start, end);
+            return;
+        }
+        if (mRecorder != null) {
+            mRecorder.parsed();
+        }
+        try {
+            playGame(mHandCards, mDeck);
+            if (mRecorder != null) {
+                final long latency = mRecorder.endLine();
+                if (latency != 0) {
+                    Statistics.reportSlowLine(decode(buffer, start, end), latency);
+                }
+            }
+        } catch (Exception e) {
+            failed(decode(buffer, start, end), e.toString());
+        }
+    }
+
+    /**
+     * Reports the line rejected by validation, to the quarantine if there is
+     * one. No objects are created unless the line is reported as JFR event.
+     */
+    private void rejected(int error, ByteBuffer buffer, int start, int end) {
+        if (mQuarantine != null) {
+            writeError();
+            mQuarantine.add(mLineNumber, error, buffer, start, end);
+            if (mRecorder != null && Statistics.isFailedLineEnabled()) {
+                mRecorder.failed(decode(buffer, start, end), LineValidator.getMessage(error));
+            } else if (mRecorder != null) {
+                mRecorder.failed();
+            }
+        } else {
+            failed(decode(buffer, start, end), LineValidator.getMessage(error));
+        }
+    }
+
+    /**
+     * Reports the line of characters rejected by validation.
+     */
+    private void rejected(int error, String line) {
+        if (mQuarantine != null) {
+            writeError();
+            mQuarantine.add(mLineNumber, error, line);
+            if (mRecorder != null) {
+                mRecorder.failed(line, LineValidator.getMessage(error));
+            }
+        } else {
+            failed(line, LineValidator.getMessage(error));
+        }
+    }
+
+    /**
+     * Reports the line that couldn't be played.
+     */
+    private void failed(String line, String error) {
+        writeError();
+        mErr.println(LINE_ERROR + mLineNumber + " '" + line + "': " + error);
+        if (mRecorder != null) {
+            mRecorder.failed(line, error);
+        }
+    }
+
+    private void readBinaryInputAndPlay(File inputFile) {
+        RandomAccessFile file = null;
+
+        try {
+            file = new RandomAccessFile(inputFile, "r");
+            readBinaryInputAndPlay(file.getChannel());
+        } catch (IOException ioe) {
+            mErr.println("Error while reading from file: " + ioe);
+        } finally {
+            try {
+                if (file != null) {
+                    file.close();
+                }
+            } catch (IOException e) {
+                mErr.println("Error closing input file: " + e);
+            }
+        }
+    }
+
+    /**
+     * Plays all games of the file in binary format, see {@link BinaryGames}.
+     */
+    void readBinaryInputAndPlay(FileChannel channel) throws IOException {
+        BinaryGames.read(channel, new BinaryGames.GameHandler() {
+            @Override
+            public void onGame(long index, long game) {
+                if (mRecorder != null) {
+                    mRecorder.startLine();
+                }
+                try {
+                    BinaryGames.unpack(game, mHandCards, mDeck);
+                    final int error = LineValidator.validate(mHandCards, mDeck);
+                    if (error != LineValidator.VALID) {
+                        writeError();
+                        mErr.println("Error while processing game " + index + ": "
+                                + LineValidator.getMessage(error));
+                        if (mRecorder != null) {
+                            mRecorder.failed("game " + index, LineValidator.getMessage(error));
+                        }
+                        return;
+                    }
+                    if (mRecorder != null) {
+                        mRecorder.parsed();
+                    }
+                    playGame(mHandCards, mDeck);
+                    if (mRecorder != null) {
+                        final long latency = mRecorder.endLine();
+                        if (latency != 0) {
+                            Statistics.reportSlowLine("game " + index, latency);
+                        }
+                    }
+                } catch (Exception e) {
+                    writeError();
+                    mErr.println("Error while processing game " + index + ": " + e);
+                    if (mRecorder != null) {
+                        mRecorder.failed("game " + index, e.toString());
+                    }
+                }
+            }
+        });
     }
 
-    private String cardsArrayToString(Card[] cards) {
-        final StringBuilder builder = new StringBuilder();
-        for (Card card : cards) {
-            builder.append(card);
-            builder.append(" ");
+    private void playGame(Card[] handCards, Card[] deck) {
+        final Hand hand = new Hand(handCards);
+        if (mSummary != null) {
+            final int result = new Game(hand, deck, mSize).search();
+            final Value best = Game.getValue(result);
+            if (mRecorder != null) {
+                mRecorder.solved(best);
+            }
+            mSummary.add(hand.getValue(), best,
+                    Integer.bitCount(Game.getDiscardMask(result)));
+        } else if (mDiscards) {
+            final GameResult result = new Game(hand, deck, mSize).solve();
+            if (mRecorder != null) {
+                mRecorder.solved(result.getValue());
+            }
+            mOut.write(hand.getCards(), deck, result);
+        } else {
+            final Value best = mSolver.getBestHand(hand, deck);
+            if (mRecorder != null) {
+                mRecorder.solved(best);
+            }
+            mOut.write(hand.getCards(), deck, best);
+        }
+        if (mRecorder != null) {
+            mRecorder.written();
         }
-        return builder.toString().trim();
+    }
+
+    /**
+     * Writes error result, or counts it in the summary.
+     */
+    private void writeError() {
+        if (mSummary != null) {
+            mSummary.failed();
+        } else {
+            mOut.writeError();
+        }
+    }
+
+    /**
+     * Adds the offset to the line number of an error printed for a line,
+     * other messages are returned unchanged. Parts of the input are solved
+     * with lines numbered from 1, their errors are shifted by the number of
+     * lines before them once it is known.
+     */
+    static String shiftLineNumber(String message, long offset) {
+        if (offset == 0 || !message.startsWith(LINE_ERROR)) {
+            return message;
+        }
+        final int end = message.indexOf(' ', LINE_ERROR.length());
+        try {
+            final long number = Long.parseLong(message.substring(LINE_ERROR.length(), end));
+            return LINE_ERROR + (number + offset) + message.substring(end);
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            return message;
+        }
+    }
+
+    /**
+     * Decodes part of the buffer for error messages.
+     */
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        final byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
     }
 
     /**
@@ -84,18 +724,103 @@ public class PsychicPoker {
      *            
      * @throws IllegalArgumentException if input string is in wrong format           
      */
-    public static Card[] parseCards(String input) {
-        final int oneCardLength = Card.CAPTION_LENGTH + 1;
-        if (input.length() != Hand.NUMBER_OF_CARDS * oneCardLength - 1) {
+    public static Card[] parseCards(CharSequence input) {
+        return parseCards(input, Hand.NUMBER_OF_CARDS);
+    }
+
+    /**
+     * Creates array of given number of Cards from input string.
+     * 
+     * @param input
+     *            String consisting of {@link Card} captions separated with spaces
+     * @param count
+     *            number of cards in input
+     *            
+     * @throws IllegalArgumentException if input string is in wrong format           
+     */
+    public static Card[] parseCards(CharSequence input, int count) {
+        if (input.length() != Math.max(0, count * CARD_INPUT_LENGTH - 1)) {
             throw new IllegalArgumentException(
-                    "Input string has wrong format, expected five cards "
+                    "Input string has wrong format, expected " + count + " cards "
                             + "two symbols each separated with space.");
         }
-        final Card[] cards = new Card[Hand.NUMBER_OF_CARDS];
-        for (int i = 0; i < Hand.NUMBER_OF_CARDS; i++) {
-            final int pos = i * oneCardLength;
-            cards[i] = new Card(input.substring(pos, pos + Card.CAPTION_LENGTH));
-        }
+        final Card[] cards = new Card[count];
+        parseCards(input, 0, cards);
         return cards;
     }
+
+    /**
+     * Fills array of Cards from input characters without creating any
+     * intermediate objects. Cards are shared instances from {@link Card#of}.
+     * 
+     * @param input
+     *            characters consisting of {@link Card} captions separated with
+     *            single symbol
+     * @param start
+     *            position of the first caption in input
+     * @param cards
+     *            array to fill, its length is the number of cards to parse
+     * @throws IllegalArgumentException
+     *             if input is too short or contains unknown captions
+     */
+    public static void parseCards(CharSequence input, int start, Card[] cards) {
+        if (start < 0 || input.length() - start < cards.length * CARD_INPUT_LENGTH - 1) {
+            throw new IllegalArgumentException("Input is too short for "
+                    + cards.length + " cards.");
+        }
+        for (int i = 0; i < cards.length; i++) {
+            final int pos = start + i * CARD_INPUT_LENGTH;
+            cards[i] = Card.of(input.charAt(pos), input.charAt(pos + 1));
+        }
+    }
+
+    /**
+     * Fills array of Cards from ASCII bytes without creating any intermediate
+     * objects. Cards are shared instances from {@link Card#of}.
+     * 
+     * @param input
+     *            bytes consisting of {@link Card} captions separated with
+     *            single symbol
+     * @param start
+     *            position of the first caption in input
+     * @param cards
+     *            array to fill, its length is the number of cards to parse
+     * @throws IllegalArgumentException
+     *             if input is too short or contains unknown captions
+     */
+    public static void parseCards(byte[] input, int start, Card[] cards) {
+        if (start < 0 || input.length - start < cards.length * CARD_INPUT_LENGTH - 1) {
+            throw new IllegalArgumentException("Input is too short for "
+                    + cards.length + " cards.");
+        }
+        for (int i = 0; i < cards.length; i++) {
+            final int pos = start + i * CARD_INPUT_LENGTH;
+            cards[i] = Card.of((char) (input[pos] & 0xFF), (char) (input[pos + 1] & 0xFF));
+        }
+    }
+
+    /**
+     * Fills array of Cards from ASCII bytes of the buffer without creating any
+     * intermediate objects. Buffer position is not changed.
+     * 
+     * @param input
+     *            bytes consisting of {@link Card} captions separated with
+     *            single symbol
+     * @param start
+     *            position of the first caption in input
+     * @param cards
+     *            array to fill, its length is the number of cards to parse
+     * @throws IllegalArgumentException
+     *             if input is too short or contains unknown captions
+     */
+    public static void parseCards(ByteBuffer input, int start, Card[] cards) {
+        if (start < 0 || input.limit() - start < cards.length * CARD_INPUT_LENGTH - 1) {
+            throw new IllegalArgumentException("Input is too short for "
+                    + cards.length + " cards.");
+        }
+        for (int i = 0; i < cards.length; i++) {
+            final int pos = start + i * CARD_INPUT_LENGTH;
+            cards[i] = Card.of((char) (input.get(pos) & 0xFF), (char) (input.get(pos + 1) & 0xFF));
+        }
+    }
 }
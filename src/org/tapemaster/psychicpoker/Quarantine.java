@@ -0,0 +1,203 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes rejected lines to a quarantine file, one per line in the format
+ * "17 duplicate-card 2H 2H 3C 4D 5S 6H 7C 8D 9S TH": number of the line in
+ * the input from 1, name of the error given by {@link LineValidator} and the
+ * line itself. Like {@link ResultWriter}, lines are copied into a buffer
+ * without creating any objects, and errors of writing are only remembered.
+ */
+public class Quarantine implements Flushable, Closeable {
+
+    /**
+     * Default size of the buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator()
+            .getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Names of errors indexed by code.
+     */
+    private static final byte[][] sNames = new byte[LineValidator.NUMBER_OF_CODES][];
+
+    static {
+        for (int i = 0; i < sNames.length; i++) {
+            sNames[i] = LineValidator.getName(i).getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final WritableByteChannel mChannel;
+    private final ByteBuffer mBuffer;
+    private final byte[] mDigits = new byte[20];
+    private long mLines;
+    private boolean mError;
+
+    /**
+     * Creates quarantine with default buffer size.
+     */
+    public Quarantine(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates quarantine.
+     * 
+     * @param channel
+     *            the channel to write to
+     * @param bufferSize
+     *            size of the buffer
+     */
+    public Quarantine(WritableByteChannel channel, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        mChannel = channel;
+        mBuffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Writes the rejected line of the buffer.
+     * 
+     * @param lineNumber
+     *            number of the line from 1
+     * @param error
+     *            error code of {@link LineValidator}
+     * @param line
+     *            buffer with bytes of the line, its position is not changed
+     * @param start
+     *            position of the first byte of the line
+     * @param end
+     *            position after the last byte of the line
+     */
+    public void add(long lineNumber, int error, ByteBuffer line, int start, int end) {
+        putHeader(lineNumber, error);
+        for (int i = start; i < end; i++) {
+            put(line.get(i));
+        }
+        putSeparator();
+    }
+
+    /**
+     * Writes the rejected line of characters, which are truncated to bytes.
+     */
+    public void add(long lineNumber, int error, CharSequence line) {
+        putHeader(lineNumber, error);
+        for (int i = 0; i < line.length(); i++) {
+            put((byte) line.charAt(i));
+        }
+        putSeparator();
+    }
+
+    /**
+     * Writes lines written by another quarantine, adding the offset to their
+     * numbers. Quarantines of parts of the input numbered from 1 are merged
+     * this way once the number of lines before each part is known.
+     * 
+     * @param lines
+     *            array with lines in the format of quarantine
+     * @param length
+     *            number of bytes of the lines in the array
+     * @param offset
+     *            number of lines of the input before the part
+     */
+    public void addShifted(byte[] lines, int length, long offset) {
+        int i = 0;
+        while (i < length) {
+            long lineNumber = 0;
+            while (lines[i] != ' ') {
+                lineNumber = lineNumber * 10 + (lines[i++] - '0');
+            }
+            putNumber(lineNumber + offset);
+            do {
+                put(lines[i]);
+            } while (lines[i++] != '\n');
+            mLines++;
+        }
+    }
+
+    /**
+     * Gets number of lines written.
+     */
+    public long getLines() {
+        return mLines;
+    }
+
+    private void putHeader(long lineNumber, int error) {
+        putNumber(lineNumber);
+        put((byte) ' ');
+        for (byte b : sNames[error]) {
+            put(b);
+        }
+        put((byte) ' ');
+    }
+
+    private void putNumber(long number) {
+        int length = 0;
+        do {
+            mDigits[length++] = (byte) ('0' + number % 10);
+            number /= 10;
+        } while (number != 0);
+        while (length > 0) {
+            put(mDigits[--length]);
+        }
+    }
+
+    private void putSeparator() {
+        for (byte b : LINE_SEPARATOR) {
+            put(b);
+        }
+        mLines++;
+    }
+
+    private void put(byte b) {
+        if (!mBuffer.hasRemaining()) {
+            flush();
+        }
+        mBuffer.put(b);
+    }
+
+    /**
+     * Writes all buffered lines to the channel.
+     */
+    @Override
+    public void flush() {
+        mBuffer.flip();
+        try {
+            while (mBuffer.hasRemaining()) {
+                mChannel.write(mBuffer);
+            }
+        } catch (IOException e) {
+            mError = true;
+        }
+        mBuffer.clear();
+    }
+
+    /**
+     * Flushes buffered lines and closes the channel.
+     */
+    @Override
+    public void close() {
+        flush();
+        try {
+            mChannel.close();
+        } catch (IOException e) {
+            mError = true;
+        }
+    }
+
+    /**
+     * Checks if any error happened while writing.
+     */
+    public boolean checkError() {
+        return mError;
+    }
+}
@@ -0,0 +1,247 @@
+package org.tapemaster.psychicpoker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.tapemaster.psychicpoker.Card.Rank;
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Straightforward evaluator that sorts the cards and scans them for
+ * combinations. It is slow but easy to verify, so it serves as the reference
+ * for other evaluators.
+ */
+public class ReferenceHandEvaluator implements HandEvaluator {
+
+    private static final int NUMBER_OF_CARDS = Hand.NUMBER_OF_CARDS;
+
+    @Override
+    public Value getValue(Card[] cards) {
+        final Card[] sorted = Arrays.copyOf(cards, NUMBER_OF_CARDS);
+        Arrays.sort(sorted);
+
+        if (isFlush(sorted) && isStraight(sorted)) {
+            return Value.STRAIGHT_FLUSH;
+        }
+
+        final List<Rank> pairs = findPairs(sorted);
+        final Rank three = findThreeOfaKind(sorted);
+
+        if (findFourOfaKind(sorted) != null) {
+            return Value.FOUR_OF_A_KIND;
+        }
+        if ((three != null) && (pairs.size() == 1)) {
+            return Value.FULL_HOUSE;
+        }
+        if (isFlush(sorted)) {
+            return Value.FLUSH;
+        }
+        if (isStraight(sorted)) {
+            return Value.STRAIGHT;
+        }
+        if (three != null) {
+            return Value.THREE_OF_A_KIND;
+        }
+        if (pairs.size() == 2) {
+            return Value.TWO_PAIRS;
+        }
+        if (pairs.size() != 0) {
+            return Value.ONE_PAIR;
+        }
+
+        return Value.HIGHEST_CARD;
+    }
+
+    /**
+     * Gets strength of the hand by its place among all distinct hands ordered
+     * by {@link #getOrder(Card[])}, independently of {@link HandStrength}.
+     */
+    @Override
+    public int getStrength(Card[] cards) {
+        return Arrays.binarySearch(OrdersHolder.ORDERS, getOrder(cards)) + 1;
+    }
+
+    /**
+     * Holds orders of all distinct hands, sorted, so that they are collected
+     * only if strength is asked for.
+     */
+    private static class OrdersHolder {
+        static final int[] ORDERS = collectOrders();
+    }
+
+    /**
+     * Goes through all hands of the full deck and collects their distinct
+     * orders, sorted.
+     */
+    private static int[] collectOrders() {
+        final ReferenceHandEvaluator evaluator = new ReferenceHandEvaluator();
+        final Set<Integer> orders = new HashSet<Integer>();
+        final Card[] cards = new Card[NUMBER_OF_CARDS];
+        for (int a = 0; a < Card.NUMBER_OF_CARDS; a++) {
+            cards[0] = Card.of(a);
+            for (int b = a + 1; b < Card.NUMBER_OF_CARDS; b++) {
+                cards[1] = Card.of(b);
+                for (int c = b + 1; c < Card.NUMBER_OF_CARDS; c++) {
+                    cards[2] = Card.of(c);
+                    for (int d = c + 1; d < Card.NUMBER_OF_CARDS; d++) {
+                        cards[3] = Card.of(d);
+                        for (int e = d + 1; e < Card.NUMBER_OF_CARDS; e++) {
+                            cards[4] = Card.of(e);
+                            orders.add(evaluator.getOrder(cards));
+                        }
+                    }
+                }
+            }
+        }
+
+        final int[] result = new int[orders.size()];
+        int count = 0;
+        for (Integer order : orders) {
+            result[count++] = order;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Gets number that orders hands the way poker does: by value of the hand,
+     * then by rankings of the cards, cards of larger groups of the same
+     * ranking and of higher rankings first. Ace is the lowest card in a wheel.
+     */
+    private int getOrder(Card[] cards) {
+        final Value value = getValue(cards);
+        final List<Integer> weights = new ArrayList<Integer>();
+        for (Card card : cards) {
+            weights.add(card.getValue().ordinal() + 1);
+        }
+        final boolean straight = (value == Value.STRAIGHT) || (value == Value.STRAIGHT_FLUSH);
+        final Integer ace = Rank.ACE.ordinal() + 1;
+        if (straight && weights.contains(ace) && weights.contains(Rank.TWO.ordinal() + 1)) {
+            weights.set(weights.indexOf(ace), 0);
+        }
+
+        final List<Integer> counted = new ArrayList<Integer>(weights);
+        Collections.sort(weights, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                final int byCount = Collections.frequency(counted, second)
+                        - Collections.frequency(counted, first);
+                return (byCount != 0) ? byCount : second - first;
+            }
+        });
+
+        int order = value.ordinal();
+        for (Integer weight : weights) {
+            order = (order << 4) | weight;
+        }
+        return order;
+    }
+
+    private static Rank findFourOfaKind(Card[] cards) {
+        return findNOfaKind(cards, 4);
+    }
+
+    private static Rank findThreeOfaKind(Card[] cards) {
+        return findNOfaKind(cards, 3);
+    }
+
+    /**
+     * Helper method that looks for number of cards with the same ranking in
+     * the hand. Supposed to be used only with n=3 and n=4, that's why in the
+     * sorted array of cards, cards[2] will be involved in combination if it is
+     * three or four of a kind.
+     * 
+     * @param cards
+     *            sorted cards of the hand
+     * @param n
+     *            the number of cards to look for
+     * @return Rank of the card if found, null if number of cards with this
+     *         ranking is less or more than n
+     */
+    private static Rank findNOfaKind(Card[] cards, int n) {
+        Rank middle = cards[2].getValue();
+
+        int foundCardsLikeMiddle = 0;
+        for (int i = 0; i < NUMBER_OF_CARDS; i++) {
+            if (cards[i].getValue() == middle) {
+                foundCardsLikeMiddle++;
+            }
+        }
+
+        if (foundCardsLikeMiddle == n) {
+            return middle;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Helper method looking for pairs in the hand. 
+     * Skips three and four of a kind.
+     * 
+     * @param cards
+     *            sorted cards of the hand
+     * @return List of pairs found
+     */
+    private static List<Rank> findPairs(Card[] cards) {
+        List<Rank> result = new ArrayList<Rank>();
+        for (int i = 1; i < NUMBER_OF_CARDS - 1; i++) {
+            final Rank current = cards[i].getValue();
+            final Rank prev = cards[i - 1].getValue();
+            final Rank next = cards[i + 1].getValue();
+            if (current == prev) {
+                if (current != next) { // check for three of a kind
+                    result.add(current);
+                }
+                i++;
+            }
+        }
+
+        final Rank current = cards[NUMBER_OF_CARDS - 2].getValue();
+        final Rank prev = cards[NUMBER_OF_CARDS - 3].getValue();
+        final Rank next = cards[NUMBER_OF_CARDS - 1].getValue();
+        if (current == next) {
+            if (current != prev) {
+                result.add(current);
+            }
+        }
+        return result;
+    }
+
+    private static boolean isFlush(Card[] cards) {
+        for (int i = 1; i < NUMBER_OF_CARDS; i++) {
+            if (cards[i].getSuit() != cards[i - 1].getSuit()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isStraight(Card[] cards) {
+        // check first four cards
+        for (int i = 1; i < NUMBER_OF_CARDS - 1; i++) {
+            if (cards[i].isNextOf(cards[i - 1]) == false) {
+                return false;
+            }
+        }
+        
+        final Card last = cards[NUMBER_OF_CARDS - 1];
+        final Card lastButOne = cards[NUMBER_OF_CARDS - 2];
+        final Card first = cards[0];
+
+        if (last.isNextOf(lastButOne)) {
+            return true; //normal straight
+        }
+
+        if ((last.getValue() == Rank.ACE) && (first.getValue() == Rank.TWO)) {
+            return true; // a wheel
+        }
+
+        return false;
+    }
+}
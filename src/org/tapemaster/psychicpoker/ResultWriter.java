@@ -0,0 +1,258 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Writes results of games in the format
+ * "Hand: TH JH QC QD QS Deck: QH KH AH 2S 6S Best hand: straight-flush",
+ * optionally followed by " Discard: TH JH QC" with cards to discard, or in
+ * the binary format of {@link BinaryGames}.
+ * Results are put into a large buffer from pre-rendered bytes of captions and
+ * the buffer is written to the channel when it is full, so writing a result
+ * doesn't create any objects.
+ * <p>
+ * Like {@link java.io.PrintStream}, the writer doesn't throw exceptions on
+ * writing, {@link #checkError()} tells if any of them happened.
+ */
+public class ResultWriter implements Flushable, Closeable {
+
+    /**
+     * Default size of the buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private static final byte[] HAND = bytes("Hand: ");
+    private static final byte[] DECK = bytes(" Deck: ");
+    private static final byte[] BEST_HAND = bytes(" Best hand: ");
+    private static final byte[] DISCARD = bytes(" Discard: ");
+    private static final byte[] NONE = bytes("none");
+    private static final byte[] LINE_SEPARATOR = bytes(System.lineSeparator());
+
+    /**
+     * Captions of cards indexed by {@link Card#getIndex()}.
+     */
+    private static final byte[][] sCards = new byte[Card.NUMBER_OF_CARDS][];
+
+    /**
+     * Captions of hand values indexed by ordinal.
+     */
+    private static final byte[][] sValues = new byte[Value.values().length][];
+
+    /**
+     * Maximum length of one result of a game of the largest size.
+     */
+    private static final int MAX_RESULT_LENGTH;
+
+    static {
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            sCards[i] = bytes(Card.of(i).toString());
+        }
+        int maxValueLength = 0;
+        for (Value value : Value.values()) {
+            sValues[value.ordinal()] = bytes(value.toString());
+            maxValueLength = Math.max(maxValueLength, sValues[value.ordinal()].length);
+        }
+        MAX_RESULT_LENGTH = HAND.length + DECK.length + BEST_HAND.length + maxValueLength
+                + DISCARD.length + LINE_SEPARATOR.length
+                + (Card.CAPTION_LENGTH + 1) * GameSize.MAX_CARDS * 3;
+    }
+
+    private final WritableByteChannel mChannel;
+    private final ByteBuffer mBuffer;
+    private final boolean mBinary;
+    private boolean mError;
+
+    /**
+     * Creates writer with default buffer size.
+     */
+    public ResultWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates writer.
+     * 
+     * @param channel
+     *            the channel to write to
+     * @param bufferSize
+     *            size of the buffer, it must fit at least one result
+     */
+    public ResultWriter(WritableByteChannel channel, int bufferSize) {
+        this(channel, bufferSize, false);
+    }
+
+    /**
+     * Creates writer.
+     * 
+     * @param channel
+     *            the channel to write to
+     * @param bufferSize
+     *            size of the buffer, it must fit at least one result
+     * @param binary
+     *            whether results are written as one byte each, see
+     *            {@link BinaryGames}
+     */
+    public ResultWriter(WritableByteChannel channel, int bufferSize, boolean binary) {
+        if (bufferSize < MAX_RESULT_LENGTH) {
+            throw new IllegalArgumentException("Buffer size must be at least "
+                    + MAX_RESULT_LENGTH);
+        }
+        mChannel = channel;
+        mBuffer = ByteBuffer.allocate(bufferSize);
+        mBinary = binary;
+    }
+
+    /**
+     * Writes result of the game.
+     * 
+     * @param hand
+     *            cards of the hand in order to write them
+     * @param deck
+     *            cards of the deck
+     * @param best
+     *            value of the best possible hand
+     */
+    public void write(Card[] hand, Card[] deck, Value best) {
+        if (mBinary) {
+            putByte((byte) best.ordinal());
+            return;
+        }
+        putResult(hand, deck, best);
+        mBuffer.put(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes result of the game with the cards to discard, which are left out
+     * in binary format.
+     * 
+     * @param hand
+     *            cards of the hand in order of {@link GameResult#getDiscardMask()}
+     * @param deck
+     *            cards of the deck
+     * @param result
+     *            result of the game
+     */
+    public void write(Card[] hand, Card[] deck, GameResult result) {
+        if (mBinary) {
+            putByte((byte) result.getValue().ordinal());
+            return;
+        }
+        putResult(hand, deck, result.getValue());
+        mBuffer.put(DISCARD);
+        final int mask = result.getDiscardMask();
+        if (mask == 0) {
+            mBuffer.put(NONE);
+        }
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            if (bits != mask) {
+                mBuffer.put((byte) ' ');
+            }
+            mBuffer.put(sCards[hand[Integer.numberOfTrailingZeros(bits)].getIndex()]);
+        }
+        mBuffer.put(LINE_SEPARATOR);
+    }
+
+    private void putResult(Card[] hand, Card[] deck, Value best) {
+        if (mBuffer.remaining() < MAX_RESULT_LENGTH) {
+            flushBuffer();
+        }
+        mBuffer.put(HAND);
+        putCards(hand);
+        mBuffer.put(DECK);
+        putCards(deck);
+        mBuffer.put(BEST_HAND);
+        mBuffer.put(sValues[best.ordinal()]);
+    }
+
+    /**
+     * Writes result of the game that couldn't be solved. Nothing is written
+     * in text format, where the error is reported separately.
+     */
+    public void writeError() {
+        if (mBinary) {
+            putByte(BinaryGames.ERROR);
+        }
+    }
+
+    private void putByte(byte value) {
+        if (!mBuffer.hasRemaining()) {
+            flushBuffer();
+        }
+        mBuffer.put(value);
+    }
+
+    /**
+     * Writes raw bytes, for messages mixed with results.
+     */
+    void write(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            if (!mBuffer.hasRemaining()) {
+                flushBuffer();
+            }
+            final int count = Math.min(length, mBuffer.remaining());
+            mBuffer.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private void putCards(Card[] cards) {
+        for (int i = 0; i < cards.length; i++) {
+            if (i != 0) {
+                mBuffer.put((byte) ' ');
+            }
+            mBuffer.put(sCards[cards[i].getIndex()]);
+        }
+    }
+
+    /**
+     * Writes all buffered results to the channel.
+     */
+    @Override
+    public void flush() {
+        flushBuffer();
+    }
+
+    private void flushBuffer() {
+        mBuffer.flip();
+        try {
+            while (mBuffer.hasRemaining()) {
+                mChannel.write(mBuffer);
+            }
+        } catch (IOException e) {
+            mError = true;
+        }
+        mBuffer.clear();
+    }
+
+    /**
+     * Flushes buffered results and closes the channel.
+     */
+    @Override
+    public void close() {
+        flush();
+        try {
+            mChannel.close();
+        } catch (IOException e) {
+            mError = true;
+        }
+    }
+
+    /**
+     * Checks if any error happened while writing.
+     */
+    public boolean checkError() {
+        return mError;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
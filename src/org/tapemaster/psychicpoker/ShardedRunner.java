@@ -0,0 +1,388 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Solves games of the input file in several worker processes. The file is
+ * split into shards of about equal size at line boundaries, and each shard is
+ * solved by a JVM running {@link PsychicPoker} on its range of bytes, writing
+ * results to a temporary file. Unlike {@link ParallelSolver}, shards don't
+ * share a heap, so a crashed or stalled JVM loses only its shard.
+ * <p>
+ * Workers report the numbers of bytes and lines solved, and progress of all
+ * shards is printed periodically. A worker that fails or doesn't solve its
+ * whole range is started again, up to {@link #MAX_ATTEMPTS} times. When all
+ * shards are solved, their results are written in the order of the input, so
+ * the output is the same as when solving in one process, or their summaries
+ * are added up. Errors printed by workers follow in the same order, with
+ * numbers of lines in the whole file.
+ */
+public class ShardedRunner {
+
+    /**
+     * Number of times a shard is started before giving up.
+     */
+    public static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Prefix of lines workers print to standard output with the numbers of
+     * bytes and lines of their range solved so far.
+     */
+    static final String PROGRESS = "Progress: ";
+
+    /**
+     * Default interval of printing progress.
+     */
+    private static final long DEFAULT_PROGRESS_MILLIS = 5000;
+
+    /**
+     * Interval of checking if workers are done.
+     */
+    private static final long POLL_MILLIS = 50;
+
+    /**
+     * Worker option needing the Vector API module.
+     */
+    private static final String VECTOR_OPTION = "--vector";
+
+    /**
+     * Start of the warning the JVM prints to standard error when incubator
+     * modules are added, which is not copied from workers.
+     */
+    private static final String INCUBATOR_WARNING = "WARNING: Using incubator modules";
+
+    private final int mShards;
+    private List<String> mCommand;
+    private List<String> mArguments = Collections.<String>emptyList();
+    private Summary mSummary;
+    private long mProgressMillis = DEFAULT_PROGRESS_MILLIS;
+
+    /**
+     * Creates runner.
+     * 
+     * @param shards
+     *            number of shards and worker processes
+     * @throws IllegalArgumentException
+     *             if number of shards is not positive
+     */
+    public ShardedRunner(int shards) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Number of shards must be positive");
+        }
+        mShards = shards;
+    }
+
+    /**
+     * Sets command starting a worker, which is followed by the worker
+     * arguments and the shard options. By default it is the java executable
+     * of this JVM with its heap options, running {@link PsychicPoker} from
+     * the same class path, see {@link #getDefaultCommand(boolean)}.
+     */
+    public void setWorkerCommand(List<String> command) {
+        mCommand = new ArrayList<String>(command);
+    }
+
+    /**
+     * Sets options passed to every worker, such as the solver or the game
+     * size. None are passed by default.
+     */
+    public void setWorkerArguments(List<String> arguments) {
+        mArguments = new ArrayList<String>(arguments);
+    }
+
+    /**
+     * Sets summary to add summaries of workers to instead of writing their
+     * results, see {@link Summary}.
+     */
+    public void setSummary(Summary summary) {
+        mSummary = summary;
+    }
+
+    /**
+     * Sets interval of printing progress of shards.
+     */
+    public void setProgressInterval(long millis) {
+        mProgressMillis = millis;
+    }
+
+    /**
+     * Solves all games of the file.
+     * 
+     * @param inputFile
+     *            the file with a game on each line
+     * @param out
+     *            channel to write results to
+     * @param err
+     *            stream to print progress and errors to
+     * @throws IOException
+     *             if the file can't be read, results can't be written or a
+     *             shard failed {@link #MAX_ATTEMPTS} times
+     */
+    public void run(File inputFile, WritableByteChannel out, PrintStream err)
+            throws IOException, InterruptedException {
+        if (mCommand == null) {
+            mCommand = getDefaultCommand(mArguments.contains(VECTOR_OPTION));
+        }
+        final List<Shard> shards = split(inputFile);
+        final File directory = Files.createTempDirectory("shards").toFile();
+        try {
+            for (Shard shard : shards) {
+                shard.mOut = new File(directory, "shard-" + shard.mIndex + ".out");
+                shard.mErr = new File(directory, "shard-" + shard.mIndex + ".err");
+                start(shard, inputFile);
+            }
+            waitFor(shards, inputFile, err);
+
+            long lines = 0;
+            for (Shard shard : shards) {
+                if (mSummary != null) {
+                    try {
+                        mSummary.add(Files.readAllLines(shard.mOut.toPath(),
+                                StandardCharsets.US_ASCII));
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException("Wrong summary of shard " + shard.mIndex + ": "
+                                + e.getMessage());
+                    }
+                } else {
+                    transfer(shard.mOut, out);
+                }
+                // workers number lines of their range from 1
+                copyErrors(shard.mErr, err, lines);
+                lines += shard.mLines;
+            }
+        } finally {
+            for (Shard shard : shards) {
+                if (shard.mProcess != null) {
+                    shard.mProcess.destroyForcibly();
+                }
+                if (shard.mOut != null) {
+                    shard.mOut.delete();
+                    shard.mErr.delete();
+                }
+            }
+            directory.delete();
+        }
+    }
+
+    /**
+     * Splits the file into shards at line boundaries, skipping empty ones.
+     */
+    private List<Shard> split(File inputFile) throws IOException {
+        final List<Shard> shards = new ArrayList<Shard>(mShards);
+        final RandomAccessFile file = new RandomAccessFile(inputFile, "r");
+        try {
+            final FileChannel channel = file.getChannel();
+            final long size = channel.size();
+            long start = 0;
+            for (int i = 1; i <= mShards; i++) {
+                final long end = (i == mShards) ? size
+                        : MappedLineReader.findLineStart(channel, size / mShards * i);
+                if (end > start) {
+                    shards.add(new Shard(shards.size(), start, end));
+                }
+                start = Math.max(start, end);
+            }
+        } finally {
+            file.close();
+        }
+        return shards;
+    }
+
+    /**
+     * Starts worker of the shard and thread reading its progress.
+     */
+    private void start(final Shard shard, File inputFile) throws IOException {
+        final List<String> command = new ArrayList<String>(mCommand);
+        command.addAll(mArguments);
+        if (mSummary != null) {
+            command.add("--summary");
+        }
+        command.add("--output");
+        command.add(shard.mOut.getPath());
+        command.add("--range");
+        command.add(Long.toString(shard.mStart));
+        command.add(Long.toString(shard.mEnd));
+        command.add(inputFile.getPath());
+
+        shard.mDone = 0;
+        shard.mLines = 0;
+        shard.mAttempts++;
+        final Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.to(shard.mErr)).start();
+        shard.mProcess = process;
+        shard.mReader = new Thread("shard-" + shard.mIndex + "-progress") {
+            @Override
+            public void run() {
+                try {
+                    final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                            process.getInputStream(), StandardCharsets.US_ASCII));
+                    try {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (line.startsWith(PROGRESS)) {
+                                final String[] fields = line.substring(PROGRESS.length())
+                                        .trim().split(" ");
+                                shard.mLines = Long.parseLong(fields[1]);
+                                shard.mDone = Long.parseLong(fields[0]);
+                            }
+                        }
+                    } finally {
+                        reader.close();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // the shard isn't complete without its last progress
+                }
+            }
+        };
+        shard.mReader.setDaemon(true);
+        shard.mReader.start();
+    }
+
+    /**
+     * Waits until workers of all shards are done, starting failed ones again
+     * and printing progress.
+     */
+    private void waitFor(List<Shard> shards, File inputFile, PrintStream err)
+            throws IOException, InterruptedException {
+        long nextProgress = System.currentTimeMillis() + mProgressMillis;
+        int running = shards.size();
+        while (running > 0) {
+            Thread.sleep(POLL_MILLIS);
+            for (Shard shard : shards) {
+                if (shard.mProcess == null || shard.mProcess.isAlive()) {
+                    continue;
+                }
+                shard.mReader.join();
+                final int exitCode = shard.mProcess.exitValue();
+                if (exitCode == 0 && shard.mDone == shard.mEnd - shard.mStart) {
+                    shard.mProcess = null;
+                    running--;
+                    continue;
+                }
+                err.println("Shard " + shard.mIndex + " failed with exit code " + exitCode
+                        + " after " + shard.mDone + " of " + (shard.mEnd - shard.mStart)
+                        + " bytes" + ((shard.mAttempts < MAX_ATTEMPTS) ? ", retrying" : ""));
+                copyErrors(shard.mErr, err, 0);
+                if (shard.mAttempts >= MAX_ATTEMPTS) {
+                    shard.mProcess = null;
+                    throw new IOException("Shard " + shard.mIndex + " failed "
+                            + MAX_ATTEMPTS + " times");
+                }
+                start(shard, inputFile);
+            }
+            if (running > 0 && System.currentTimeMillis() >= nextProgress) {
+                err.println(getProgress(shards));
+                nextProgress += mProgressMillis;
+            }
+        }
+    }
+
+    private static String getProgress(List<Shard> shards) {
+        final StringBuilder result = new StringBuilder("Shards:");
+        for (Shard shard : shards) {
+            result.append(' ').append(shard.mIndex).append(' ')
+                    .append(shard.mDone * 100 / (shard.mEnd - shard.mStart)).append('%');
+        }
+        return result.toString();
+    }
+
+    /**
+     * Copies errors printed by a worker, leaving out warnings of its JVM,
+     * with line numbers shifted by the offset.
+     */
+    private static void copyErrors(File file, PrintStream err, long offset)
+            throws IOException {
+        final BufferedReader reader = Files.newBufferedReader(file.toPath(),
+                StandardCharsets.US_ASCII);
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith(INCUBATOR_WARNING)) {
+                    err.println(PsychicPoker.shiftLineNumber(line, offset));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void transfer(File file, WritableByteChannel out) throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = input.getChannel();
+            final long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, out);
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Gets command running {@link PsychicPoker} in a JVM like this one. Heap
+     * and system property options are passed on, flight recordings are not,
+     * as workers would write the same file.
+     * 
+     * @param vector
+     *            whether module options are passed on, only workers solving
+     *            with {@link VectorSearch} need them
+     */
+    static List<String> getDefaultCommand(boolean vector) {
+        final List<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java")
+                .getPath());
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (arg.startsWith("-Xm") || arg.startsWith("-Xss") || arg.startsWith("-D")
+                    || vector && arg.startsWith("--add-modules")) {
+                command.add(arg);
+            }
+        }
+        command.add("-cp");
+        try {
+            command.add(new File(PsychicPoker.class.getProtectionDomain().getCodeSource()
+                    .getLocation().toURI()).getPath());
+        } catch (URISyntaxException e) {
+            command.add(System.getProperty("java.class.path"));
+        }
+        command.add(PsychicPoker.class.getName());
+        return command;
+    }
+
+    /**
+     * Range of the input solved by a worker.
+     */
+    private static class Shard {
+        final int mIndex;
+        final long mStart;
+        final long mEnd;
+        File mOut;
+        File mErr;
+        Process mProcess;
+        Thread mReader;
+        int mAttempts;
+        volatile long mDone;
+        volatile long mLines;
+
+        Shard(int index, long start, long end) {
+            mIndex = index;
+            mStart = start;
+            mEnd = end;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Client of {@link SolverServer} streaming a file of games through it. The
+ * file is sent on a separate thread while results are received, so the
+ * requests are pipelined without waiting for each result.
+ */
+public class SolverClient {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private SolverClient() {
+    }
+
+    /**
+     * Sends all lines of the file to the server and writes results to the
+     * channel.
+     *
+     * @param address
+     *            address of the server
+     * @param inputFile
+     *            the file with a game on each line
+     * @param out
+     *            channel to write results to
+     */
+    public static void solve(SocketAddress address, File inputFile, WritableByteChannel out)
+            throws IOException {
+        final SocketChannel connection = SocketChannel.open(address);
+        try {
+            final Sender sender = new Sender(connection, inputFile);
+            final Thread thread = new Thread(sender, "sender");
+            thread.setDaemon(true);
+            thread.start();
+
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (connection.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+
+            thread.join();
+            if (sender.mError != null) {
+                throw sender.mError;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending file", e);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Sends the file and shuts down output of the connection, so that the
+     * server knows there are no more lines.
+     */
+    private static class Sender implements Runnable {
+
+        private final SocketChannel mConnection;
+        private final File mFile;
+        private IOException mError;
+
+        Sender(SocketChannel connection, File file) {
+            mConnection = connection;
+            mFile = file;
+        }
+
+        @Override
+        public void run() {
+            RandomAccessFile file = null;
+            try {
+                file = new RandomAccessFile(mFile, "r");
+                final FileChannel channel = file.getChannel();
+                final long size = channel.size();
+                long position = 0;
+                while (position < size) {
+                    position += channel.transferTo(position, size - position, mConnection);
+                }
+                mConnection.shutdownOutput();
+            } catch (IOException e) {
+                mError = e;
+            } finally {
+                try {
+                    if (file != null) {
+                        file.close();
+                    }
+                } catch (IOException e) {
+                    if (mError == null) {
+                        mError = e;
+                    }
+                }
+            }
+        }
+    }
+}
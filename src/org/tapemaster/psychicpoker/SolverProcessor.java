@@ -0,0 +1,591 @@
+package org.tapemaster.psychicpoker;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Processor solving games received from a {@link Flow.Publisher} and
+ * publishing a {@link Result} for each of them, for embedding the solver in
+ * a stream without threads, files or standard output in between. Games are
+ * lines of card captions, see {@link #forLines}, or games packed as in
+ * {@link BinaryGames}, see {@link #forPackedGames}.
+ * <p>
+ * The processor has a single subscriber, and games are requested from the
+ * upstream only for results the subscriber has requested, at most the buffer
+ * size of games that are not yet delivered. Until a subscriber arrives nothing
+ * is requested, so no result is lost however the processor is connected.
+ * Games are collected into batches of a quarter of the buffer, which are
+ * solved on the executor; a batch is dispatched early when no other batch is
+ * being solved, so that a slow stream isn't delayed. Results of batches are
+ * delivered in the order of the games, or as soon as the batch is solved if
+ * the order isn't needed.
+ * <p>
+ * The subscriber and the upstream are called without holding a lock, one
+ * signal at a time, from the thread that solved a batch or that caused the
+ * signal. An error of the upstream is passed to the subscriber after results
+ * of games received before it. An error of solving cancels the upstream and
+ * is passed on at once, dropping results not delivered yet.
+ */
+public abstract class SolverProcessor<T>
+        implements Flow.Processor<T, SolverProcessor.Result<T>> {
+
+    /**
+     * Number of batches the buffer is divided into.
+     */
+    private static final int BATCHES = 4;
+
+    private final Executor mExecutor;
+    private final int mBufferSize;
+    private final int mBatchSize;
+    private final boolean mOrdered;
+
+    /**
+     * Games received for the next batch.
+     */
+    private List<T> mBatch;
+
+    /**
+     * Batches solved out of order, indexed by sequence number.
+     */
+    private final Map<Long, Batch<T>> mSolved = new HashMap<Long, Batch<T>>();
+
+    /**
+     * Results ready to be delivered to the subscriber.
+     */
+    private final Queue<Result<T>> mReady = new ArrayDeque<Result<T>>();
+
+    private Flow.Subscription mSubscription;
+    private Flow.Subscriber<? super Result<T>> mSubscriber;
+    private boolean mSubscribed;
+    private long mNextSequence;
+    private long mNextPublished;
+    private int mPending;
+    private boolean mDone;
+    private Throwable mError;
+
+    /**
+     * Results requested by the subscriber and not delivered yet.
+     */
+    private long mDemand;
+
+    /**
+     * Games requested from the upstream whose results are not delivered yet.
+     */
+    private long mOutstanding;
+
+    /**
+     * Whether the stream is failed by the processor itself, so that no more
+     * results are delivered.
+     */
+    private boolean mFailed;
+
+    private boolean mCancelUpstream;
+    private boolean mTerminated;
+    private boolean mDraining;
+    private boolean mMissed;
+
+    /**
+     * Creates processor.
+     * 
+     * @param executor
+     *            executor to solve batches on
+     * @param bufferSize
+     *            maximal number of games requested but not yet delivered
+     * @param ordered
+     *            whether results are delivered in the order of games
+     * @throws IllegalArgumentException
+     *             if buffer size is not positive
+     */
+    SolverProcessor(Executor executor, int bufferSize, boolean ordered) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        mExecutor = executor;
+        mBufferSize = bufferSize;
+        mBatchSize = Math.max(1, bufferSize / BATCHES);
+        mOrdered = ordered;
+        mBatch = new ArrayList<T>(mBatchSize);
+    }
+
+    /**
+     * Creates processor of lines of games of standard size, solved by
+     * {@link GameSolver#ALL_VARIATIONS}.
+     */
+    public static SolverProcessor<CharSequence> forLines(Executor executor, int bufferSize,
+            boolean ordered) {
+        return forLines(executor, bufferSize, ordered, GameSize.STANDARD,
+                GameSolver.ALL_VARIATIONS);
+    }
+
+    /**
+     * Creates processor of lines of games, as read from input files. Lines
+     * are validated by {@link LineValidator}, results of rejected lines have
+     * its message as error.
+     * 
+     * @param size
+     *            size of the games
+     * @param solver
+     *            solver of the games, it must be thread-safe
+     */
+    public static SolverProcessor<CharSequence> forLines(Executor executor, int bufferSize,
+            boolean ordered, GameSize size, GameSolver solver) {
+        return new LineProcessor(executor, bufferSize, ordered, size, solver);
+    }
+
+    /**
+     * Creates processor of games packed as in {@link BinaryGames}, solved in
+     * batches by {@link Game#solveBatch}.
+     */
+    public static SolverProcessor<Long> forPackedGames(Executor executor, int bufferSize,
+            boolean ordered) {
+        return new PackedProcessor(executor, bufferSize, ordered);
+    }
+
+    /**
+     * Solves the games of a batch.
+     * 
+     * @return results in the order of the games
+     */
+    abstract List<Result<T>> solve(List<T> games);
+
+    /**
+     * Subscribes the only subscriber, any other one gets
+     * {@link IllegalStateException} as error.
+     */
+    @Override
+    public void subscribe(final Flow.Subscriber<? super Result<T>> subscriber) {
+        final boolean accepted;
+        synchronized (this) {
+            accepted = (mSubscriber == null);
+            if (accepted) {
+                mSubscriber = subscriber;
+            }
+        }
+        if (!accepted) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Processor has a subscriber already"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                requested(n);
+            }
+
+            @Override
+            public void cancel() {
+                cancelled();
+            }
+        });
+        synchronized (this) {
+            mSubscribed = true;
+        }
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        synchronized (this) {
+            if (mSubscription == null) {
+                mSubscription = subscription;
+                subscription = null;
+            }
+        }
+        if (subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onNext(T game) {
+        if (game == null) {
+            throw new NullPointerException("Game must not be null");
+        }
+        final Batch<T> batch;
+        synchronized (this) {
+            if (mDone) {
+                return;
+            }
+            mBatch.add(game);
+            batch = (mBatch.size() >= mBatchSize || mPending == 0) ? nextBatch() : null;
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        finish(error);
+    }
+
+    @Override
+    public void onComplete() {
+        finish(null);
+    }
+
+    /**
+     * Finishes the stream after games received so far are delivered.
+     */
+    private void finish(Throwable error) {
+        final Batch<T> batch;
+        synchronized (this) {
+            if (mDone) {
+                return;
+            }
+            mDone = true;
+            mError = error;
+            batch = mBatch.isEmpty() ? null : nextBatch();
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+        drain();
+    }
+
+    private void requested(long n) {
+        synchronized (this) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException(
+                        "Number of requested results must be positive"));
+            } else {
+                mDemand = (mDemand + n < 0) ? Long.MAX_VALUE : mDemand + n;
+            }
+        }
+        drain();
+    }
+
+    private void cancelled() {
+        synchronized (this) {
+            if (!mDone) {
+                mCancelUpstream = true;
+            }
+            mDone = true;
+            mTerminated = true;
+            mBatch.clear();
+            mReady.clear();
+        }
+        drain();
+    }
+
+    /**
+     * Takes the current batch to be solved.
+     */
+    private Batch<T> nextBatch() {
+        final Batch<T> batch = new Batch<T>(mNextSequence++, mBatch);
+        mBatch = new ArrayList<T>(mBatchSize);
+        mPending++;
+        return batch;
+    }
+
+    /**
+     * Sends the batch to the executor.
+     */
+    private void dispatch(final Batch<T> batch) {
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        batch.mResults = solve(batch.mGames);
+                    } catch (Throwable e) {
+                        batch.mError = e;
+                    }
+                    solved(batch);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                mPending--;
+                fail(e);
+            }
+            drain();
+        }
+    }
+
+    /**
+     * Makes results of the solved batch ready, and of batches solved before
+     * it that waited for it.
+     */
+    private void solved(Batch<T> batch) {
+        Batch<T> next = null;
+        synchronized (this) {
+            mPending--;
+            if (mOrdered) {
+                mSolved.put(batch.mSequence, batch);
+                Batch<T> solved;
+                while ((solved = mSolved.remove(mNextPublished)) != null) {
+                    ready(solved);
+                    mNextPublished++;
+                }
+            } else {
+                ready(batch);
+            }
+            if (!mBatch.isEmpty() && mPending == 0) {
+                next = nextBatch();
+            }
+        }
+        if (next != null) {
+            dispatch(next);
+        }
+        drain();
+    }
+
+    private void ready(Batch<T> batch) {
+        if (batch.mError != null) {
+            if (!mFailed) {
+                fail(batch.mError);
+            }
+        } else if (!mFailed && !mTerminated) {
+            mReady.addAll(batch.mResults);
+        }
+    }
+
+    /**
+     * Fails the stream, cancelling the upstream and dropping games not
+     * delivered yet.
+     */
+    private void fail(Throwable error) {
+        if (!mDone) {
+            mCancelUpstream = true;
+        }
+        mDone = true;
+        mFailed = true;
+        mError = error;
+        mBatch.clear();
+        mReady.clear();
+    }
+
+    /**
+     * Delivers ready results as requested, then the end of the stream, and
+     * requests more games from the upstream. Only one thread drains at a
+     * time, and signals are sent outside of the lock; a thread finding
+     * another one draining leaves its work to it.
+     */
+    private void drain() {
+        synchronized (this) {
+            if (mDraining) {
+                mMissed = true;
+                return;
+            }
+            mDraining = true;
+        }
+        while (true) {
+            Flow.Subscription upstream = null;
+            boolean cancel = false;
+            long request = 0;
+            Flow.Subscriber<? super Result<T>> subscriber = null;
+            Result<T> result = null;
+            Throwable error = null;
+            synchronized (this) {
+                if (mCancelUpstream && mSubscription != null) {
+                    mCancelUpstream = false;
+                    upstream = mSubscription;
+                    cancel = true;
+                } else if (mSubscribed && !mTerminated) {
+                    if (mFailed) {
+                        mTerminated = true;
+                        subscriber = mSubscriber;
+                        error = mError;
+                    } else if (mDemand > 0 && !mReady.isEmpty()) {
+                        subscriber = mSubscriber;
+                        result = mReady.remove();
+                        if (mDemand != Long.MAX_VALUE) {
+                            mDemand--;
+                        }
+                        mOutstanding--;
+                    } else if (mDone && mPending == 0 && mReady.isEmpty()) {
+                        mTerminated = true;
+                        subscriber = mSubscriber;
+                        error = mError;
+                    } else if (!mDone && mSubscription != null) {
+                        request = Math.min(mBufferSize, mDemand) - mOutstanding;
+                        if (request > 0) {
+                            mOutstanding += request;
+                            upstream = mSubscription;
+                        }
+                    }
+                }
+                if (upstream == null && subscriber == null) {
+                    if (!mMissed) {
+                        mDraining = false;
+                        return;
+                    }
+                    mMissed = false;
+                    continue;
+                }
+            }
+            if (cancel) {
+                upstream.cancel();
+            } else if (upstream != null) {
+                upstream.request(request);
+            } else if (result != null) {
+                subscriber.onNext(result);
+            } else if (error != null) {
+                subscriber.onError(error);
+            } else {
+                subscriber.onComplete();
+            }
+        }
+    }
+
+    /**
+     * Games of a batch and their results.
+     */
+    private static class Batch<T> {
+        final long mSequence;
+        final List<T> mGames;
+        List<Result<T>> mResults;
+        Throwable mError;
+
+        Batch(long sequence, List<T> games) {
+            mSequence = sequence;
+            mGames = games;
+        }
+    }
+
+    /**
+     * Result of a game: value of the best hand, or error if it couldn't be
+     * solved.
+     */
+    public static final class Result<T> {
+
+        private final T mGame;
+        private final Value mValue;
+        private final String mError;
+
+        Result(T game, Value value, String error) {
+            mGame = game;
+            mValue = value;
+            mError = error;
+        }
+
+        /**
+         * Gets the game as it was received.
+         */
+        public T getGame() {
+            return mGame;
+        }
+
+        /**
+         * Checks if the game was solved.
+         */
+        public boolean isSolved() {
+            return mValue != null;
+        }
+
+        /**
+         * Gets value of the best hand, or null if the game couldn't be
+         * solved.
+         */
+        public Value getValue() {
+            return mValue;
+        }
+
+        /**
+         * Gets message of the error, or null if the game was solved.
+         */
+        public String getError() {
+            return mError;
+        }
+
+        @Override
+        public String toString() {
+            return mGame + ": " + (isSolved() ? mValue : mError);
+        }
+    }
+
+    /**
+     * Processor of lines of card captions.
+     */
+    private static class LineProcessor extends SolverProcessor<CharSequence> {
+
+        private final GameSize mSize;
+        private final GameSolver mSolver;
+        private final LineValidator mValidator;
+
+        LineProcessor(Executor executor, int bufferSize, boolean ordered, GameSize size,
+                GameSolver solver) {
+            super(executor, bufferSize, ordered);
+            mSize = size;
+            mSolver = solver;
+            mValidator = new LineValidator(size);
+        }
+
+        @Override
+        List<Result<CharSequence>> solve(List<CharSequence> games) {
+            final List<Result<CharSequence>> results = new ArrayList<Result<CharSequence>>(
+                    games.size());
+            final Card[] hand = new Card[mSize.getHandSize()];
+            final Card[] deck = new Card[mSize.getDeckSize()];
+            for (CharSequence line : games) {
+                final int error = mValidator.validate(line, hand, deck);
+                if (error != LineValidator.VALID) {
+                    results.add(new Result<CharSequence>(line, null,
+                            LineValidator.getMessage(error)));
+                    continue;
+                }
+                try {
+                    results.add(new Result<CharSequence>(line,
+                            mSolver.getBestHand(new Hand(hand), deck), null));
+                } catch (IllegalArgumentException e) {
+                    results.add(new Result<CharSequence>(line, null, e.getMessage()));
+                }
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Processor of packed games.
+     */
+    private static class PackedProcessor extends SolverProcessor<Long> {
+
+        private static final Value[] sValues = Value.values();
+
+        PackedProcessor(Executor executor, int bufferSize, boolean ordered) {
+            super(executor, bufferSize, ordered);
+        }
+
+        @Override
+        List<Result<Long>> solve(List<Long> games) {
+            final LongBuffer packed = LongBuffer.allocate(games.size());
+            for (Long game : games) {
+                packed.put(game);
+            }
+            packed.flip();
+            final ByteBuffer values = ByteBuffer.allocate(games.size());
+            Game.solveBatch(packed, values);
+
+            final List<Result<Long>> results = new ArrayList<Result<Long>>(games.size());
+            for (int i = 0; i < games.size(); i++) {
+                final byte value = values.get(i);
+                results.add((value == BinaryGames.ERROR)
+                        ? new Result<Long>(games.get(i), null, "Wrong card index or duplicate card")
+                        : new Result<Long>(games.get(i), sValues[value], null));
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Long-running solver of games received over a local socket, so that many
+ * files are solved without starting a JVM for each of them. Clients send lines
+ * in the format of input files and receive results in the format of
+ * {@link ResultWriter}, one line for each line sent, errors included. Requests
+ * may be pipelined: results of all complete lines read at once are written
+ * back together.
+ * <p>
+ * Each connection is handled on its own thread. Virtual threads are used on
+ * Java 21 and later; the project is built for Java 17, where connections run
+ * on pooled platform threads, see {@link #hasVirtualThreads()}.
+ */
+public class SolverServer implements Closeable {
+
+    /**
+     * Size of the buffer for lines of a connection, lines must fit into it.
+     */
+    public static final int LINE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Size of the buffer for results of a connection.
+     */
+    private static final int RESULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Factory method of {@link Executors} creating virtual threads, present
+     * since Java 21.
+     */
+    static final String VIRTUAL_THREAD_EXECUTOR = "newVirtualThreadPerTaskExecutor";
+
+    private final SocketAddress mAddress;
+    private final ExecutorService mExecutor;
+    private final boolean mVirtualThreads;
+    private GameSolver mSolver = GameSolver.ALL_VARIATIONS;
+    private GameSize mSize = GameSize.STANDARD;
+    private Statistics mStatistics;
+    private ServerSocketChannel mChannel;
+
+    /**
+     * Creates server.
+     *
+     * @param address
+     *            TCP or Unix domain socket address to listen on, see
+     *            {@link #parseAddress(String)}
+     */
+    public SolverServer(SocketAddress address) {
+        mAddress = address;
+        final ExecutorService virtual = newExecutor(Executors.class, VIRTUAL_THREAD_EXECUTOR);
+        mVirtualThreads = (virtual != null);
+        mExecutor = mVirtualThreads ? virtual : newPlatformExecutor();
+    }
+
+    /**
+     * Returns true if connections are handled on virtual threads, false if
+     * they are handled on platform threads because the runtime is older than
+     * Java 21.
+     */
+    public boolean hasVirtualThreads() {
+        return mVirtualThreads;
+    }
+
+    /**
+     * Parses address of the server: a port number for TCP on the loopback
+     * interface, or a path of Unix domain socket otherwise.
+     */
+    public static SocketAddress parseAddress(String address) {
+        if (!address.isEmpty() && address.chars().allMatch(Character::isDigit)) {
+            final int port = Integer.parseInt(address);
+            if (port > 0xFFFF) {
+                throw new IllegalArgumentException("Port must be from 0 to 65535");
+            }
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        }
+        return UnixDomainSocketAddress.of(address);
+    }
+
+    /**
+     * Sets solver of games shared by all connections, it must be thread-safe.
+     * {@link GameSolver#ALL_VARIATIONS} is used by default.
+     */
+    public void setSolver(GameSolver solver) {
+        mSolver = solver;
+    }
+
+    /**
+     * Sets size of games sent by clients, {@link GameSize#STANDARD} by
+     * default.
+     */
+    public void setGameSize(GameSize size) {
+        mSize = size;
+    }
+
+    /**
+     * Sets statistics shared by all connections, nothing is recorded by
+     * default.
+     */
+    public void setStatistics(Statistics statistics) {
+        mStatistics = statistics;
+    }
+
+    /**
+     * Starts listening on the address.
+     *
+     * @return actual address, with the port chosen by the system if port 0
+     *         was given
+     */
+    public SocketAddress bind() throws IOException {
+        mChannel = (mAddress instanceof UnixDomainSocketAddress)
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+        mChannel.bind(mAddress);
+        return mChannel.getLocalAddress();
+    }
+
+    /**
+     * Accepts connections until the server is closed. Must be called after
+     * {@link #bind()}.
+     */
+    public void serve() throws IOException {
+        try {
+            while (true) {
+                final SocketChannel connection = mChannel.accept();
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        handle(connection);
+                    }
+                });
+            }
+        } catch (ClosedChannelException e) {
+            // closed by close()
+        }
+    }
+
+    /**
+     * Stops accepting connections, connections being handled are served
+     * until clients close them.
+     */
+    @Override
+    public void close() throws IOException {
+        mExecutor.shutdown();
+        if (mChannel != null) {
+            mChannel.close();
+            if (mAddress instanceof UnixDomainSocketAddress) {
+                Files.deleteIfExists(((UnixDomainSocketAddress) mAddress).getPath());
+            }
+        }
+    }
+
+    /**
+     * Solves all lines received from the connection.
+     */
+    private void handle(SocketChannel connection) {
+        try {
+            final ResultWriter out = new ResultWriter(connection, RESULT_BUFFER_SIZE);
+            final PrintStream err = new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                    out.write(new byte[] { (byte) b }, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) {
+                    out.write(bytes, offset, length);
+                }
+            }, true);
+            final PsychicPoker poker = new PsychicPoker(out, err, mSize);
+            poker.setSolver(mSolver);
+            poker.setStatistics(mStatistics);
+            try {
+                readLinesAndPlay(connection, poker, out);
+            } finally {
+                poker.flushStatistics();
+            }
+            out.close();
+        } catch (IOException e) {
+            System.err.println("Error while serving connection: " + e);
+        } finally {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                System.err.println("Error closing connection: " + e);
+            }
+        }
+    }
+
+    private static void readLinesAndPlay(SocketChannel connection, PsychicPoker poker,
+            ResultWriter out) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(LINE_BUFFER_SIZE);
+        while (connection.read(buffer) >= 0) {
+            int start = 0;
+            for (int i = 0; i < buffer.position(); i++) {
+                if (buffer.get(i) == '\n') {
+                    playLine(poker, buffer, start, i);
+                    start = i + 1;
+                }
+            }
+            if (start == 0 && !buffer.hasRemaining()) {
+                throw new IOException("Line is longer than " + LINE_BUFFER_SIZE + " bytes");
+            }
+            buffer.limit(buffer.position()).position(start);
+            buffer.compact();
+            out.flush();
+            if (out.checkError()) {
+                throw new IOException("Error while writing results");
+            }
+        }
+        if (buffer.position() > 0) {
+            playLine(poker, buffer, 0, buffer.position());
+        }
+    }
+
+    /**
+     * Plays the line, dropping '\r' before its end.
+     */
+    private static void playLine(PsychicPoker poker, ByteBuffer buffer, int start, int end) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        poker.playLine(buffer, start, end);
+    }
+
+    /**
+     * Creates executor by calling the static factory method of the class, as
+     * virtual threads can't be referred to when compiling for Java 17.
+     * 
+     * @return the executor, or null if the method doesn't exist
+     */
+    static ExecutorService newExecutor(Class<?> factory, String methodName) {
+        try {
+            final Method method = factory.getMethod(methodName);
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates executor running each task on a pooled daemon thread.
+     */
+    static ExecutorService newPlatformExecutor() {
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                final Thread thread = new Thread(task, "connection");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -0,0 +1,361 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Statistics of solved lines: time spent in each stage of processing, a
+ * histogram of line latencies, and counters of lines, errors and best hand
+ * values. Lines slower than a threshold and failed lines are also reported as
+ * JFR events.
+ * <p>
+ * Each thread records into its own {@link Recorder} with plain fields, which
+ * is merged into the statistics every {@link #MERGE_LINES} lines and when
+ * the thread is done. Without statistics no recorder exists and the only
+ * cost is a null check per stage.
+ */
+public class Statistics {
+
+    /**
+     * Stages of processing a line.
+     */
+    public enum Stage {
+        /**
+         * Reading and splitting input, measured between lines.
+         */
+        READ,
+        PARSE,
+        SOLVE,
+        WRITE
+    }
+
+    /**
+     * Number of lines a recorder collects before merging.
+     */
+    public static final int MERGE_LINES = 4096;
+
+    /**
+     * Default threshold of slow lines.
+     */
+    public static final long DEFAULT_SLOW_LINE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Number of histogram buckets, bucket i counts latencies from 2^(i-1) to
+     * 2^i - 1 nanoseconds.
+     */
+    private static final int BUCKETS = 64;
+
+    private final long mSlowLineNanos;
+    private final long[] mStageNanos = new long[Stage.values().length];
+    private final long[] mValues = new long[Value.values().length];
+    private final long[] mHistogram = new long[BUCKETS];
+    private long mLines;
+    private long mErrors;
+    private long mSlowLines;
+
+    /**
+     * Creates statistics with default threshold of slow lines.
+     */
+    public Statistics() {
+        this(DEFAULT_SLOW_LINE_NANOS);
+    }
+
+    /**
+     * Creates statistics.
+     *
+     * @param slowLineNanos
+     *            lines taking longer are reported as slow
+     */
+    public Statistics(long slowLineNanos) {
+        if (slowLineNanos <= 0) {
+            throw new IllegalArgumentException("Threshold of slow lines must be positive");
+        }
+        mSlowLineNanos = slowLineNanos;
+    }
+
+    /**
+     * Creates recorder for a single thread.
+     */
+    Recorder newRecorder() {
+        return new Recorder();
+    }
+
+    /**
+     * Gets number of lines processed, including failed ones.
+     */
+    public synchronized long getLines() {
+        return mLines;
+    }
+
+    /**
+     * Gets number of lines that couldn't be processed.
+     */
+    public synchronized long getErrors() {
+        return mErrors;
+    }
+
+    /**
+     * Gets number of lines slower than the threshold.
+     */
+    public synchronized long getSlowLines() {
+        return mSlowLines;
+    }
+
+    /**
+     * Gets number of games with given best hand value.
+     */
+    public synchronized long getCount(Value value) {
+        return mValues[value.ordinal()];
+    }
+
+    /**
+     * Gets total time spent in the stage, in nanoseconds.
+     */
+    public synchronized long getNanos(Stage stage) {
+        return mStageNanos[stage.ordinal()];
+    }
+
+    /**
+     * Gets approximate latency of lines at given percentile, as the upper
+     * bound of the histogram bucket, in nanoseconds.
+     *
+     * @param percentile
+     *            percentile from 0 to 100
+     */
+    public synchronized long getLatency(double percentile) {
+        final long rank = (long) Math.ceil(mLines * percentile / 100);
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += mHistogram[i];
+            if (count >= rank && count > 0) {
+                return (i == BUCKETS - 1) ? Long.MAX_VALUE : (1L << i) - 1;
+            }
+        }
+        return 0;
+    }
+
+    private synchronized void merge(Recorder recorder) {
+        for (int i = 0; i < mStageNanos.length; i++) {
+            mStageNanos[i] += recorder.mStageNanos[i];
+        }
+        for (int i = 0; i < mValues.length; i++) {
+            mValues[i] += recorder.mValues[i];
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            mHistogram[i] += recorder.mHistogram[i];
+        }
+        mLines += recorder.mLines;
+        mErrors += recorder.mErrors;
+        mSlowLines += recorder.mSlowLines;
+    }
+
+    /**
+     * Starts printing statistics to the stream periodically, until the
+     * returned executor is shut down.
+     */
+    public ScheduledExecutorService startDump(final PrintStream out, long periodSeconds) {
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable task) {
+                        final Thread thread = new Thread(task, "statistics");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                out.println("Statistics " + Statistics.this);
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        return executor;
+    }
+
+    @Override
+    public synchronized String toString() {
+        final StringBuilder result = new StringBuilder();
+        result.append("lines: ").append(mLines);
+        result.append(", errors: ").append(mErrors);
+        result.append(", slow lines: ").append(mSlowLines);
+        for (Stage stage : Stage.values()) {
+            result.append(", ").append(stage.name().toLowerCase()).append(" ms: ")
+                    .append(TimeUnit.NANOSECONDS.toMillis(mStageNanos[stage.ordinal()]));
+        }
+        result.append(", latency ns p50: ").append(getLatency(50));
+        result.append(", p99: ").append(getLatency(99));
+        result.append(", p99.9: ").append(getLatency(99.9));
+        result.append(", max: ").append(getLatency(100));
+        for (Value value : Value.values()) {
+            result.append(", ").append(value).append(": ").append(mValues[value.ordinal()]);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Records lines processed by a single thread. Stages of a line are marked
+     * in order: {@link #startLine()}, {@link #parsed()}, {@link #solved},
+     * {@link #written()}, then {@link #endLine()} or {@link #failed()}; each
+     * mark adds the time since the previous one to its stage.
+     */
+    class Recorder {
+
+        private final long[] mStageNanos = new long[Stage.values().length];
+        private final long[] mValues = new long[Value.values().length];
+        private final long[] mHistogram = new long[BUCKETS];
+        private long mLines;
+        private long mErrors;
+        private long mSlowLines;
+        private long mLineStart;
+        private long mLast;
+
+        void startLine() {
+            final long now = System.nanoTime();
+            if (mLast != 0) {
+                mStageNanos[Stage.READ.ordinal()] += now - mLast;
+            }
+            mLineStart = now;
+            mLast = now;
+        }
+
+        void parsed() {
+            mark(Stage.PARSE);
+        }
+
+        void solved(Value best) {
+            mark(Stage.SOLVE);
+            mValues[best.ordinal()]++;
+        }
+
+        void written() {
+            mark(Stage.WRITE);
+        }
+
+        /**
+         * Ends the line that was processed.
+         *
+         * @return latency of the line if it is slower than the threshold, or
+         *         0 otherwise
+         */
+        long endLine() {
+            final long now = System.nanoTime();
+            final long latency = now - mLineStart;
+            mLast = now;
+            final boolean slow = (latency > mSlowLineNanos);
+            mHistogram[BUCKETS - Long.numberOfLeadingZeros(latency)]++;
+            mLines++;
+            if (slow) {
+                mSlowLines++;
+            }
+            if (mLines == MERGE_LINES) {
+                flush();
+            }
+            return slow ? latency : 0;
+        }
+
+        /**
+         * Ends the line that couldn't be processed.
+         */
+        void failed() {
+            mErrors++;
+            endLine();
+        }
+
+        /**
+         * Ends the line that couldn't be processed and reports it as JFR
+         * event.
+         */
+        void failed(String line, String error) {
+            failed();
+            final FailedLineEvent event = new FailedLineEvent();
+            if (event.isEnabled()) {
+                event.mLine = line;
+                event.mError = error;
+                event.commit();
+            }
+        }
+
+        private void mark(Stage stage) {
+            final long now = System.nanoTime();
+            mStageNanos[stage.ordinal()] += now - mLast;
+            mLast = now;
+        }
+
+        /**
+         * Merges recorded values into the statistics and resets them.
+         */
+        void flush() {
+            merge(this);
+            Arrays.fill(mStageNanos, 0);
+            Arrays.fill(mValues, 0);
+            Arrays.fill(mHistogram, 0);
+            mLines = 0;
+            mErrors = 0;
+            mSlowLines = 0;
+        }
+    }
+
+    /**
+     * Checks if failed lines are recorded as JFR events, so that a line
+     * needn't be decoded for the event otherwise.
+     */
+    static boolean isFailedLineEnabled() {
+        return new FailedLineEvent().isEnabled();
+    }
+
+    /**
+     * Reports slow line as JFR event.
+     */
+    static void reportSlowLine(String line, long latency) {
+        final SlowLineEvent event = new SlowLineEvent();
+        if (event.isEnabled()) {
+            event.mLine = line;
+            event.mLatency = latency;
+            event.commit();
+        }
+    }
+
+    @Name("org.tapemaster.psychicpoker.SlowLine")
+    @Label("Slow Line")
+    @Category("Psychic Poker")
+    @Description("Line that took longer than the threshold to process")
+    static class SlowLineEvent extends Event {
+
+        @Name("line")
+        @Label("Line")
+        String mLine;
+
+        @Name("latency")
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long mLatency;
+    }
+
+    @Name("org.tapemaster.psychicpoker.FailedLine")
+    @Label("Failed Line")
+    @Category("Psychic Poker")
+    @Description("Line that couldn't be processed")
+    static class FailedLineEvent extends Event {
+
+        @Name("line")
+        @Label("Line")
+        String mLine;
+
+        @Name("error")
+        @Label("Error")
+        String mError;
+    }
+}
@@ -0,0 +1,172 @@
+package org.tapemaster.psychicpoker;
+
+import java.io.PrintStream;
+import java.util.List;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Distribution of results of solved games, kept in primitive counters: games
+ * by value of the best hand, by number of cards discarded to reach it and by
+ * value of the starting hand, and lines that couldn't be solved.
+ * <p>
+ * Games are counted by a single thread without synchronization; each thread
+ * counts into its own summary, which is then merged by {@link #add(Summary)}.
+ */
+public class Summary {
+
+    private final long[] mValues = new long[Value.values().length];
+    private final long[] mStartingValues = new long[Value.values().length];
+    private final long[] mDiscards;
+    private long mGames;
+    private long mErrors;
+
+    /**
+     * Creates empty summary of games of given size.
+     */
+    public Summary(GameSize size) {
+        mDiscards = new long[size.getHandSize() + 1];
+    }
+
+    /**
+     * Counts solved game.
+     * 
+     * @param start
+     *            value of the starting hand
+     * @param best
+     *            value of the best hand
+     * @param discards
+     *            number of cards discarded to get the best hand
+     */
+    void add(Value start, Value best, int discards) {
+        mStartingValues[start.ordinal()]++;
+        mValues[best.ordinal()]++;
+        mDiscards[discards]++;
+        mGames++;
+    }
+
+    /**
+     * Counts line that couldn't be solved.
+     */
+    void failed() {
+        mErrors++;
+    }
+
+    /**
+     * Adds counters of other summary, of games of the same size, to this one.
+     * 
+     * @throws IllegalArgumentException
+     *             if the summary is of games with other hand size
+     */
+    public synchronized void add(Summary other) {
+        if (other.mDiscards.length != mDiscards.length) {
+            throw new IllegalArgumentException("Summary must be of the same hand size");
+        }
+        for (int i = 0; i < mValues.length; i++) {
+            mValues[i] += other.mValues[i];
+            mStartingValues[i] += other.mStartingValues[i];
+        }
+        for (int i = 0; i < mDiscards.length; i++) {
+            mDiscards[i] += other.mDiscards[i];
+        }
+        mGames += other.mGames;
+        mErrors += other.mErrors;
+    }
+
+    /**
+     * Gets number of solved games.
+     */
+    public synchronized long getGames() {
+        return mGames;
+    }
+
+    /**
+     * Gets number of lines that couldn't be solved.
+     */
+    public synchronized long getErrors() {
+        return mErrors;
+    }
+
+    /**
+     * Gets number of games with given best hand value.
+     */
+    public synchronized long getCount(Value value) {
+        return mValues[value.ordinal()];
+    }
+
+    /**
+     * Gets number of games with given value of the starting hand.
+     */
+    public synchronized long getStartingCount(Value value) {
+        return mStartingValues[value.ordinal()];
+    }
+
+    /**
+     * Gets number of games whose best hand is reached by discarding given
+     * number of cards, the fewest possible.
+     */
+    public synchronized long getDiscardCount(int discards) {
+        return mDiscards[discards];
+    }
+
+    /**
+     * Adds counters printed by {@link #print(PrintStream)} to this summary.
+     * 
+     * @throws IllegalArgumentException
+     *             if a line is not a counter of this summary
+     */
+    public synchronized void add(List<String> lines) {
+        for (String line : lines) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            final int separator = line.lastIndexOf(": ");
+            try {
+                final String name = line.substring(0, separator);
+                final long count = Long.parseLong(line.substring(separator + 2));
+                if (name.equals("games")) {
+                    mGames += count;
+                } else if (name.equals("errors")) {
+                    mErrors += count;
+                } else if (name.startsWith("best ")) {
+                    mValues[getValue(name.substring("best ".length())).ordinal()] += count;
+                } else if (name.startsWith("starting ")) {
+                    mStartingValues[getValue(name.substring("starting ".length())).ordinal()]
+                            += count;
+                } else if (name.startsWith("discards ")) {
+                    mDiscards[Integer.parseInt(name.substring("discards ".length()))] += count;
+                } else {
+                    throw new IllegalArgumentException("Unknown counter: " + line);
+                }
+            } catch (IndexOutOfBoundsException | NumberFormatException e) {
+                throw new IllegalArgumentException("Wrong counter: " + line);
+            }
+        }
+    }
+
+    private static Value getValue(String caption) {
+        for (Value value : Value.values()) {
+            if (value.toString().equals(caption)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Unknown hand value: " + caption);
+    }
+
+    /**
+     * Prints the summary, one counter per line.
+     */
+    public synchronized void print(PrintStream out) {
+        out.println("games: " + mGames);
+        out.println("errors: " + mErrors);
+        for (Value value : Value.values()) {
+            out.println("best " + value + ": " + mValues[value.ordinal()]);
+        }
+        for (int i = 0; i < mDiscards.length; i++) {
+            out.println("discards " + i + ": " + mDiscards[i]);
+        }
+        for (Value value : Value.values()) {
+            out.println("starting " + value + ": " + mStartingValues[value.ordinal()]);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.tapemaster.psychicpoker;
+
+import org.tapemaster.psychicpoker.Card.Rank;
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Evaluator that finds strength of a hand with a few table lookups instead of
+ * sorting and scanning the cards, value of the hand is derived from strength.
+ * <p>
+ * Every card is encoded as an int holding a prime number for its ranking, the
+ * ranking bit and the suit bit. A flush is found by AND of suit bits, hands of
+ * five different rankings are looked up by OR of ranking bits, and the rest
+ * are looked up by product of primes, which is unique for every multiset of
+ * rankings.
+ */
+public class TableHandEvaluator implements HandEvaluator {
+
+    private static final int NUMBER_OF_RANKS = Rank.values().length;
+
+    /**
+     * Primes for rankings from TWO to ACE.
+     */
+    private static final int[] PRIMES = { 2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41 };
+
+    private static final int PRIME_MASK = 0xFF;
+    private static final int SUIT_SHIFT = 12;
+    private static final int SUIT_MASK = 0xF << SUIT_SHIFT;
+    private static final int RANK_SHIFT = 16;
+
+    /**
+     * Number of bits used to index products table, it is big enough to keep
+     * the table sparse so that most lookups hit on the first probe.
+     */
+    private static final int PRODUCT_BITS = 14;
+
+    /**
+     * Codes of cards indexed by {@link Card#getIndex()}.
+     */
+    private static final int[] sCodes = new int[Card.NUMBER_OF_CARDS];
+
+    /**
+     * Strengths of flushes indexed by ranking bits.
+     */
+    private static final short[] sFlushes = new short[1 << NUMBER_OF_RANKS];
+
+    /**
+     * Strengths of hands with five different rankings indexed by ranking
+     * bits, 0 for other bits.
+     */
+    private static final short[] sUnique = new short[1 << NUMBER_OF_RANKS];
+
+    /**
+     * Open addressing table of products of primes for hands with repeated
+     * rankings, and strengths for them.
+     */
+    private static final int[] sProducts = new int[1 << PRODUCT_BITS];
+    private static final short[] sProductStrengths = new short[1 << PRODUCT_BITS];
+
+    static {
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            final Card card = Card.of(i);
+            final int rank = card.getValue().ordinal();
+            sCodes[i] = PRIMES[rank] | (1 << (SUIT_SHIFT + card.getSuit().ordinal()))
+                    | (1 << (RANK_SHIFT + rank));
+        }
+        fillTables(new int[NUMBER_OF_RANKS], 0, 0);
+    }
+
+    /**
+     * Recursively goes through all multisets of rankings of the hand size and
+     * puts their values into the tables.
+     * 
+     * @param counts
+     *            number of cards of each ranking chosen so far
+     * @param size
+     *            number of cards chosen so far
+     * @param start
+     *            the lowest ranking that may be chosen to skip permutations
+     */
+    private static void fillTables(int[] counts, int size, int start) {
+        if (size == Hand.NUMBER_OF_CARDS) {
+            putPattern(counts);
+            return;
+        }
+        for (int rank = start; rank < NUMBER_OF_RANKS; rank++) {
+            if (counts[rank] < Card.Suit.values().length) {
+                counts[rank]++;
+                fillTables(counts, size + 1, rank);
+                counts[rank]--;
+            }
+        }
+    }
+
+    private static void putPattern(int[] counts) {
+        final int bits = HandStrength.getRankBits(counts);
+        if (bits != 0) {
+            sFlushes[bits] = (short) HandStrength.getStrength(HandStrength.getKey(counts, true));
+            sUnique[bits] = (short) HandStrength.getStrength(HandStrength.getKey(counts, false));
+            return;
+        }
+
+        int product = 1;
+        for (int rank = 0; rank < NUMBER_OF_RANKS; rank++) {
+            for (int i = 0; i < counts[rank]; i++) {
+                product *= PRIMES[rank];
+            }
+        }
+        int slot = hash(product);
+        while (sProducts[slot] != 0) {
+            slot = (slot + 1) & (sProducts.length - 1);
+        }
+        sProducts[slot] = product;
+        sProductStrengths[slot] = (short) HandStrength.getStrength(HandStrength.getKey(counts, false));
+    }
+
+    private static int hash(int product) {
+        return (product * 0x9E3779B9) >>> (Integer.SIZE - PRODUCT_BITS);
+    }
+
+    @Override
+    public Value getValue(Card[] cards) {
+        return HandStrength.getValue(getStrength(cards));
+    }
+
+    @Override
+    public int getStrength(Card[] cards) {
+        return getStrength(code(cards[0]), code(cards[1]), code(cards[2]), code(cards[3]),
+                code(cards[4]));
+    }
+
+    private static int code(Card card) {
+        return sCodes[card.getIndex()];
+    }
+
+    /**
+     * Gets code of the card by its {@link Card#getIndex()}, for evaluating
+     * cards without objects.
+     */
+    static int getCode(int index) {
+        return sCodes[index];
+    }
+
+    /**
+     * Gets strength of the hand by codes of its cards.
+     */
+    static int getStrength(int c0, int c1, int c2, int c3, int c4) {
+        final int bits = (c0 | c1 | c2 | c3 | c4) >>> RANK_SHIFT;
+        if ((c0 & c1 & c2 & c3 & c4 & SUIT_MASK) != 0) {
+            return sFlushes[bits];
+        }
+        final int unique = sUnique[bits];
+        if (unique != 0) {
+            return unique;
+        }
+
+        final int product = (c0 & PRIME_MASK) * (c1 & PRIME_MASK) * (c2 & PRIME_MASK)
+                * (c3 & PRIME_MASK) * (c4 & PRIME_MASK);
+        int slot = hash(product);
+        while (sProducts[slot] != product) {
+            slot = (slot + 1) & (sProducts.length - 1);
+        }
+        return sProductStrengths[slot];
+    }
+}
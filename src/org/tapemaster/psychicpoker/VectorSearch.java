@@ -0,0 +1,192 @@
+package org.tapemaster.psychicpoker;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Finds the best hand of a game by evaluating all 32 discard variations at
+ * once in SIMD lanes with the incubating Vector API. Lane i holds the
+ * variation discarding cards of bitmask i. For each card position the lanes
+ * take either the hand card or the deck card that replaces it, selected by
+ * constant lane masks, so ranks and suits of all candidates are built without
+ * a loop over hands.
+ * <p>
+ * Values are derived from lane-wise features: the number of equal rank pairs
+ * among the five cards (1 for one pair, 2 for two pairs, 3 for three of a
+ * kind, 4 for full house, 6 for four of a kind), equality of all suits, and
+ * the span and sum of ranks for straights.
+ * <p>
+ * This class needs the jdk.incubator.vector module, use
+ * {@link VectorSupport#createSearch()} to get it or a scalar fallback.
+ */
+public class VectorSearch implements GameSolver {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private static final int NUMBER_OF_VARIATIONS = 1 << Hand.NUMBER_OF_CARDS;
+
+    private static final int CHUNKS = Math.max(1, NUMBER_OF_VARIATIONS / SPECIES.length());
+
+    private static final int ACE = Card.Rank.ACE.ordinal();
+
+    /**
+     * Sum of rank ordinals of A-2-3-4-5 straight.
+     */
+    private static final int WHEEL_SUM = ACE + 0 + 1 + 2 + 3;
+
+    private static final Value[] sValues = Value.values();
+
+    // constant lanes are broadcast once, scalar operands of lane-wise
+    // operations are broadcast on each call through an allocating path
+    private static final IntVector ZERO = IntVector.zero(SPECIES);
+    private static final IntVector ONE = IntVector.broadcast(SPECIES, 1);
+    private static final IntVector FOUR = IntVector.broadcast(SPECIES, 4);
+    private static final IntVector SIX = IntVector.broadcast(SPECIES, 6);
+    private static final IntVector ACES = IntVector.broadcast(SPECIES, ACE);
+    private static final IntVector WHEEL_SUMS = IntVector.broadcast(SPECIES, WHEEL_SUM);
+    private static final IntVector STRAIGHT_SPANS = IntVector.broadcast(SPECIES,
+            Hand.NUMBER_OF_CARDS - 1);
+    private static final IntVector FULL_HOUSES = broadcast(Value.FULL_HOUSE);
+    private static final IntVector FOURS_OF_A_KIND = broadcast(Value.FOUR_OF_A_KIND);
+    private static final IntVector STRAIGHTS = broadcast(Value.STRAIGHT);
+    private static final IntVector FLUSHES = broadcast(Value.FLUSH);
+    private static final IntVector STRAIGHT_FLUSHES = broadcast(Value.STRAIGHT_FLUSH);
+
+    /**
+     * Lanes where the card at given position is replaced with given deck
+     * card, indexed by chunk of lanes, card position and deck card index.
+     */
+    private static final VectorMask<Integer>[][][] sReplaced = createReplacedMasks();
+
+    // generic arrays can't be created, arrays of wildcard masks only ever
+    // hold masks of SPECIES
+    @SuppressWarnings("unchecked")
+    private static VectorMask<Integer>[][][] createReplacedMasks() {
+        final VectorMask<Integer>[][][] result = (VectorMask<Integer>[][][])
+                new VectorMask<?>[CHUNKS][Hand.NUMBER_OF_CARDS][];
+        final boolean[] lanes = new boolean[SPECIES.length()];
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            for (int position = 0; position < Hand.NUMBER_OF_CARDS; position++) {
+                result[chunk][position] = (VectorMask<Integer>[])
+                        new VectorMask<?>[position + 1];
+                for (int deckIndex = 0; deckIndex <= position; deckIndex++) {
+                    for (int lane = 0; lane < lanes.length; lane++) {
+                        final int variation = chunk * lanes.length + lane;
+                        lanes[lane] = (variation < NUMBER_OF_VARIATIONS)
+                                && (variation & (1 << position)) != 0
+                                && Integer.bitCount(variation & ((1 << position) - 1))
+                                        == deckIndex;
+                    }
+                    result[chunk][position][deckIndex] = VectorMask.fromArray(SPECIES, lanes, 0);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tells if the lane of the variation takes the deck card of given index
+     * for the card at given position.
+     */
+    static boolean isReplaced(int variation, int position, int deckIndex) {
+        return sReplaced[variation / SPECIES.length()][position][deckIndex]
+                .laneIsSet(variation % SPECIES.length());
+    }
+
+    @Override
+    public Value getBestHand(Hand hand, Card[] deck) {
+        if (hand.size() != Hand.NUMBER_OF_CARDS || deck.length != Hand.NUMBER_OF_CARDS) {
+            throw new IllegalArgumentException("Only games of size " + GameSize.STANDARD
+                    + " are supported");
+        }
+        final Card[] cards = hand.getCards();
+        // deck cards are broadcast once per game, a card at position i can
+        // only be replaced by one of the first i + 1 deck cards
+        final IntVector dr0 = rank(deck[0]);
+        final IntVector dr1 = rank(deck[1]);
+        final IntVector dr2 = rank(deck[2]);
+        final IntVector dr3 = rank(deck[3]);
+        final IntVector dr4 = rank(deck[4]);
+        final IntVector ds0 = suit(deck[0]);
+        final IntVector ds1 = suit(deck[1]);
+        final IntVector ds2 = suit(deck[2]);
+        final IntVector ds3 = suit(deck[3]);
+        final IntVector ds4 = suit(deck[4]);
+
+        int best = 0;
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            final VectorMask<Integer>[] m0 = sReplaced[chunk][0];
+            final VectorMask<Integer>[] m1 = sReplaced[chunk][1];
+            final VectorMask<Integer>[] m2 = sReplaced[chunk][2];
+            final VectorMask<Integer>[] m3 = sReplaced[chunk][3];
+            final VectorMask<Integer>[] m4 = sReplaced[chunk][4];
+            final IntVector r0 = rank(cards[0]).blend(dr0, m0[0]);
+            final IntVector r1 = rank(cards[1]).blend(dr0, m1[0]).blend(dr1, m1[1]);
+            final IntVector r2 = rank(cards[2]).blend(dr0, m2[0]).blend(dr1, m2[1])
+                    .blend(dr2, m2[2]);
+            final IntVector r3 = rank(cards[3]).blend(dr0, m3[0]).blend(dr1, m3[1])
+                    .blend(dr2, m3[2]).blend(dr3, m3[3]);
+            final IntVector r4 = rank(cards[4]).blend(dr0, m4[0]).blend(dr1, m4[1])
+                    .blend(dr2, m4[2]).blend(dr3, m4[3]).blend(dr4, m4[4]);
+            final IntVector s0 = suit(cards[0]).blend(ds0, m0[0]);
+            final IntVector s1 = suit(cards[1]).blend(ds0, m1[0]).blend(ds1, m1[1]);
+            final IntVector s2 = suit(cards[2]).blend(ds0, m2[0]).blend(ds1, m2[1])
+                    .blend(ds2, m2[2]);
+            final IntVector s3 = suit(cards[3]).blend(ds0, m3[0]).blend(ds1, m3[1])
+                    .blend(ds2, m3[2]).blend(ds3, m3[3]);
+            final IntVector s4 = suit(cards[4]).blend(ds0, m4[0]).blend(ds1, m4[1])
+                    .blend(ds2, m4[2]).blend(ds3, m4[3]).blend(ds4, m4[4]);
+
+            IntVector pairs = ZERO;
+            pairs = countEqual(pairs, r0, r1);
+            pairs = countEqual(pairs, r0, r2);
+            pairs = countEqual(pairs, r0, r3);
+            pairs = countEqual(pairs, r0, r4);
+            pairs = countEqual(pairs, r1, r2);
+            pairs = countEqual(pairs, r1, r3);
+            pairs = countEqual(pairs, r1, r4);
+            pairs = countEqual(pairs, r2, r3);
+            pairs = countEqual(pairs, r2, r4);
+            pairs = countEqual(pairs, r3, r4);
+
+            final VectorMask<Integer> flush = s0.eq(s1).and(s0.eq(s2)).and(s0.eq(s3))
+                    .and(s0.eq(s4));
+            final IntVector max = r0.max(r1).max(r2).max(r3).max(r4);
+            final IntVector min = r0.min(r1).min(r2).min(r3).min(r4);
+            final IntVector sum = r0.add(r1).add(r2).add(r3).add(r4);
+            final VectorMask<Integer> wheel = min.eq(ZERO).and(max.eq(ACES))
+                    .and(sum.eq(WHEEL_SUMS));
+            final VectorMask<Integer> straight = pairs.eq(ZERO)
+                    .and(max.sub(min).eq(STRAIGHT_SPANS).or(wheel));
+
+            final IntVector value = pairs
+                    .blend(FULL_HOUSES, pairs.eq(FOUR))
+                    .blend(FOURS_OF_A_KIND, pairs.eq(SIX))
+                    .blend(STRAIGHTS, straight)
+                    .blend(FLUSHES, flush)
+                    .blend(STRAIGHT_FLUSHES, straight.and(flush));
+            best = Math.max(best, value.reduceLanes(VectorOperators.MAX));
+        }
+        return sValues[best];
+    }
+
+    private static IntVector rank(Card card) {
+        return IntVector.broadcast(SPECIES, card.getValue().ordinal());
+    }
+
+    private static IntVector suit(Card card) {
+        return IntVector.broadcast(SPECIES, card.getSuit().ordinal());
+    }
+
+    private static IntVector countEqual(IntVector count, IntVector a, IntVector b) {
+        return count.add(ONE, a.eq(b));
+    }
+
+    private static IntVector broadcast(Value value) {
+        return IntVector.broadcast(SPECIES, value.ordinal());
+    }
+}
@@ -0,0 +1,42 @@
+package org.tapemaster.psychicpoker;
+
+/**
+ * Gives access to {@link VectorSearch} only when the jdk.incubator.vector
+ * module is available, which requires running with
+ * --add-modules jdk.incubator.vector. The search class is loaded reflectively,
+ * so that classes referring to this one load without the module.
+ */
+public final class VectorSupport {
+
+    private static final String MODULE = "jdk.incubator.vector";
+
+    private static final String SEARCH_CLASS = "org.tapemaster.psychicpoker.VectorSearch";
+
+    private VectorSupport() {
+    }
+
+    /**
+     * Checks if the Vector API module is available in the running JVM.
+     */
+    public static boolean isAvailable() {
+        return ModuleLayer.boot().findModule(MODULE).isPresent();
+    }
+
+    /**
+     * Creates {@link VectorSearch} if the Vector API is available.
+     * 
+     * @return the search, or {@link GameSolver#ALL_VARIATIONS} if the Vector
+     *         API is not available
+     */
+    public static GameSolver createSearch() {
+        if (!isAvailable()) {
+            return GameSolver.ALL_VARIATIONS;
+        }
+        try {
+            return (GameSolver) Class.forName(SEARCH_CLASS).getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return GameSolver.ALL_VARIATIONS;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.tapemaster.psychicpoker.PsychicPoker.parseCards;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit test for BinaryGames class.
+ */
+public class BinaryGamesTest {
+
+    @Test
+    public void testPack() {
+        final Card[] hand = parseCards("TH JH QC QD QS");
+        final Card[] deck = parseCards("QH KH AH 2S 6S");
+        final long game = BinaryGames.pack(hand, deck);
+        assertEquals(0, game >>> (BinaryGames.CARD_BITS * Hand.NUMBER_OF_CARDS * 2));
+        assertEquals(hand[0].getIndex(), game & 0x3F);
+
+        final Card[] unpackedHand = new Card[Hand.NUMBER_OF_CARDS];
+        final Card[] unpackedDeck = new Card[Hand.NUMBER_OF_CARDS];
+        BinaryGames.unpack(game, unpackedHand, unpackedDeck);
+        assertArrayEquals(hand, unpackedHand);
+        assertArrayEquals(deck, unpackedDeck);
+
+        try {
+            BinaryGames.unpack(game | 0x3F, unpackedHand, unpackedDeck);
+            fail("Exception expected while unpacking wrong card index");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConversionAndSolving() throws IOException {
+        final File text = File.createTempFile("games", ".txt");
+        final File binary = File.createTempFile("games", ".bin");
+        final File converted = File.createTempFile("games", ".txt");
+        try {
+            ParallelSolverTest.writeGames(text, 1000);
+            final List<String> valid = new ArrayList<String>();
+            final LineValidator validator = new LineValidator(GameSize.STANDARD);
+            final Card[] lineHand = new Card[Hand.NUMBER_OF_CARDS];
+            final Card[] lineDeck = new Card[Hand.NUMBER_OF_CARDS];
+            for (String line : Files.readAllLines(text.toPath())) {
+                // broken lines are skipped by the converter
+                if (validator.validate(line, lineHand, lineDeck) == LineValidator.VALID) {
+                    final StringBuilder builder = new StringBuilder();
+                    for (Card card : lineHand) {
+                        builder.append(card).append(' ');
+                    }
+                    for (Card card : lineDeck) {
+                        builder.append(card).append(' ');
+                    }
+                    valid.add(builder.toString().trim());
+                }
+            }
+
+            final PrintStream err = System.err;
+            System.setErr(new PrintStream(new ByteArrayOutputStream()));
+            try {
+                assertEquals(valid.size(), BinaryGames.toBinary(text, binary));
+            } finally {
+                System.setErr(err);
+            }
+            assertEquals(valid.size() * BinaryGames.GAME_BYTES, binary.length());
+            assertEquals(valid.size(), BinaryGames.toText(binary, converted));
+            assertEquals(valid, Files.readAllLines(converted.toPath()));
+
+            final byte[] expected = new byte[valid.size()];
+            for (int i = 0; i < expected.length; i++) {
+                final Card[] hand = parseCards(valid.get(i).substring(0, 14));
+                final Card[] deck = parseCards(valid.get(i).substring(15));
+                expected[i] = (byte) new Game(new Hand(hand), deck).getBestHand().ordinal();
+            }
+            final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            final ResultWriter out = new ResultWriter(Channels.newChannel(actual),
+                    ResultWriter.DEFAULT_BUFFER_SIZE, true);
+            final RandomAccessFile input = new RandomAccessFile(binary, "r");
+            try {
+                new PsychicPoker(out, System.err).readBinaryInputAndPlay(input.getChannel());
+            } finally {
+                input.close();
+            }
+            out.flush();
+            assertArrayEquals(expected, actual.toByteArray());
+
+            final ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+            new ParallelSolver(3).solveBinary(binary, Channels.newChannel(parallel), System.err);
+            assertArrayEquals(expected, parallel.toByteArray());
+        } finally {
+            text.delete();
+            binary.delete();
+            converted.delete();
+        }
+    }
+
+    @Test
+    public void testErrorResults() throws IOException {
+        final File text = File.createTempFile("games", ".txt");
+        try {
+            ParallelSolverTest.writeGames(text, 300);
+            final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            final ResultWriter out = new ResultWriter(Channels.newChannel(actual),
+                    ResultWriter.DEFAULT_BUFFER_SIZE, true);
+            final RandomAccessFile input = new RandomAccessFile(text, "r");
+            try {
+                new PsychicPoker(out, new PrintStream(new ByteArrayOutputStream()))
+                        .readMappedInputAndPlay(new MappedLineReader(input.getChannel()));
+            } finally {
+                input.close();
+            }
+            out.flush();
+            final byte[] results = actual.toByteArray();
+            assertEquals(300, results.length);
+            assertEquals(BinaryGames.ERROR, results[99]);
+            assertEquals(BinaryGames.ERROR, results[199]);
+        } finally {
+            text.delete();
+        }
+    }
+}
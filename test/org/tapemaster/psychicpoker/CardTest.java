@@ -1,6 +1,7 @@
 package org.tapemaster.psychicpoker;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -35,6 +36,43 @@ public class CardTest {
         }
     }
 
+    @Test
+    public void testSharedCards() {
+        assertSame(Card.of('A', 'H'), Card.of('A', 'H'));
+        assertEquals("TD", Card.of('T', 'D').toString());
+        assertEquals(Card.of('T', 'D').getIndex(), new Card("TD").getIndex());
+
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            final Card card = Card.of(i);
+            assertEquals(i, card.getIndex());
+            assertSame(card, Card.of(card.toString().charAt(0), card.toString().charAt(1)));
+        }
+
+        expectIllegalArgumentException('B', 'H');
+        expectIllegalArgumentException('A', 'A');
+        expectIllegalArgumentException('A', '\u0416');
+        expectIllegalArgumentException(-1);
+        expectIllegalArgumentException(Card.NUMBER_OF_CARDS);
+    }
+
+    private void expectIllegalArgumentException(char rank, char suit) {
+        try {
+            Card.of(rank, suit);
+            fail("Exception expected while getting Card " + rank + suit);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private void expectIllegalArgumentException(int index) {
+        try {
+            Card.of(index);
+            fail("Exception expected while getting Card with index " + index);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testCardsCompare() {
         checkCardsEqual("AH", "AH");
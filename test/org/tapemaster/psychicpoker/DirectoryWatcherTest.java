@@ -0,0 +1,237 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for DirectoryWatcher class.
+ */
+public class DirectoryWatcherTest {
+
+    private File mSpool;
+    private File mResults;
+
+    @Before
+    public void setUp() throws IOException {
+        mSpool = Files.createTempDirectory("spool").toFile();
+        mResults = new File(Files.createTempDirectory("results").toFile(), "out");
+    }
+
+    @After
+    public void tearDown() {
+        delete(mSpool);
+        delete(mResults.getParentFile());
+    }
+
+    @Test
+    public void testGrowingFiles() throws IOException, InterruptedException {
+        final File games = File.createTempFile("games", ".txt");
+        try {
+            ParallelSolverTest.writeGames(games, 3000);
+            final byte[] content = Files.readAllBytes(games.toPath());
+            final int half = content.length / 2;
+
+            final File first = new File(mSpool, "first.txt");
+            final File second = new File(mSpool, "second.txt");
+            Files.write(first.toPath(), Arrays.copyOf(content, half));
+            Files.write(second.toPath(), content);
+
+            final DirectoryWatcher watcher = new DirectoryWatcher(mSpool, mResults, 2);
+            try {
+                final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+                watcher.processFiles(new PrintStream(errors));
+                final long firstEnd = lastLineEnd(content, half);
+                assertEquals(solve(content, firstEnd), read(new File(mResults, "first.txt")));
+                assertEquals(firstEnd + " ", read(new File(mResults, "first.txt"
+                        + DirectoryWatcher.CHECKPOINT_SUFFIX)).substring(0,
+                        Long.toString(firstEnd).length() + 1));
+                assertEquals(solve(content, content.length),
+                        read(new File(mResults, "second.txt")));
+
+                Files.write(first.toPath(), Arrays.copyOfRange(content, half,
+                        content.length), StandardOpenOption.APPEND);
+                watcher.processFiles(new PrintStream(errors));
+                assertEquals(solve(content, content.length),
+                        read(new File(mResults, "first.txt")));
+                assertEquals(solve(content, content.length),
+                        read(new File(mResults, "second.txt")));
+            } finally {
+                watcher.close();
+            }
+        } finally {
+            games.delete();
+        }
+    }
+
+    @Test
+    public void testResumeAfterCrash() throws IOException, InterruptedException {
+        final File games = File.createTempFile("games", ".txt");
+        try {
+            ParallelSolverTest.writeGames(games, 1000);
+            final byte[] content = Files.readAllBytes(games.toPath());
+            Files.write(new File(mSpool, "games.txt").toPath(), content);
+
+            final DirectoryWatcher watcher = new DirectoryWatcher(mSpool, mResults, 1);
+            try {
+                final PrintStream errors = new PrintStream(new ByteArrayOutputStream());
+                watcher.processFiles(errors);
+                // results written after the checkpoint by a crashed watcher
+                final File results = new File(mResults, "games.txt");
+                Files.write(results.toPath(), "straight".getBytes(StandardCharsets.US_ASCII),
+                        StandardOpenOption.APPEND);
+                watcher.processFiles(errors);
+                assertEquals(solve(content, content.length), read(results));
+            } finally {
+                watcher.close();
+            }
+        } finally {
+            games.delete();
+        }
+    }
+
+    @Test
+    public void testLineNumbersAfterResume() throws IOException, InterruptedException {
+        final File games = File.createTempFile("games", ".txt");
+        try {
+            ParallelSolverTest.writeGames(games, 1000);
+            final byte[] content = Files.readAllBytes(games.toPath());
+            final File spooled = new File(mSpool, "games.txt");
+            final int half = (int) lastLineEnd(content, content.length / 2);
+            Files.write(spooled.toPath(), Arrays.copyOf(content, half));
+
+            final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            DirectoryWatcher watcher = new DirectoryWatcher(mSpool, mResults, 1);
+            try {
+                watcher.processFiles(new PrintStream(errors));
+            } finally {
+                watcher.close();
+            }
+            Files.write(spooled.toPath(), Arrays.copyOfRange(content, half, content.length),
+                    StandardOpenOption.APPEND);
+            // a restarted watcher numbers lines from the checkpoint
+            watcher = new DirectoryWatcher(mSpool, mResults, 1);
+            try {
+                watcher.processFiles(new PrintStream(errors));
+            } finally {
+                watcher.close();
+            }
+
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            solve(content, content.length, new PrintStream(expected));
+            assertTrue(expected.size() > 0);
+            assertEquals(expected.toString(), errors.toString());
+        } finally {
+            games.delete();
+        }
+    }
+
+    @Test
+    public void testWatch() throws Exception {
+        final File games = File.createTempFile("games", ".txt");
+        final DirectoryWatcher watcher = new DirectoryWatcher(mSpool, mResults, 2);
+        try {
+            ParallelSolverTest.writeGames(games, 500);
+            final byte[] content = Files.readAllBytes(games.toPath());
+            final Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        watcher.watch(new PrintStream(new ByteArrayOutputStream()));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            thread.start();
+            Files.write(new File(mSpool, "games.txt").toPath(), content);
+
+            final File results = new File(mResults, "games.txt");
+            final String expected = solve(content, content.length);
+            final long deadline = System.currentTimeMillis() + 30000;
+            while (!(results.exists() && read(results).equals(expected))
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(expected, read(results));
+            watcher.close();
+            thread.join(10000);
+            assertTrue(!thread.isAlive());
+        } finally {
+            watcher.close();
+            games.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSameDirectory() {
+        new DirectoryWatcher(mSpool, mSpool, 1);
+    }
+
+    /**
+     * Solves the first bytes of the content in one go.
+     */
+    private static String solve(byte[] content, long length) throws IOException {
+        return solve(content, length, new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    /**
+     * Solves the first bytes of the content in one go, printing errors.
+     */
+    private static String solve(byte[] content, long length, PrintStream err)
+            throws IOException {
+        final File file = File.createTempFile("expected", ".txt");
+        try {
+            Files.write(file.toPath(), Arrays.copyOf(content, (int) length));
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            final ResultWriter out = new ResultWriter(Channels.newChannel(expected));
+            final RandomAccessFile input = new RandomAccessFile(file, "r");
+            try {
+                new PsychicPoker(out, err).readMappedInputAndPlay(new MappedLineReader(input.getChannel()));
+            } finally {
+                input.close();
+            }
+            out.flush();
+            return expected.toString();
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static long lastLineEnd(byte[] content, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (content[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII);
+    }
+
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
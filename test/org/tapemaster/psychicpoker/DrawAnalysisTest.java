@@ -0,0 +1,127 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Unit test for DrawAnalysis class.
+ */
+public class DrawAnalysisTest {
+
+    @Test
+    public void testNumbersOfDraws() {
+        final DrawAnalysis analysis = DrawAnalysis.analyze(hand("2D 3S 9C KD AC"));
+        long total = 0;
+        for (int mask : GameSize.STANDARD.getDiscardMasks()) {
+            final long draws = analysis.getDraws(mask);
+            assertEquals(combinations(47, Integer.bitCount(mask)), draws);
+            total += draws;
+        }
+        // draws of all discard variations are all hands of the whole deck
+        assertEquals(2598960, total);
+    }
+
+    @Test
+    public void testKeepAll() {
+        final DrawAnalysis analysis = DrawAnalysis.analyze(hand("2D 2S 9C 9D AC"));
+        assertEquals(1, analysis.getCount(0, Value.TWO_PAIRS));
+        assertEquals(1.0, analysis.getProbability(0, Value.TWO_PAIRS), 0);
+        assertEquals(DrawAnalysis.DEFAULT_PAYOUTS[Value.TWO_PAIRS.ordinal()],
+                analysis.getExpectedValue(0), 0);
+    }
+
+    @Test
+    public void testFourOfAKind() {
+        final Hand hand = hand("AD AS AC AH 2C");
+        final DrawAnalysis analysis = DrawAnalysis.analyze(hand);
+        // the deuce is the first card of the sorted hand
+        assertEquals(47, analysis.getCount(1, Value.FOUR_OF_A_KIND));
+        assertEquals(0, analysis.getBestDiscardMask());
+    }
+
+    @Test
+    public void testSameAsHandEvaluation() {
+        final Hand hand = hand("4H 5H 6H 9S KD");
+        final DrawAnalysis analysis = DrawAnalysis.analyze(hand, new ForkJoinPool(3));
+        final List<Card> unseen = new ArrayList<Card>();
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            if (!hand.toString().contains(Card.of(i).toString())) {
+                unseen.add(Card.of(i));
+            }
+        }
+        for (int mask : GameSize.STANDARD.getDiscardMasks()) {
+            if (Integer.bitCount(mask) > 2) {
+                continue;
+            }
+            final long[] expected = new long[Value.values().length];
+            final int first = Integer.numberOfTrailingZeros(mask);
+            final int second = Integer.numberOfTrailingZeros(mask & (mask - 1));
+            final Card[] cards = hand.getCards().clone();
+            if (mask == 0) {
+                expected[Hand.getEvaluator().getValue(cards).ordinal()]++;
+            }
+            for (int i = 0; i < unseen.size() && mask != 0; i++) {
+                cards[first] = unseen.get(i);
+                if (Integer.bitCount(mask) == 1) {
+                    expected[Hand.getEvaluator().getValue(cards).ordinal()]++;
+                    continue;
+                }
+                for (int j = i + 1; j < unseen.size(); j++) {
+                    cards[second] = unseen.get(j);
+                    expected[Hand.getEvaluator().getValue(cards).ordinal()]++;
+                }
+            }
+            for (Value value : Value.values()) {
+                assertEquals(expected[value.ordinal()], analysis.getCount(mask, value));
+            }
+        }
+    }
+
+    @Test
+    public void testBestDiscard() {
+        final Hand hand = hand("4H 5H 6H 7H KD");
+        final DrawAnalysis analysis = DrawAnalysis.analyze(hand);
+        final int best = analysis.getBestDiscardMask();
+        for (int mask : GameSize.STANDARD.getDiscardMasks()) {
+            assertTrue(analysis.getExpectedValue(mask) <= analysis.getExpectedValue(best));
+        }
+        // drawing to the open-ended straight flush
+        assertEquals(1 << 4, best);
+        assertEquals(2.0 / 47, analysis.getProbability(best, Value.STRAIGHT_FLUSH), 1e-12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongMask() {
+        DrawAnalysis.analyze(hand("2D 3S 9C KD AC")).getDraws(32);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongPayouts() {
+        DrawAnalysis.analyze(hand("2D 3S 9C KD AC")).getExpectedValue(0, new double[] { 1 });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongHandSize() {
+        DrawAnalysis.analyze(new Hand(PsychicPoker.parseCards("2D 3S 9C KD AC 4D", 6)));
+    }
+
+    private static Hand hand(String cards) {
+        return new Hand(PsychicPoker.parseCards(cards));
+    }
+
+    private static long combinations(int n, int k) {
+        long result = 1;
+        for (int i = 0; i < k; i++) {
+            result = result * (n - i) / (i + 1);
+        }
+        return result;
+    }
+}
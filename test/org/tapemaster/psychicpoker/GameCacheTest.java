@@ -0,0 +1,95 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.tapemaster.psychicpoker.PsychicPoker.parseCards;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit test for GameCache and GameKey classes.
+ */
+public class GameCacheTest {
+
+    @Test
+    public void testKey() {
+        final long key = key("2H 5H 7H AD AC", "AH 6H 9H 4H 3C");
+        assertEquals(key, key("2S 5S 7S AC AH", "AS 6S 9S 4S 3H"));
+        assertEquals(key, key("AD 7H 2H AC 5H", "AH 6H 9H 4H 3C"));
+        assertTrue(key != key("2H 5H 7H AD AC", "6H AH 9H 4H 3C"));
+        assertTrue(key != key("2H 5H 7H AD AC", "AH 6H 9H 4H 3H"));
+    }
+
+    @Test
+    public void testKeyEqualRanks() {
+        final long key = key("AD AC KD 3S 4S", "5S 6S 7S 8S 9S");
+        assertEquals(key, key("AC AD KD 3S 4S", "5S 6S 7S 8S 9S"));
+        assertEquals(key, key("AH AC KH 3D 4D", "5D 6D 7D 8D 9D"));
+        assertEquals(key, key("AD AC KC 3S 4S", "5S 6S 7S 8S 9S"));
+        assertTrue(key != key("AD AC KS 3S 4S", "5S 6S 7S 8S 9S"));
+        assertEquals(key("AH AD AC AS 2C", "3C 4C 5C 6C 7C"),
+                key("AS AC AD AH 2C", "3C 4C 5C 6C 7C"));
+    }
+
+    private long key(String handInput, String deckInput) {
+        return GameKey.getKey(new Hand(parseCards(handInput)), parseCards(deckInput));
+    }
+
+    @Test
+    public void testCache() {
+        final Random random = new Random(131);
+        final List<Card> cards = new ArrayList<Card>();
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            cards.add(Card.of(i));
+        }
+
+        final GameCache cache = new GameCache(64, 4, GameSolver.ALL_VARIATIONS);
+        for (int game = 0; game < 1000; game++) {
+            Collections.shuffle(cards, random);
+            final Card[] handCards = cards.subList(0, Hand.NUMBER_OF_CARDS).toArray(
+                    new Card[Hand.NUMBER_OF_CARDS]);
+            final Card[] deck = cards.subList(Hand.NUMBER_OF_CARDS, Hand.NUMBER_OF_CARDS * 2)
+                    .toArray(new Card[Hand.NUMBER_OF_CARDS]);
+            final Hand hand = new Hand(handCards);
+            final Hand.Value expected = new Game(hand, deck).getBestHand();
+            assertEquals(expected, cache.getBestHand(hand, deck));
+            assertEquals(expected, cache.getBestHand(hand, deck));
+        }
+
+        assertEquals(1000, cache.getHits());
+        assertEquals(1000, cache.getMisses());
+        assertEquals(64, cache.size());
+        assertEquals(1000 - 64, cache.getEvictions());
+    }
+
+    @Test
+    public void testHotGamesStay() {
+        final Random random = new Random(7);
+        final List<Card> cards = new ArrayList<Card>();
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            cards.add(Card.of(i));
+        }
+        final List<Card[]> games = new ArrayList<Card[]>();
+        for (int i = 0; i < 3000; i++) {
+            Collections.shuffle(cards, random);
+            games.add(cards.subList(0, Hand.NUMBER_OF_CARDS * 2).toArray(new Card[0]));
+        }
+
+        final GameCache cache = new GameCache(64, 2, GameSolver.ALL_VARIATIONS);
+        for (int i = 0; i < games.size(); i++) {
+            // every other game is one of eight hot games
+            final Card[] game = games.get((i % 2 == 0) ? i % 16 : i);
+            final Hand hand = new Hand(Arrays.copyOf(game, Hand.NUMBER_OF_CARDS));
+            final Card[] deck = Arrays.copyOfRange(game, Hand.NUMBER_OF_CARDS, game.length);
+            assertEquals(new Game(hand, deck).getBestHand(), cache.getBestHand(hand, deck));
+            assertTrue(cache.size() <= 64);
+        }
+        assertTrue(cache.getHits() > 1400);
+    }
+}
@@ -0,0 +1,142 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.tapemaster.psychicpoker.PsychicPoker.parseCards;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Unit test for GameSize class and games of non-standard size.
+ */
+public class GameSizeTest {
+
+    @Test
+    public void testSharedSizes() {
+        assertSame(GameSize.STANDARD, GameSize.of(5, 5));
+        assertSame(GameSize.of(7, 3), GameSize.of(7, 3));
+        assertTrue(GameSize.STANDARD.isStandard());
+        expectIllegalArgumentException(4, 5);
+        expectIllegalArgumentException(GameSize.MAX_CARDS + 1, 5);
+        expectIllegalArgumentException(5, -1);
+    }
+
+    @Test
+    public void testSizeConcurrently() throws InterruptedException {
+        final GameSize[] sizes = new GameSize[8];
+        final Thread[] threads = new Thread[sizes.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    sizes[index] = GameSize.of(9, 4);
+                    GameSize.getSubsets(9);
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (GameSize size : sizes) {
+            assertSame(GameSize.of(9, 4), size);
+        }
+        assertSame(GameSize.getSubsets(9), GameSize.getSubsets(9));
+    }
+
+    @Test
+    public void testGameOfWrongSize() {
+        final Hand hand = new Hand(parseCards("2H 3S 4C 5D 9H KC AS", 7));
+        final Card[] deck = parseCards("2S 3D 4H", 3);
+        assertSame(GameSize.of(7, 3), new Game(hand, deck, GameSize.of(7, 3)).getSize());
+        try {
+            new Game(hand, deck, GameSize.of(7, 2));
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDiscardMasks() {
+        checkDiscardMasks(GameSize.STANDARD, 32);
+        checkDiscardMasks(GameSize.of(7, 3), 1 + 7 + 21 + 35);
+        checkDiscardMasks(GameSize.of(6, 10), 64);
+        checkDiscardMasks(GameSize.of(GameSize.MAX_CARDS, GameSize.MAX_CARDS),
+                1 << GameSize.MAX_CARDS);
+    }
+
+    private void checkDiscardMasks(GameSize size, int count) {
+        final int[] masks = size.getDiscardMasks();
+        assertEquals(count, masks.length);
+        final Set<Integer> distinct = new HashSet<Integer>();
+        for (int i = 0; i < masks.length; i++) {
+            assertTrue(masks[i] >>> size.getHandSize() == 0);
+            assertTrue(Integer.bitCount(masks[i]) <= size.getDeckSize());
+            if (i > 0) {
+                assertTrue(Integer.bitCount(masks[i - 1]) <= Integer.bitCount(masks[i]));
+            }
+            distinct.add(masks[i]);
+        }
+        assertEquals(count, distinct.size());
+    }
+
+    @Test
+    public void testBestFiveOfMany() {
+        assertEquals(Hand.Value.STRAIGHT, new Hand(parseCards("2H 3S 4C 5D 9H KC AS", 7))
+                .getValue());
+        assertEquals(Hand.Value.FLUSH, new Hand(parseCards("2H 3S 4H 5D 9H KH AH", 7))
+                .getValue());
+        assertEquals(Hand.Value.FULL_HOUSE, new Hand(parseCards("2H 2S 4H 4D 4C KH", 6))
+                .getValue());
+        assertEquals(new Hand(parseCards("4H 4D 4C KH KS")).getStrength(),
+                new Hand(parseCards("2H 2S 4H 4D 4C KH KS", 7)).getStrength());
+    }
+
+    @Test
+    public void testLargerGames() {
+        final Random random = new Random(131);
+        final List<Card> cards = new ArrayList<Card>();
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            cards.add(Card.of(i));
+        }
+        checkLargerGames(random, cards, GameSize.of(7, 3));
+        checkLargerGames(random, cards, GameSize.of(6, 6));
+        checkLargerGames(random, cards, GameSize.of(5, 2));
+        checkLargerGames(random, cards, GameSize.of(6, 0));
+    }
+
+    private void checkLargerGames(Random random, List<Card> cards, GameSize size) {
+        final int handSize = size.getHandSize();
+        final int deckSize = size.getDeckSize();
+        for (int game = 0; game < 300; game++) {
+            Collections.shuffle(cards, random);
+            final Hand hand = new Hand(cards.subList(0, handSize).toArray(new Card[handSize]));
+            final Card[] deck = cards.subList(handSize, handSize + deckSize).toArray(
+                    new Card[deckSize]);
+            final Game solved = new Game(hand, deck);
+            final Hand.Value expected = GameTest.getBestHandByDiscards(hand, deck);
+            assertEquals(expected, solved.getBestHand());
+            assertEquals(expected, solved.getStrongestHand().getValue());
+        }
+    }
+
+    private void expectIllegalArgumentException(int handSize, int deckSize) {
+        try {
+            GameSize.of(handSize, deckSize);
+            fail("Exception expected for size " + handSize + "x" + deckSize);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
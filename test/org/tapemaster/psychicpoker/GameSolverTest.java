@@ -0,0 +1,75 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.tapemaster.psychicpoker.PsychicPoker.parseCards;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Unit test checking that every solver finds the same best hands as
+ * {@link Game}. Tests of single solvers check only what is specific to them.
+ */
+@RunWith(Parameterized.class)
+public class GameSolverTest {
+
+    private final GameSolver mSolver;
+
+    public GameSolverTest(String name, GameSolver solver) {
+        mSolver = solver;
+    }
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> getSolvers() {
+        return Arrays.asList(new Object[][] {
+                { "all variations", GameSolver.ALL_VARIATIONS },
+                { "pruned", new PrunedSearch() },
+                { "gray code", new GrayCodeSearch() },
+                { "vector", VectorSupport.createSearch() } });
+    }
+
+    @Test
+    public void testSampleGames() {
+        check("TH JH QC QD QS", "QH KH AH 2S 6S", Hand.Value.STRAIGHT_FLUSH);
+        check("2H 2S 3H 3S 3C", "2D 3D 6C 9C TH", Hand.Value.FOUR_OF_A_KIND);
+        check("2H 2S 3H 3S 3C", "2D 9C 3D 6C TH", Hand.Value.FULL_HOUSE);
+        check("2H AD 5H AC 7H", "AH 6H 9H 4H 3C", Hand.Value.FLUSH);
+        check("AC 2D 9C 3S KD", "5S 4D KS AS 4C", Hand.Value.STRAIGHT);
+        check("KS AH 2H 3C 4H", "KC 2C TC 2D AS", Hand.Value.THREE_OF_A_KIND);
+        check("AH 2C 9S AD 3C", "QH KS JS JD KD", Hand.Value.TWO_PAIRS);
+        check("6C 9C 8C 2D 7C", "2H TC 4C 9S AH", Hand.Value.ONE_PAIR);
+        check("3D 5S 2H QD TD", "6S KH 9H AD QH", Hand.Value.HIGHEST_CARD);
+    }
+
+    private void check(String handInput, String deckInput, Hand.Value expected) {
+        assertEquals(expected, mSolver.getBestHand(new Hand(parseCards(handInput)),
+                parseCards(deckInput)));
+    }
+
+    @Test
+    public void testSameAsGame() {
+        final Random random = new Random(131);
+        final List<Card> cards = new ArrayList<Card>();
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            cards.add(Card.of(i));
+        }
+
+        for (int game = 0; game < 100000; game++) {
+            Collections.shuffle(cards, random);
+            final Hand hand = new Hand(cards.subList(0, Hand.NUMBER_OF_CARDS).toArray(
+                    new Card[Hand.NUMBER_OF_CARDS]));
+            final Card[] deck = cards.subList(Hand.NUMBER_OF_CARDS, Hand.NUMBER_OF_CARDS * 2)
+                    .toArray(new Card[Hand.NUMBER_OF_CARDS]);
+            assertEquals(new Game(hand, deck).getBestHand(), mSolver.getBestHand(hand, deck));
+        }
+    }
+}
@@ -1,8 +1,17 @@
 package org.tapemaster.psychicpoker;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.tapemaster.psychicpoker.PsychicPoker.parseCards;
 
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
 import org.junit.Test;
 
 /**
@@ -30,6 +39,164 @@ public class GameTest {
                 Hand.Value.ONE_PAIR);
     }
 
+    @Test
+    public void testStrongestHand() {
+        checkStrongest("TH JH QC QD QS", "QH KH AH 2S 6S", "TH JH QH KH AH");
+        checkStrongest("2H 2S 3H 3S 3C", "2D 9C 3D 6C TH", "2H 2S 3H 3S 3C");
+        checkStrongest("AH 2C 9S AD 3C", "QH KS JS JD KD", "JS JD QH KS KD");
+        checkStrongest("6C 9C 8C 2D 7C", "2H TC 4C 9S AH", "2H 4C 9S 9C TC");
+    }
+
+    private void checkStrongest(String handInput, String deckInput, String expected) {
+        final Game game = new Game(new Hand(parseCards(handInput)), parseCards(deckInput));
+        final Hand strongest = game.getStrongestHand();
+        assertEquals(expected, strongest.toString());
+        assertEquals(new Hand(parseCards(expected)).getStrength(), game.getBestStrength());
+        assertEquals(game.getBestHand(), strongest.getValue());
+    }
+
+    @Test
+    public void testBestHandMatchesAllDiscards() {
+        final Random random = new Random(131);
+        final List<Card> cards = new ArrayList<Card>();
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            cards.add(Card.of(i));
+        }
+
+        for (int game = 0; game < 10000; game++) {
+            Collections.shuffle(cards, random);
+            final Hand hand = new Hand(cards.subList(0, Hand.NUMBER_OF_CARDS).toArray(
+                    new Card[Hand.NUMBER_OF_CARDS]));
+            final Card[] deck = cards.subList(Hand.NUMBER_OF_CARDS, Hand.NUMBER_OF_CARDS * 2)
+                    .toArray(new Card[Hand.NUMBER_OF_CARDS]);
+            assertEquals(getBestHandByDiscards(hand, deck), new Game(hand, deck).getBestHand());
+        }
+    }
+
+    @Test
+    public void testSolve() {
+        final GameResult result = new Game(new Hand(parseCards("AC 2D 9C 3S KD")),
+                parseCards("5S 4D KS AS 4C")).solve();
+        assertEquals(Hand.Value.STRAIGHT, result.getValue());
+        assertEquals(2, result.getDiscards());
+        assertEquals("2D 3S 4D 5S AC", result.getFinalHand().toString());
+
+        final GameResult kept = new Game(new Hand(parseCards("2H 2S 3H 3S 3C")),
+                parseCards("2D 9C 3D 6C TH")).solve();
+        assertEquals(0, kept.getDiscardMask());
+        assertEquals("2H 2S 3H 3S 3C", kept.getFinalHand().toString());
+    }
+
+    @Test
+    public void testResultOutlivesReusedCards() {
+        final Card[] handCards = parseCards("AC 2D 9C 3S KD");
+        final Card[] deck = parseCards("5S 4D KS AS 4C");
+        final GameResult result = new Game(new Hand(handCards), deck).solve();
+        PsychicPoker.parseCards("2H 2S 3H 3S 3C", 0, handCards);
+        PsychicPoker.parseCards("2D 9C 3D 6C TH", 0, deck);
+        assertEquals("2D 3S 4D 5S AC", result.getFinalHand().toString());
+    }
+
+    @Test
+    public void testSolveDiscardsFewestCards() {
+        final Random random = new Random(137);
+        final List<Card> cards = new ArrayList<Card>();
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            cards.add(Card.of(i));
+        }
+
+        for (int game = 0; game < 10000; game++) {
+            Collections.shuffle(cards, random);
+            final Hand hand = new Hand(cards.subList(0, Hand.NUMBER_OF_CARDS).toArray(
+                    new Card[Hand.NUMBER_OF_CARDS]));
+            final Card[] deck = cards.subList(Hand.NUMBER_OF_CARDS, Hand.NUMBER_OF_CARDS * 2)
+                    .toArray(new Card[Hand.NUMBER_OF_CARDS]);
+            final GameResult result = new Game(hand, deck).solve();
+            assertEquals(getBestHandByDiscards(hand, deck), result.getValue());
+            assertEquals(result.getValue(), result.getFinalHand().getValue());
+
+            int fewest = Hand.NUMBER_OF_CARDS;
+            for (int mask = 0; mask < (1 << Hand.NUMBER_OF_CARDS); mask++) {
+                if (hand.discard(mask, deck).getValue() == result.getValue()) {
+                    fewest = Math.min(fewest, Integer.bitCount(mask));
+                }
+            }
+            assertEquals(fewest, result.getDiscards());
+        }
+    }
+
+    @Test
+    public void testSolveBatch() {
+        final Random random = new Random(139);
+        final List<Card> cards = new ArrayList<Card>();
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            cards.add(Card.of(i));
+        }
+
+        final int count = 10000;
+        final LongBuffer games = ByteBuffer.allocateDirect(count * BinaryGames.GAME_BYTES)
+                .asLongBuffer();
+        final byte[] expected = new byte[count];
+        for (int i = 0; i < count; i++) {
+            Collections.shuffle(cards, random);
+            final Card[] hand = cards.subList(0, Hand.NUMBER_OF_CARDS).toArray(
+                    new Card[Hand.NUMBER_OF_CARDS]);
+            final Card[] deck = cards.subList(Hand.NUMBER_OF_CARDS, Hand.NUMBER_OF_CARDS * 2)
+                    .toArray(new Card[Hand.NUMBER_OF_CARDS]);
+            long game = BinaryGames.pack(hand, deck);
+            if (i % 100 == 1) {
+                game |= 0x3FL << (random.nextInt(Hand.NUMBER_OF_CARDS * 2) * BinaryGames.CARD_BITS);
+                expected[i] = BinaryGames.ERROR;
+            } else if (i % 100 == 2) {
+                deck[random.nextInt(Hand.NUMBER_OF_CARDS)] = hand[0];
+                game = BinaryGames.pack(hand, deck);
+                expected[i] = BinaryGames.ERROR;
+            } else {
+                expected[i] = (byte) new Game(new Hand(hand), deck).getBestHand().ordinal();
+            }
+            games.put(game);
+        }
+        games.flip();
+
+        final ByteBuffer results = ByteBuffer.allocate(count);
+        Game.solveBatch(games.duplicate(), results);
+        assertEquals(count, results.position());
+        assertArrayEquals(expected, results.array());
+
+        final ByteBuffer parallelResults = ByteBuffer.allocate(count);
+        final LongBuffer parallelGames = games.duplicate();
+        ForkJoinPool.commonPool().invoke(new BatchTask(parallelGames, parallelResults, 100));
+        assertEquals(count, parallelGames.position());
+        assertEquals(count, parallelResults.position());
+        assertArrayEquals(expected, parallelResults.array());
+    }
+
+    /**
+     * Finds the best hand of a game of any size by trying every subset of
+     * cards to discard, valuing hands by {@link ReferenceHandEvaluator}.
+     */
+    static Hand.Value getBestHandByDiscards(Hand hand, Card[] deck) {
+        final HandEvaluator reference = new ReferenceHandEvaluator();
+        Hand.Value best = hand.getValue(reference);
+        for (int mask = 1; mask < (1 << hand.size()); mask++) {
+            if (Integer.bitCount(mask) > deck.length) {
+                continue;
+            }
+            final int[] toDiscard = new int[Integer.bitCount(mask)];
+            int count = 0;
+            for (int i = 0; i < hand.size(); i++) {
+                if ((mask & (1 << i)) != 0) {
+                    toDiscard[count++] = i;
+                }
+            }
+            final Hand.Value value = hand.discard(toDiscard, deck).getValue(reference);
+            if (value.compareTo(best) > 0) {
+                best = value;
+            }
+        }
+        return best;
+    }
+
     private void check(String handInput, String deckInput,
             Hand.Value expected) {
         Hand hand = new Hand(parseCards(handInput));
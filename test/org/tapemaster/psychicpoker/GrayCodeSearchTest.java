@@ -0,0 +1,39 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.tapemaster.psychicpoker.PsychicPoker.parseCards;
+
+import org.junit.Test;
+
+/**
+ * Unit test for GrayCodeSearch class, its results are checked by
+ * {@link GameSolverTest}.
+ */
+public class GrayCodeSearchTest {
+
+    @Test
+    public void testOrderOfVariations() {
+        final boolean[] visited = new boolean[1 << Hand.NUMBER_OF_CARDS];
+        visited[GrayCodeSearch.getDiscardMask(0)] = true;
+        assertEquals(0, GrayCodeSearch.getDiscardMask(0));
+        for (int step = 1; step < visited.length; step++) {
+            final int mask = GrayCodeSearch.getDiscardMask(step);
+            assertFalse("Variation " + mask + " visited twice", visited[mask]);
+            visited[mask] = true;
+            assertEquals(1 << Integer.numberOfTrailingZeros(step),
+                    mask ^ GrayCodeSearch.getDiscardMask(step - 1));
+        }
+    }
+
+    @Test
+    public void testDeckPrefix() {
+        // 6H would make a straight flush for 9C, but it is only reachable by
+        // discarding two cards, after KD
+        final Hand hand = new Hand(parseCards("2H 3H 4H 5H 9C"));
+        final Card[] deck = parseCards("KD 6H QS QD QC");
+        assertEquals(Hand.Value.THREE_OF_A_KIND, new GrayCodeSearch().getBestHand(hand, deck));
+        assertEquals(new Game(hand, deck).getBestHand(),
+                new GrayCodeSearch().getBestHand(hand, deck));
+    }
+}
@@ -0,0 +1,83 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Unit test for HandEvaluator implementations.
+ */
+public class HandEvaluatorTest {
+
+    /**
+     * Number of five-card hands of each value, in order of {@link Value}.
+     */
+    private static final int[] EXPECTED_COUNTS = {
+        1302540, 1098240, 123552, 54912, 10200, 5108, 3744, 624, 40 };
+
+    @Test
+    public void testAllHands() {
+        final HandEvaluator reference = new ReferenceHandEvaluator();
+        final HandEvaluator table = new TableHandEvaluator();
+        final int[] counts = new int[Value.values().length];
+        final boolean[] strengths = new boolean[HandStrength.MAX_STRENGTH + 1];
+        final Card[] cards = new Card[Hand.NUMBER_OF_CARDS];
+
+        for (int a = 0; a < Card.NUMBER_OF_CARDS; a++) {
+            cards[0] = Card.of(a);
+            for (int b = a + 1; b < Card.NUMBER_OF_CARDS; b++) {
+                cards[1] = Card.of(b);
+                for (int c = b + 1; c < Card.NUMBER_OF_CARDS; c++) {
+                    cards[2] = Card.of(c);
+                    for (int d = c + 1; d < Card.NUMBER_OF_CARDS; d++) {
+                        cards[3] = Card.of(d);
+                        for (int e = d + 1; e < Card.NUMBER_OF_CARDS; e++) {
+                            cards[4] = Card.of(e);
+                            final Value expected = reference.getValue(cards);
+                            assertEquals(expected, table.getValue(cards));
+
+                            final int strength = table.getStrength(cards);
+                            assertEquals(reference.getStrength(cards), strength);
+                            assertEquals(expected, HandStrength.getValue(strength));
+                            strengths[strength] = true;
+                            counts[expected.ordinal()]++;
+                        }
+                    }
+                }
+            }
+        }
+
+        for (Value value : Value.values()) {
+            assertEquals(value.toString(), EXPECTED_COUNTS[value.ordinal()],
+                    counts[value.ordinal()]);
+        }
+        for (int strength = 1; strength <= HandStrength.MAX_STRENGTH; strength++) {
+            assertTrue("Strength " + strength, strengths[strength]);
+        }
+    }
+
+    @Test
+    public void testStrength() {
+        final HandEvaluator table = new TableHandEvaluator();
+        assertEquals(1, table.getStrength(PsychicPoker.parseCards("7H 5S 4S 3S 2S")));
+        assertEquals(HandStrength.MAX_STRENGTH,
+                table.getStrength(PsychicPoker.parseCards("AD KD QD JD TD")));
+
+        checkStronger(table, "6H 5S 4S 3S 2S", "AD 5D 4C 3H 2S"); // wheel is the lowest straight
+        checkStronger(table, "QH QS 5S 3S 2S", "QD QC 4C 3H 2D"); // kickers count
+        checkStronger(table, "3H 3S 3C 2H 2S", "2D 2C 2S AC AD");
+        checkStronger(table, "KH KS 4S 4H 2S", "KD KC 3C 3H AS");
+        checkStronger(table, "AS 2S 3S 4S 5S", "KD KC KH KS AS");
+        assertEquals(table.getStrength(PsychicPoker.parseCards("AS KS 7S 4S 2S")),
+                table.getStrength(PsychicPoker.parseCards("AH KH 7H 4H 2H")));
+    }
+
+    private void checkStronger(HandEvaluator evaluator, String stronger, String weaker) {
+        assertTrue(stronger + " > " + weaker,
+                evaluator.getStrength(PsychicPoker.parseCards(stronger))
+                        > evaluator.getStrength(PsychicPoker.parseCards(weaker)));
+    }
+}
@@ -0,0 +1,88 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Unit test for LineValidator class.
+ */
+public class LineValidatorTest {
+
+    private final LineValidator mValidator = new LineValidator(GameSize.STANDARD);
+    private final Card[] mHand = new Card[Hand.NUMBER_OF_CARDS];
+    private final Card[] mDeck = new Card[Hand.NUMBER_OF_CARDS];
+
+    @Test
+    public void testValid() {
+        check(LineValidator.VALID, "TH JH QC QD QS QH KH AH 2S 6S");
+        check(LineValidator.VALID, "TH JH QC QD QS QH KH AH 2S 6S \t ");
+        assertSame(Card.of('T', 'H'), mHand[0]);
+        assertSame(Card.of('Q', 'S'), mHand[4]);
+        assertSame(Card.of('Q', 'H'), mDeck[0]);
+        assertSame(Card.of('6', 'S'), mDeck[4]);
+    }
+
+    @Test
+    public void testErrors() {
+        check(LineValidator.WRONG_LENGTH, "");
+        check(LineValidator.WRONG_LENGTH, "TH JH QC QD QS QH KH AH 2S");
+        check(LineValidator.WRONG_LENGTH, "TH JH QC QD QS QH KH AH 2S 6S 7S");
+        check(LineValidator.BAD_RANK, "TH JH 1C QD QS QH KH AH 2S 6S");
+        check(LineValidator.BAD_SUIT, "TH JH QC QD QS QH KH AX 2S 6S");
+        check(LineValidator.BAD_RANK, "TH JH QC QD QS QH KH AH 2S €S");
+        check(LineValidator.DUPLICATE_CARD, "TH JH QC QD QS QH KH AH 2S TH");
+        check(LineValidator.DUPLICATE_CARD, "TH JH QC QD QD QH KH AH 2S 6S");
+        assertEquals("duplicate-card", LineValidator.getName(LineValidator.DUPLICATE_CARD));
+    }
+
+    @Test
+    public void testSeparators() {
+        check(LineValidator.BAD_SEPARATOR, "TH,JH QC QD QS QH KH AH 2S 6S");
+        check(LineValidator.BAD_SEPARATOR, "TH JH QC QD QS\tQH KH AH 2S 6S");
+        check(LineValidator.BAD_SEPARATOR, "TH JH QC QD QS QH KH AH 2S-6S");
+        // the first problem in order of the line is reported
+        check(LineValidator.BAD_SEPARATOR, "TH JHxQC QD QS QH KH AH 2S 1S");
+        check(LineValidator.BAD_RANK, "TH 1H QC QD QS QH KH AH 2SxTH");
+        assertEquals("bad-separator", LineValidator.getName(LineValidator.BAD_SEPARATOR));
+    }
+
+    @Test
+    public void testDuplicateCards() {
+        final Card[] hand = PsychicPoker.parseCards("TH JH QC QD QS");
+        assertEquals(LineValidator.VALID,
+                LineValidator.validate(hand, PsychicPoker.parseCards("QH KH AH 2S 6S")));
+        assertEquals(LineValidator.DUPLICATE_CARD,
+                LineValidator.validate(hand, PsychicPoker.parseCards("QH KH AH 2S QC")));
+    }
+
+    @Test
+    public void testEmptyDeck() {
+        final LineValidator validator = new LineValidator(GameSize.of(6, 0));
+        final Card[] hand = new Card[6];
+        assertEquals(LineValidator.VALID, validator.validate("TH JH QC QD QS QH", hand,
+                new Card[0]));
+        assertSame(Card.of('Q', 'H'), hand[5]);
+        assertEquals(LineValidator.VALID, validator.validate("TH JH QC QD QS QH ", hand,
+                new Card[0]));
+        assertEquals(LineValidator.WRONG_LENGTH, validator.validate("TH JH QC QD QS", hand,
+                new Card[0]));
+        assertEquals(LineValidator.WRONG_LENGTH, validator.validate("TH JH QC QD QS QH KH",
+                hand, new Card[0]));
+    }
+
+    /**
+     * Checks that the line gives the error both as characters and as bytes
+     * in the middle of a buffer.
+     */
+    private void check(int expected, String line) {
+        assertEquals(expected, mValidator.validate(line, mHand, mDeck));
+        final byte[] bytes = ("##" + line + "##").getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(expected, mValidator.validate(ByteBuffer.wrap(bytes), 2, bytes.length - 2,
+                mHand, mDeck));
+    }
+}
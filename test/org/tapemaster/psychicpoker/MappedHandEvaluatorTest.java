@@ -0,0 +1,127 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+/**
+ * Unit test for MappedHandEvaluator class.
+ */
+public class MappedHandEvaluatorTest {
+
+    @Test
+    public void testAllHands() throws IOException {
+        final File file = File.createTempFile("categories", ".bin");
+        try {
+            file.delete();
+            final HandEvaluator mapped = MappedHandEvaluator.load(file);
+            assertEquals(MappedHandEvaluator.HEADER_SIZE + MappedHandEvaluator.NUMBER_OF_HANDS,
+                    file.length());
+
+            final HandEvaluator table = new TableHandEvaluator();
+            final Card[] cards = new Card[Hand.NUMBER_OF_CARDS];
+            for (int a = 0; a < Card.NUMBER_OF_CARDS; a++) {
+                cards[4] = Card.of(a);
+                for (int b = a + 1; b < Card.NUMBER_OF_CARDS; b++) {
+                    cards[2] = Card.of(b);
+                    for (int c = b + 1; c < Card.NUMBER_OF_CARDS; c++) {
+                        cards[0] = Card.of(c);
+                        for (int d = c + 1; d < Card.NUMBER_OF_CARDS; d++) {
+                            cards[3] = Card.of(d);
+                            for (int e = d + 1; e < Card.NUMBER_OF_CARDS; e++) {
+                                cards[1] = Card.of(e);
+                                assertEquals(table.getValue(cards), mapped.getValue(cards));
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRejectsDamagedFile() throws IOException {
+        final File file = File.createTempFile("categories", ".bin");
+        try {
+            file.delete();
+            MappedHandEvaluator.load(file);
+            final RandomAccessFile output = new RandomAccessFile(file, "rw");
+            try {
+                output.seek(MappedHandEvaluator.HEADER_SIZE + 1000);
+                output.write(Hand.Value.STRAIGHT_FLUSH.ordinal());
+            } finally {
+                output.close();
+            }
+            try {
+                MappedHandEvaluator.load(file);
+                fail("Damaged file must be rejected");
+            } catch (IOException e) {
+                // expected
+            }
+
+            final RandomAccessFile header = new RandomAccessFile(file, "rw");
+            try {
+                header.writeInt(0);
+            } finally {
+                header.close();
+            }
+            try {
+                MappedHandEvaluator.load(file);
+                fail("Foreign file must be rejected");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testLeavesOtherFiles() throws IOException {
+        final File file = File.createTempFile("input", ".txt");
+        try {
+            final byte[] content = "TH JH QC QD QS QH KH AH 2S 6S\n"
+                    .getBytes(StandardCharsets.US_ASCII);
+            Files.write(file.toPath(), content);
+            try {
+                MappedHandEvaluator.load(file);
+                fail("Foreign file must be rejected");
+            } catch (IOException e) {
+                // expected
+            }
+            assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRegeneratesOlderVersion() throws IOException {
+        final File file = File.createTempFile("categories", ".bin");
+        try {
+            final RandomAccessFile output = new RandomAccessFile(file, "rw");
+            try {
+                output.writeInt(MappedHandEvaluator.MAGIC);
+                output.writeInt(MappedHandEvaluator.VERSION - 1);
+                output.writeLong(0);
+            } finally {
+                output.close();
+            }
+            MappedHandEvaluator.load(file);
+            assertEquals(MappedHandEvaluator.HEADER_SIZE + MappedHandEvaluator.NUMBER_OF_HANDS,
+                    file.length());
+        } finally {
+            file.delete();
+        }
+    }
+}
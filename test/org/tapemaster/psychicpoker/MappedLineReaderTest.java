@@ -0,0 +1,93 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit test for MappedLineReader class.
+ */
+public class MappedLineReaderTest {
+
+    private static final String INPUT = "TH JH QC QD QS QH KH AH 2S 6S\r\n\n"
+            + "2H 2S 3H 3S 3C 2D 3D 6C 9C TH\nlast";
+
+    @Test
+    public void testReadLines() throws IOException {
+        final List<String> expected = Arrays.asList("TH JH QC QD QS QH KH AH 2S 6S", "",
+                "2H 2S 3H 3S 3C 2D 3D 6C 9C TH", "last");
+        assertEquals(expected, readLines(INPUT, 0, INPUT.length(), 1024));
+        assertEquals(expected, readLines(INPUT, 0, INPUT.length(), 31));
+        assertEquals(expected.subList(2, 4), readLines(INPUT, 32, INPUT.length(), 1024));
+        assertEquals(expected.subList(0, 1), readLines(INPUT, 0, 31, 1024));
+
+        try {
+            readLines(INPUT, 0, INPUT.length(), 16);
+            fail("Exception expected while reading line longer than window");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFindLineEnd() throws IOException {
+        final File file = File.createTempFile("lines", ".txt");
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final FileOutputStream output = new FileOutputStream(file);
+            output.write(INPUT.getBytes(StandardCharsets.US_ASCII));
+            output.close();
+
+            final FileChannel channel = randomAccessFile.getChannel();
+            assertEquals(62, MappedLineReader.findLineEnd(channel, 0, INPUT.length()));
+            assertEquals(62, MappedLineReader.findLineEnd(channel, 0, 62));
+            assertEquals(32, MappedLineReader.findLineEnd(channel, 0, 61));
+            assertEquals(31, MappedLineReader.findLineEnd(channel, 0, 31));
+            assertEquals(10, MappedLineReader.findLineEnd(channel, 10, 30));
+            assertEquals(62, MappedLineReader.findLineEnd(channel, 62, INPUT.length()));
+        } finally {
+            randomAccessFile.close();
+            file.delete();
+        }
+    }
+
+    private List<String> readLines(String input, long start, long end, int windowSize)
+            throws IOException {
+        final File file = File.createTempFile("lines", ".txt");
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final FileOutputStream output = new FileOutputStream(file);
+            output.write(input.getBytes(StandardCharsets.US_ASCII));
+            output.close();
+
+            final List<String> result = new ArrayList<String>();
+            new MappedLineReader(randomAccessFile.getChannel(), start, end, windowSize).read(
+                    new MappedLineReader.LineHandler() {
+                        @Override
+                        public void onLine(ByteBuffer buffer, int lineStart, int lineEnd) {
+                            final byte[] bytes = new byte[lineEnd - lineStart];
+                            for (int i = 0; i < bytes.length; i++) {
+                                bytes[i] = buffer.get(lineStart + i);
+                            }
+                            result.add(new String(bytes, StandardCharsets.US_ASCII));
+                        }
+                    });
+            return result;
+        } finally {
+            randomAccessFile.close();
+            file.delete();
+        }
+    }
+}
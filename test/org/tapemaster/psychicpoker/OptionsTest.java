@@ -0,0 +1,104 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.tapemaster.psychicpoker.Options.Mode;
+import org.tapemaster.psychicpoker.Options.Option;
+
+/**
+ * Unit test for Options class.
+ */
+public class OptionsTest {
+
+    @Test
+    public void testModes() {
+        assertEquals(Mode.SOLVE, parse("--mmap --threads 3 --quarantine q.txt in.txt").getMode());
+        assertEquals(Mode.CONNECT, parse("--connect 7000 in.txt").getMode());
+        assertEquals(Mode.SERVE, parse("--stats-interval 5 --serve 7000").getMode());
+        assertEquals(Mode.WATCH, parse("--slow-line 100 --watch spool --output out").getMode());
+        assertEquals(Mode.SHARDS, parse("--shards 2 --summary in.txt").getMode());
+        assertEquals(Mode.WORKER, parse("--range 0 10 --output out in.txt").getMode());
+
+        final Options options = parse("--threads 3 --hand-size 6 --slow-line 100 in.txt");
+        assertEquals(3, options.getNumber(Option.THREADS, 0));
+        assertEquals(0, options.getNumber(Option.CACHE, 0));
+        assertEquals(GameSize.of(6, Hand.NUMBER_OF_CARDS), options.getGameSize());
+        assertTrue(options.hasStatistics());
+        assertEquals("in.txt", options.getFileName());
+        assertFalse(parse("in.txt").hasStatistics());
+    }
+
+    @Test
+    public void testWrongArguments() {
+        expectWrong("");
+        expectWrong("--unknown in.txt");
+        expectWrong("in.txt other.txt");
+        expectWrong("--threads 0 in.txt");
+        expectWrong("--threads in.txt");
+        expectWrong("--hand-size 4 in.txt");
+        expectWrong("--range 10 5 --output out in.txt");
+        expectWrong("--serve 7000 in.txt");
+        expectWrong("--serve 7000 --connect 7000 in.txt");
+        expectWrong("--serve 7000 --mmap");
+        expectWrong("--connect 7000 --threads 2 in.txt");
+        expectWrong("--watch spool");
+        expectWrong("--shards 2 --stats in.txt");
+        expectWrong("--shards 2 --quarantine q.txt in.txt");
+        expectWrong("--shards 2 --range 0 10 --output out in.txt");
+        expectWrong("--pruned --gray in.txt");
+        expectWrong("--summary --discards in.txt");
+        expectWrong("--vector --deck-size 6 in.txt");
+        expectWrong("--threads 2 --binary-input in.txt");
+        expectWrong("--threads 2 --binary-input --binary-output --stats in.txt");
+    }
+
+    @Test
+    public void testWorkerArguments() {
+        final Options options = parse("--shards 2 --binary-output --vector --deck-size 5 "
+                + "--output out in.txt");
+        assertEquals(Arrays.asList("--vector", "--deck-size", "5", "--binary-output"),
+                options.getWorkerArguments());
+        final String[] worker = (String.join(" ", options.getWorkerArguments())
+                + " --output out --range 0 10 in.txt").split(" ");
+        assertEquals(Mode.WORKER, Options.parse(worker).getMode());
+    }
+
+    @Test
+    public void testUsage() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Options.printUsage(new PrintStream(bytes, true));
+        final String[] lines = bytes.toString().split("\n");
+        assertEquals("Usage: java PsychicPoker [--mmap] [--threads N] [--cache N] "
+                + "[--pruned | --gray | --vector] [--hand-size N] [--deck-size N] "
+                + "[--table table_file] [--output result_file] [--quarantine quarantine_file] "
+                + "[--binary-input] [--binary-output] [--discards] [--summary] [--stats] "
+                + "[--stats-interval seconds] [--slow-line micros] source_file", lines[0]);
+        assertEquals("       java PsychicPoker [--output result_file] "
+                + "--connect port_or_socket source_file", lines[1]);
+        assertEquals("       java PsychicPoker [--cache N] [--pruned | --gray | --vector] "
+                + "[--hand-size N] [--deck-size N] [--table table_file] "
+                + "[--output result_file] [--binary-output] [--discards] [--summary] "
+                + "--shards N source_file", lines[4]);
+    }
+
+    private static Options parse(String args) {
+        return Options.parse(args.split(" "));
+    }
+
+    private static void expectWrong(String args) {
+        try {
+            Options.parse(args.isEmpty() ? new String[0] : args.split(" "));
+            fail("Exception expected for arguments " + args);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
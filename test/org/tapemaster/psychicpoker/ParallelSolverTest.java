@@ -0,0 +1,129 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit test for ParallelSolver class.
+ */
+public class ParallelSolverTest {
+
+    @Test
+    public void testSameOutputAsSingleThread() throws IOException {
+        final File file = File.createTempFile("games", ".txt");
+        try {
+            writeGames(file, 5000);
+
+            final ByteArrayOutputStream expectedOut = new ByteArrayOutputStream();
+            final ByteArrayOutputStream expectedErr = new ByteArrayOutputStream();
+            final ResultWriter out = new ResultWriter(Channels.newChannel(expectedOut));
+            final PrintStream err = new PrintStream(expectedErr);
+            final RandomAccessFile input = new RandomAccessFile(file, "r");
+            try {
+                new PsychicPoker(out, err).readMappedInputAndPlay(
+                        new MappedLineReader(input.getChannel()));
+            } finally {
+                input.close();
+            }
+            out.flush();
+            err.flush();
+
+            for (int threads = 1; threads <= 4; threads++) {
+                final ByteArrayOutputStream actualOut = new ByteArrayOutputStream();
+                final ByteArrayOutputStream actualErr = new ByteArrayOutputStream();
+                new ParallelSolver(threads, 1000).solve(file, Channels.newChannel(actualOut),
+                        new PrintStream(actualErr));
+                assertEquals(expectedOut.toString(), actualOut.toString());
+                assertEquals(expectedErr.toString(), actualErr.toString());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testQuarantineSameAsSingleThread() throws IOException {
+        final File file = File.createTempFile("games", ".txt");
+        try {
+            writeGames(file, 5000);
+
+            final ByteArrayOutputStream expectedOut = new ByteArrayOutputStream();
+            final ByteArrayOutputStream expectedQuarantine = new ByteArrayOutputStream();
+            final ResultWriter out = new ResultWriter(Channels.newChannel(expectedOut));
+            final Quarantine quarantine = new Quarantine(
+                    Channels.newChannel(expectedQuarantine));
+            final PsychicPoker poker = new PsychicPoker(out, System.err);
+            poker.setQuarantine(quarantine);
+            final RandomAccessFile input = new RandomAccessFile(file, "r");
+            try {
+                poker.readMappedInputAndPlay(new MappedLineReader(input.getChannel()));
+            } finally {
+                input.close();
+            }
+            out.flush();
+            quarantine.flush();
+            assertTrue(quarantine.getLines() > 0);
+            for (String line : expectedQuarantine.toString().split(System.lineSeparator())) {
+                // only every hundredth line is broken
+                assertTrue(line, line.matches("[0-9]*00 [a-z-]+ .*"));
+            }
+
+            for (int threads = 1; threads <= 4; threads++) {
+                final ByteArrayOutputStream actualOut = new ByteArrayOutputStream();
+                final ByteArrayOutputStream actualErr = new ByteArrayOutputStream();
+                final ByteArrayOutputStream actualQuarantine = new ByteArrayOutputStream();
+                final ParallelSolver solver = new ParallelSolver(threads, 1000);
+                solver.setQuarantine(Channels.newChannel(actualQuarantine));
+                solver.solve(file, Channels.newChannel(actualOut), new PrintStream(actualErr));
+                assertEquals(expectedOut.toString(), actualOut.toString());
+                assertEquals(expectedQuarantine.toString(), actualQuarantine.toString());
+                assertEquals(0, actualErr.size());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Writes random games to the file, every hundredth line is broken.
+     */
+    static void writeGames(File file, int count) throws IOException {
+        final Random random = new Random(131);
+        final List<Card> cards = new ArrayList<Card>();
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            cards.add(Card.of(i));
+        }
+
+        final FileWriter writer = new FileWriter(file);
+        try {
+            for (int line = 0; line < count; line++) {
+                Collections.shuffle(cards, random);
+                final StringBuilder builder = new StringBuilder();
+                for (int i = 0; i < Hand.NUMBER_OF_CARDS * 2; i++) {
+                    builder.append(cards.get(i)).append(' ');
+                }
+                if (line % 100 == 99) {
+                    builder.setCharAt(random.nextInt(builder.length()), 'X');
+                }
+                writer.write(builder.toString().trim());
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.tapemaster.psychicpoker.PsychicPoker.parseCards;
+
+import org.junit.Test;
+
+/**
+ * Unit test for PrunedSearch class, its results are checked by
+ * {@link GameSolverTest}.
+ */
+public class PrunedSearchTest {
+
+    @Test
+    public void testCounters() {
+        final PrunedSearch search = new PrunedSearch();
+        search.getBestHand(new Hand(parseCards("TH JH QC QD QS")), parseCards("QH KH AH 2S 6S"));
+        search.getBestHand(new Hand(parseCards("3D 5S 2H QD TD")), parseCards("6S KH 9H AD QH"));
+
+        assertEquals(2, search.getGames());
+        assertTrue(search.toString(), search.getEvaluations() >= 2);
+        assertTrue(search.toString(), search.getEvaluationsAvoided() > 0);
+        assertEquals(2 * PrunedSearch.NUMBER_OF_VARIATIONS - search.getEvaluations(),
+                search.getEvaluationsAvoided());
+        // at least the first variation is reached, deciding every card
+        assertTrue(search.toString(), search.getBounds() >= 2 * 2 * Hand.NUMBER_OF_CARDS);
+        assertTrue(search.toString(),
+                search.getBounds() <= 2 * 2 * (PrunedSearch.NUMBER_OF_VARIATIONS - 1));
+    }
+
+    @Test
+    public void testUpperBoundOfWholeHand() {
+        final String[] hands = { "TH JH QC QD QS", "2H 2S 3H 3S 3C", "2H AH 5H 9H 7H",
+                "AC 2D 5C 3S 4D", "3D 5S 2H QD TD" };
+        for (String input : hands) {
+            final Card[] cards = parseCards(input);
+            long bits = 0;
+            for (Card card : cards) {
+                // 16 bits for each suit, as cards are represented by the search
+                bits |= 1L << (card.getSuit().ordinal() * 16 + card.getValue().ordinal());
+            }
+            assertEquals(input, new Hand(cards).getValue(), PrunedSearch.getUpperBound(bits, bits));
+        }
+    }
+}
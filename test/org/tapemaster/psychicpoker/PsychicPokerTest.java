@@ -0,0 +1,51 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Unit test for PsychicPoker class.
+ */
+public class PsychicPokerTest {
+
+    @Test
+    public void testParseCards() {
+        final Card[] cards = PsychicPoker.parseCards("TH JH QC QD QS");
+        assertEquals(Hand.NUMBER_OF_CARDS, cards.length);
+        assertSame(Card.of('T', 'H'), cards[0]);
+        assertSame(Card.of('Q', 'S'), cards[4]);
+
+        final Card[] fromChars = new Card[Hand.NUMBER_OF_CARDS];
+        PsychicPoker.parseCards(new StringBuilder("TH JH QC QD QS QH KH AH 2S 6S"), 15, fromChars);
+        assertSame(Card.of('Q', 'H'), fromChars[0]);
+        assertSame(Card.of('6', 'S'), fromChars[4]);
+
+        final Card[] fromBytes = new Card[Hand.NUMBER_OF_CARDS];
+        PsychicPoker.parseCards("TH JH QC QD QS QH KH AH 2S 6S".getBytes(), 15, fromBytes);
+        for (int i = 0; i < Hand.NUMBER_OF_CARDS; i++) {
+            assertSame(fromChars[i], fromBytes[i]);
+        }
+
+        expectIllegalArgumentException("TH JH QC QD");
+        expectIllegalArgumentException("TH JH QC QD QS ");
+        expectIllegalArgumentException("TH JH QC QD Q1");
+        try {
+            PsychicPoker.parseCards("TH JH QC QD QS QH".getBytes(), 6, fromBytes);
+            fail("Exception expected while parsing too short input");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private void expectIllegalArgumentException(String input) {
+        try {
+            PsychicPoker.parseCards(input);
+            fail("Exception expected while parsing " + input);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
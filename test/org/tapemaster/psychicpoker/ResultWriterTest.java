@@ -0,0 +1,58 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.tapemaster.psychicpoker.PsychicPoker.parseCards;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+
+/**
+ * Unit test for ResultWriter class.
+ */
+public class ResultWriterTest {
+
+    @Test
+    public void testWrite() {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final ResultWriter writer = new ResultWriter(Channels.newChannel(output), 200);
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            writer.write(parseCards("TH JH QC QD QS"), parseCards("QH KH AH 2S 6S"),
+                    Hand.Value.STRAIGHT_FLUSH);
+            writer.write(parseCards("3D 5S 2H QD TD"), parseCards("6S KH 9H AD QH"),
+                    Hand.Value.HIGHEST_CARD);
+            expected.append("Hand: TH JH QC QD QS Deck: QH KH AH 2S 6S Best hand: straight-flush")
+                    .append(System.lineSeparator())
+                    .append("Hand: 3D 5S 2H QD TD Deck: 6S KH 9H AD QH Best hand: highest-card")
+                    .append(System.lineSeparator());
+        }
+        writer.flush();
+
+        assertFalse(writer.checkError());
+        assertEquals(expected.toString(), output.toString());
+    }
+
+    @Test
+    public void testWriteDiscards() {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final ResultWriter writer = new ResultWriter(Channels.newChannel(output), 200);
+        final Hand straight = new Hand(parseCards("AC 2D 9C 3S KD"));
+        final Card[] straightDeck = parseCards("5S 4D KS AS 4C");
+        writer.write(straight.getCards(), straightDeck,
+                new Game(straight, straightDeck).solve());
+        final Hand fullHouse = new Hand(parseCards("2H 2S 3H 3S 3C"));
+        final Card[] fullHouseDeck = parseCards("2D 9C 3D 6C TH");
+        writer.write(fullHouse.getCards(), fullHouseDeck,
+                new Game(fullHouse, fullHouseDeck).solve());
+        writer.flush();
+
+        assertFalse(writer.checkError());
+        assertEquals("Hand: 2D 3S 9C KD AC Deck: 5S 4D KS AS 4C Best hand: straight"
+                + " Discard: 9C KD" + System.lineSeparator()
+                + "Hand: 2H 2S 3H 3S 3C Deck: 2D 9C 3D 6C TH Best hand: full-house"
+                + " Discard: none" + System.lineSeparator(), output.toString());
+    }
+}
@@ -0,0 +1,135 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for ShardedRunner class.
+ */
+public class ShardedRunnerTest {
+
+    private File mGames;
+
+    @Before
+    public void setUp() throws IOException {
+        mGames = File.createTempFile("games", ".txt");
+        ParallelSolverTest.writeGames(mGames, 3000);
+    }
+
+    @After
+    public void tearDown() {
+        mGames.delete();
+    }
+
+    @Test
+    public void testSameAsSingleThread() throws IOException, InterruptedException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final ByteArrayOutputStream expectedErr = new ByteArrayOutputStream();
+        new ParallelSolver(1).solve(mGames, Channels.newChannel(expected),
+                new PrintStream(expectedErr));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        new ShardedRunner(3).run(mGames, Channels.newChannel(out), new PrintStream(err));
+        assertEquals(expected.toString(), out.toString());
+        assertEquals(expectedErr.toString(), err.toString());
+    }
+
+    @Test
+    public void testVectorWorkers() throws IOException, InterruptedException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final ByteArrayOutputStream expectedErr = new ByteArrayOutputStream();
+        new ParallelSolver(1).solve(mGames, Channels.newChannel(expected),
+                new PrintStream(expectedErr));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final ShardedRunner runner = new ShardedRunner(2);
+        runner.setWorkerArguments(Arrays.asList("--vector"));
+        runner.run(mGames, Channels.newChannel(out), new PrintStream(err));
+        assertEquals(expected.toString(), out.toString());
+        // workers warn of the incubator module, which is not copied
+        assertEquals(expectedErr.toString(), err.toString());
+        assertTrue(ShardedRunner.getDefaultCommand(true).contains(
+                "--add-modules=jdk.incubator.vector"));
+        assertFalse(ShardedRunner.getDefaultCommand(false).contains(
+                "--add-modules=jdk.incubator.vector"));
+    }
+
+    @Test
+    public void testSummary() throws IOException, InterruptedException {
+        final Summary expected = new Summary(GameSize.STANDARD);
+        final ParallelSolver solver = new ParallelSolver(1);
+        solver.setSummary(expected);
+        solver.solve(mGames, Channels.newChannel(new ByteArrayOutputStream()),
+                new PrintStream(new ByteArrayOutputStream()));
+
+        final Summary summary = new Summary(GameSize.STANDARD);
+        final ShardedRunner runner = new ShardedRunner(2);
+        runner.setSummary(summary);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        runner.run(mGames, Channels.newChannel(out),
+                new PrintStream(new ByteArrayOutputStream()));
+        assertEquals(0, out.size());
+        assertEquals(print(expected), print(summary));
+    }
+
+    @Test
+    public void testRetry() throws IOException, InterruptedException {
+        final File marker = File.createTempFile("failed", ".marker");
+        marker.delete();
+        try {
+            // workers fail until one of them created the marker
+            final List<String> command = new ArrayList<String>(Arrays.asList("sh", "-c",
+                    "if [ -e \"$0\" ]; then exec \"$@\"; fi; touch \"$0\"; exit 3",
+                    marker.getPath()));
+            command.addAll(ShardedRunner.getDefaultCommand(false));
+            final ShardedRunner runner = new ShardedRunner(2);
+            runner.setWorkerCommand(command);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final ByteArrayOutputStream err = new ByteArrayOutputStream();
+            runner.run(mGames, Channels.newChannel(out), new PrintStream(err));
+
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            new ParallelSolver(1).solve(mGames, Channels.newChannel(expected),
+                    new PrintStream(new ByteArrayOutputStream()));
+            assertEquals(expected.toString(), out.toString());
+            assertTrue(err.toString().contains("failed with exit code 3"));
+        } finally {
+            marker.delete();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testGiveUp() throws IOException, InterruptedException {
+        final ShardedRunner runner = new ShardedRunner(2);
+        runner.setWorkerCommand(Arrays.asList("sh", "-c", "exit 0"));
+        runner.run(mGames, Channels.newChannel(new ByteArrayOutputStream()),
+                new PrintStream(new ByteArrayOutputStream()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongShards() {
+        new ShardedRunner(0);
+    }
+
+    private static String print(Summary summary) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        summary.print(new PrintStream(out));
+        return out.toString();
+    }
+}
@@ -0,0 +1,353 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Unit test for SolverProcessor class.
+ */
+public class SolverProcessorTest {
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(3);
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testOrderedLines() throws InterruptedException {
+        final List<CharSequence> lines = createLines(5000);
+        final Collector<CharSequence> collector = new Collector<CharSequence>(Long.MAX_VALUE);
+        final SolverProcessor<CharSequence> processor = SolverProcessor.forLines(mExecutor,
+                64, true);
+        processor.subscribe(collector);
+        final Source<CharSequence> source = new Source<CharSequence>(lines);
+        source.subscribe(processor);
+        collector.await();
+
+        assertNull(collector.mError);
+        assertEquals(lines.size(), collector.mResults.size());
+        for (int i = 0; i < lines.size(); i++) {
+            final SolverProcessor.Result<CharSequence> result = collector.mResults.get(i);
+            assertEquals(lines.get(i), result.getGame());
+            assertEquals(solve(lines.get(i)), result.getValue());
+            assertEquals(result.getValue() == null, result.getError() != null);
+        }
+        assertTrue(source.mMaxOutstanding <= 64);
+    }
+
+    @Test
+    public void testUnorderedLines() throws InterruptedException {
+        final List<CharSequence> lines = createLines(5000);
+        final Collector<CharSequence> collector = new Collector<CharSequence>(Long.MAX_VALUE);
+        final SolverProcessor<CharSequence> processor = SolverProcessor.forLines(mExecutor,
+                64, false);
+        processor.subscribe(collector);
+        new Source<CharSequence>(lines).subscribe(processor);
+        collector.await();
+
+        final List<String> expected = new ArrayList<String>();
+        for (CharSequence line : lines) {
+            expected.add(line + ": " + solve(line));
+        }
+        final List<String> actual = new ArrayList<String>();
+        for (SolverProcessor.Result<CharSequence> result : collector.mResults) {
+            actual.add(result.getGame() + ": " + result.getValue());
+        }
+        Collections.sort(expected);
+        Collections.sort(actual);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testPackedGames() throws InterruptedException {
+        final Random random = new Random(7);
+        final List<Long> games = new ArrayList<Long>();
+        final List<Card> cards = new ArrayList<Card>();
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            cards.add(Card.of(i));
+        }
+        final Card[] hand = new Card[Hand.NUMBER_OF_CARDS];
+        final Card[] deck = new Card[Hand.NUMBER_OF_CARDS];
+        for (int i = 0; i < 3000; i++) {
+            Collections.shuffle(cards, random);
+            for (int j = 0; j < Hand.NUMBER_OF_CARDS; j++) {
+                hand[j] = cards.get(j);
+                deck[j] = cards.get(Hand.NUMBER_OF_CARDS + j);
+            }
+            games.add(BinaryGames.pack(hand, deck));
+        }
+        games.add(-1L);
+
+        final Collector<Long> collector = new Collector<Long>(Long.MAX_VALUE);
+        final SolverProcessor<Long> processor = SolverProcessor.forPackedGames(mExecutor, 100,
+                true);
+        processor.subscribe(collector);
+        new Source<Long>(games).subscribe(processor);
+        collector.await();
+
+        assertEquals(games.size(), collector.mResults.size());
+        for (int i = 0; i < games.size() - 1; i++) {
+            BinaryGames.unpack(games.get(i), hand, deck);
+            assertEquals(new Game(new Hand(hand), deck).getBestHand(),
+                    collector.mResults.get(i).getValue());
+        }
+        assertFalse(collector.mResults.get(games.size() - 1).isSolved());
+    }
+
+    @Test
+    public void testSlowSubscriber() throws InterruptedException {
+        final List<CharSequence> lines = createLines(2000);
+        final Collector<CharSequence> collector = new Collector<CharSequence>(1);
+        final SolverProcessor<CharSequence> processor = SolverProcessor.forLines(mExecutor,
+                16, true);
+        processor.subscribe(collector);
+        final Source<CharSequence> source = new Source<CharSequence>(lines);
+        source.subscribe(processor);
+        collector.await();
+
+        assertEquals(lines.size(), collector.mResults.size());
+        // games are requested only for results requested downstream
+        assertEquals(1, source.mMaxOutstanding);
+    }
+
+    @Test
+    public void testSubscriberAfterUpstream() throws InterruptedException {
+        final List<CharSequence> lines = createLines(500);
+        final SolverProcessor<CharSequence> processor = SolverProcessor.forLines(mExecutor,
+                16, true);
+        final Source<CharSequence> source = new Source<CharSequence>(lines);
+        source.subscribe(processor);
+        assertEquals(0, source.mMaxOutstanding);
+
+        final Collector<CharSequence> collector = new Collector<CharSequence>(Long.MAX_VALUE);
+        processor.subscribe(collector);
+        collector.await();
+        assertNull(collector.mError);
+        assertEquals(lines.size(), collector.mResults.size());
+        assertEquals(lines.get(0), collector.mResults.get(0).getGame());
+    }
+
+    @Test
+    public void testSecondSubscriber() throws InterruptedException {
+        final SolverProcessor<CharSequence> processor = SolverProcessor.forLines(mExecutor,
+                16, true);
+        processor.subscribe(new Collector<CharSequence>(Long.MAX_VALUE));
+        final Collector<CharSequence> second = new Collector<CharSequence>(Long.MAX_VALUE);
+        processor.subscribe(second);
+        second.await();
+        assertTrue(second.mError instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testSolverError() throws InterruptedException {
+        final Collector<CharSequence> collector = new Collector<CharSequence>(Long.MAX_VALUE);
+        final SolverProcessor<CharSequence> processor = SolverProcessor.forLines(mExecutor,
+                16, true, GameSize.STANDARD, new GameSolver() {
+                    @Override
+                    public Value getBestHand(Hand hand, Card[] deck) {
+                        throw new AssertionError("test");
+                    }
+                });
+        processor.subscribe(collector);
+        new Source<CharSequence>(createLines(100)).subscribe(processor);
+        collector.await();
+
+        assertTrue(collector.mResults.isEmpty());
+        assertTrue(collector.mError instanceof AssertionError);
+    }
+
+    @Test
+    public void testSolverRejectsGame() throws InterruptedException {
+        final Collector<CharSequence> collector = new Collector<CharSequence>(Long.MAX_VALUE);
+        final SolverProcessor<CharSequence> processor = SolverProcessor.forLines(mExecutor,
+                16, true, GameSize.STANDARD, new GameSolver() {
+                    @Override
+                    public Value getBestHand(Hand hand, Card[] deck) {
+                        throw new IllegalArgumentException("Game is not supported");
+                    }
+                });
+        processor.subscribe(collector);
+        new Source<CharSequence>(createLines(1)).subscribe(processor);
+        collector.await();
+
+        assertEquals("Game is not supported", collector.mResults.get(0).getError());
+    }
+
+    @Test
+    public void testError() throws InterruptedException {
+        final Collector<CharSequence> collector = new Collector<CharSequence>(Long.MAX_VALUE);
+        final SolverProcessor<CharSequence> processor = SolverProcessor.forLines(mExecutor,
+                16, true);
+        processor.subscribe(collector);
+        processor.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        processor.onNext("TH JH QC QD QS QH KH AH 2S 6S");
+        processor.onError(new IllegalStateException("test"));
+        collector.await();
+
+        // results not delivered before the error may be dropped
+        assertTrue(collector.mResults.size() <= 1);
+        assertTrue(collector.mError instanceof IllegalStateException);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongBufferSize() {
+        SolverProcessor.forPackedGames(mExecutor, 0, true);
+    }
+
+    private static List<CharSequence> createLines(int count) {
+        final Random random = new Random(17);
+        final List<Card> cards = new ArrayList<Card>();
+        for (int i = 0; i < Card.NUMBER_OF_CARDS; i++) {
+            cards.add(Card.of(i));
+        }
+        final List<CharSequence> lines = new ArrayList<CharSequence>();
+        for (int line = 0; line < count; line++) {
+            Collections.shuffle(cards, random);
+            final StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < Hand.NUMBER_OF_CARDS * 2; i++) {
+                builder.append(cards.get(i)).append(' ');
+            }
+            if (line % 100 == 99) {
+                builder.setCharAt(random.nextInt(builder.length()), 'X');
+            }
+            lines.add(builder.toString().trim());
+        }
+        return lines;
+    }
+
+    private static Value solve(CharSequence line) {
+        final Card[] hand = new Card[Hand.NUMBER_OF_CARDS];
+        final Card[] deck = new Card[Hand.NUMBER_OF_CARDS];
+        if (new LineValidator(GameSize.STANDARD).validate(line, hand, deck)
+                != LineValidator.VALID) {
+            return null;
+        }
+        return new Game(new Hand(hand), deck).getBestHand();
+    }
+
+    /**
+     * Publisher of items of a list on demand, remembering the most items
+     * requested but not yet sent.
+     */
+    private static class Source<T> implements Flow.Publisher<T> {
+
+        private final List<T> mItems;
+        private volatile long mMaxOutstanding;
+
+        Source(List<T> items) {
+            mItems = items;
+        }
+
+        @Override
+        public void subscribe(final Flow.Subscriber<? super T> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private final AtomicLong mRequested = new AtomicLong();
+                private int mNext;
+                private boolean mSending;
+
+                @Override
+                public void request(long n) {
+                    mMaxOutstanding = Math.max(mMaxOutstanding, mRequested.addAndGet(n));
+                    synchronized (this) {
+                        if (mSending) {
+                            return;
+                        }
+                        mSending = true;
+                    }
+                    while (true) {
+                        synchronized (this) {
+                            if (mNext == mItems.size() || mRequested.get() == 0) {
+                                mSending = false;
+                                if (mNext == mItems.size()) {
+                                    mNext++;
+                                    subscriber.onComplete();
+                                }
+                                return;
+                            }
+                        }
+                        mRequested.decrementAndGet();
+                        subscriber.onNext(mItems.get(mNext++));
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+        }
+    }
+
+    /**
+     * Subscriber collecting results, requesting given number at a time.
+     */
+    private static class Collector<T> implements Flow.Subscriber<SolverProcessor.Result<T>> {
+
+        final List<SolverProcessor.Result<T>> mResults = Collections.synchronizedList(
+                new ArrayList<SolverProcessor.Result<T>>());
+        final CountDownLatch mDone = new CountDownLatch(1);
+        final long mRequest;
+        volatile Throwable mError;
+        private Flow.Subscription mSubscription;
+
+        Collector(long request) {
+            mRequest = request;
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(mDone.await(30, TimeUnit.SECONDS));
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            mSubscription = subscription;
+            subscription.request(mRequest);
+        }
+
+        @Override
+        public void onNext(SolverProcessor.Result<T> result) {
+            mResults.add(result);
+            if (mRequest != Long.MAX_VALUE) {
+                mSubscription.request(mRequest);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            mError = error;
+            mDone.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            mDone.countDown();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * Unit test for SolverServer and SolverClient classes.
+ */
+public class SolverServerTest {
+
+    /**
+     * Executor returned by {@link #getExecutor()}, never given tasks.
+     */
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+
+    @Test
+    public void testTcp() throws Exception {
+        checkServer(SolverServer.parseAddress("0"));
+    }
+
+    @Test
+    public void testUnixDomainSocket() throws Exception {
+        final File directory = Files.createTempDirectory("server").toFile();
+        try {
+            checkServer(SolverServer.parseAddress(new File(directory, "socket").getPath()));
+        } finally {
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testVirtualThreadsOnJava21() throws IOException {
+        final SolverServer server = new SolverServer(SolverServer.parseAddress("0"));
+        try {
+            assertEquals(Runtime.version().feature() >= 21, server.hasVirtualThreads());
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testExecutors() throws Exception {
+        assertSame(sExecutor, SolverServer.newExecutor(SolverServerTest.class, "getExecutor"));
+        assertNull(SolverServer.newExecutor(SolverServerTest.class, "noSuchExecutor"));
+
+        final ExecutorService platform = SolverServer.newPlatformExecutor();
+        try {
+            final Thread thread = platform.submit(new Callable<Thread>() {
+                @Override
+                public Thread call() {
+                    return Thread.currentThread();
+                }
+            }).get();
+            assertTrue(thread.isDaemon());
+            assertEquals("connection", thread.getName());
+        } finally {
+            platform.shutdown();
+        }
+    }
+
+    /**
+     * Factory method called by {@link SolverServer#newExecutor}.
+     */
+    public static ExecutorService getExecutor() {
+        return sExecutor;
+    }
+
+    private void checkServer(SocketAddress address) throws Exception {
+        final File file = File.createTempFile("games", ".txt");
+        final SolverServer server = new SolverServer(address);
+        try {
+            ParallelSolverTest.writeGames(file, 5000);
+            final String expected = solveLocally(file);
+
+            final SocketAddress actualAddress = server.bind();
+            final Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        server.serve();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            thread.start();
+
+            for (int connection = 0; connection < 3; connection++) {
+                final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+                SolverClient.solve(actualAddress, file, Channels.newChannel(actual));
+                assertEquals(expected, actual.toString());
+            }
+            server.close();
+            thread.join();
+        } finally {
+            server.close();
+            file.delete();
+        }
+    }
+
+    /**
+     * Solves the file writing errors to the same stream as results, as the
+     * server does.
+     */
+    private String solveLocally(File file) throws IOException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final ResultWriter out = new ResultWriter(Channels.newChannel(expected));
+        final PrintStream err = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                out.write(new byte[] { (byte) b }, 0, 1);
+            }
+        }, true);
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            new PsychicPoker(out, err).readMappedInputAndPlay(
+                    new MappedLineReader(input.getChannel()));
+        } finally {
+            input.close();
+        }
+        out.flush();
+        return expected.toString();
+    }
+}
@@ -0,0 +1,109 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Unit test for Statistics class.
+ */
+public class StatisticsTest {
+
+    @Test
+    public void testCounters() throws IOException {
+        final File file = File.createTempFile("games", ".txt");
+        try {
+            ParallelSolverTest.writeGames(file, 10000);
+            final Statistics statistics = new Statistics();
+            final ResultWriter out = new ResultWriter(Channels.newChannel(
+                    new ByteArrayOutputStream()));
+            final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            final PsychicPoker poker = new PsychicPoker(out, new PrintStream(errors));
+            poker.setStatistics(statistics);
+            final RandomAccessFile input = new RandomAccessFile(file, "r");
+            try {
+                poker.readMappedInputAndPlay(new MappedLineReader(input.getChannel()));
+            } finally {
+                input.close();
+            }
+            poker.flushStatistics();
+
+            assertEquals(10000, statistics.getLines());
+            final long errorLines = errors.toString().split("\n").length;
+            assertEquals(errorLines, statistics.getErrors());
+            long solved = 0;
+            for (Hand.Value value : Hand.Value.values()) {
+                solved += statistics.getCount(value);
+            }
+            assertEquals(statistics.getLines() - statistics.getErrors(), solved);
+            assertTrue(statistics.getNanos(Statistics.Stage.SOLVE) > 0);
+            assertTrue(statistics.getLatency(50) <= statistics.getLatency(99));
+            assertTrue(statistics.getLatency(99) <= statistics.getLatency(100));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testParallelStatistics() throws IOException {
+        final File file = File.createTempFile("games", ".txt");
+        try {
+            ParallelSolverTest.writeGames(file, 10000);
+            final Statistics statistics = new Statistics();
+            final ParallelSolver solver = new ParallelSolver(3, 1000);
+            solver.setStatistics(statistics);
+            final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            solver.solve(file, Channels.newChannel(new ByteArrayOutputStream()),
+                    new PrintStream(errors));
+            assertEquals(10000, statistics.getLines());
+            assertEquals(errors.toString().split("\n").length, statistics.getErrors());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testFailedLineEventInQuarantine() throws IOException {
+        final File file = File.createTempFile("recording", ".jfr");
+        final Recording recording = new Recording();
+        try {
+            recording.enable(Statistics.FailedLineEvent.class);
+            recording.start();
+            final Statistics statistics = new Statistics();
+            final PsychicPoker poker = new PsychicPoker(new ResultWriter(Channels.newChannel(
+                    new ByteArrayOutputStream())), System.err);
+            poker.setStatistics(statistics);
+            poker.setQuarantine(new Quarantine(Channels.newChannel(new ByteArrayOutputStream())));
+            final byte[] line = "TH JH QC QD Q1 QH KH AH 2S 6S".getBytes(StandardCharsets.US_ASCII);
+            poker.playLine(ByteBuffer.wrap(line), 0, line.length);
+            poker.flushStatistics();
+            recording.stop();
+            recording.dump(file.toPath());
+
+            assertEquals(1, statistics.getErrors());
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+            assertEquals(1, events.size());
+            assertEquals("TH JH QC QD Q1 QH KH AH 2S 6S", events.get(0).getString("line"));
+            assertEquals(LineValidator.getMessage(LineValidator.BAD_SUIT),
+                    events.get(0).getString("error"));
+        } finally {
+            recording.close();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import org.tapemaster.psychicpoker.Hand.Value;
+
+/**
+ * Unit test for Summary class.
+ */
+public class SummaryTest {
+
+    @Test
+    public void testCountsSameAsSolve() throws IOException {
+        final File file = File.createTempFile("games", ".txt");
+        try {
+            ParallelSolverTest.writeGames(file, 5000);
+            final Summary expected = new Summary(GameSize.STANDARD);
+            final LineValidator validator = new LineValidator(GameSize.STANDARD);
+            final BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final Card[] hand = new Card[Hand.NUMBER_OF_CARDS];
+                    final Card[] deck = new Card[Hand.NUMBER_OF_CARDS];
+                    if (validator.validate(line, hand, deck) != LineValidator.VALID) {
+                        expected.failed();
+                        continue;
+                    }
+                    final Hand start = new Hand(hand);
+                    final GameResult result = new Game(start, deck).solve();
+                    expected.add(start.getValue(), result.getValue(), result.getDiscards());
+                }
+            } finally {
+                reader.close();
+            }
+
+            final Summary summary = new Summary(GameSize.STANDARD);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final PsychicPoker poker = new PsychicPoker(new ResultWriter(
+                    Channels.newChannel(out)), new PrintStream(new ByteArrayOutputStream()));
+            poker.setSummary(summary);
+            final RandomAccessFile input = new RandomAccessFile(file, "r");
+            try {
+                poker.readMappedInputAndPlay(new MappedLineReader(input.getChannel()));
+            } finally {
+                input.close();
+            }
+
+            assertEquals(0, out.size());
+            assertEquals(expected.getGames(), summary.getGames());
+            assertEquals(expected.getErrors(), summary.getErrors());
+            assertEquals(5000, summary.getGames() + summary.getErrors());
+            assertTrue(summary.getErrors() > 0);
+            for (Value value : Value.values()) {
+                assertEquals(expected.getCount(value), summary.getCount(value));
+                assertEquals(expected.getStartingCount(value), summary.getStartingCount(value));
+            }
+            for (int i = 0; i <= Hand.NUMBER_OF_CARDS; i++) {
+                assertEquals(expected.getDiscardCount(i), summary.getDiscardCount(i));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testParallelSameAsSingleThread() throws IOException {
+        final File file = File.createTempFile("games", ".txt");
+        try {
+            ParallelSolverTest.writeGames(file, 10000);
+            final Summary single = new Summary(GameSize.STANDARD);
+            final PsychicPoker poker = new PsychicPoker(new ResultWriter(
+                    Channels.newChannel(new ByteArrayOutputStream())),
+                    new PrintStream(new ByteArrayOutputStream()));
+            poker.setSummary(single);
+            final RandomAccessFile input = new RandomAccessFile(file, "r");
+            try {
+                poker.readMappedInputAndPlay(new MappedLineReader(input.getChannel()));
+            } finally {
+                input.close();
+            }
+
+            final Summary parallel = new Summary(GameSize.STANDARD);
+            final ParallelSolver solver = new ParallelSolver(3, 1000);
+            solver.setSummary(parallel);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            solver.solve(file, Channels.newChannel(out),
+                    new PrintStream(new ByteArrayOutputStream()));
+
+            assertEquals(0, out.size());
+            final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            single.print(new PrintStream(expected));
+            final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            parallel.print(new PrintStream(actual));
+            assertEquals(expected.toString(), actual.toString());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testAdd() {
+        final Summary first = new Summary(GameSize.STANDARD);
+        first.add(Value.ONE_PAIR, Value.FLUSH, 2);
+        first.failed();
+        final Summary second = new Summary(GameSize.STANDARD);
+        second.add(Value.HIGHEST_CARD, Value.FLUSH, 5);
+        second.add(Value.FLUSH, Value.FLUSH, 0);
+        first.add(second);
+
+        assertEquals(3, first.getGames());
+        assertEquals(1, first.getErrors());
+        assertEquals(3, first.getCount(Value.FLUSH));
+        assertEquals(1, first.getStartingCount(Value.HIGHEST_CARD));
+        assertEquals(1, first.getDiscardCount(5));
+        assertEquals(0, first.getDiscardCount(1));
+    }
+
+    @Test
+    public void testAddPrinted() {
+        final Summary first = new Summary(GameSize.STANDARD);
+        first.add(Value.ONE_PAIR, Value.FLUSH, 2);
+        first.add(Value.HIGHEST_CARD, Value.STRAIGHT_FLUSH, 5);
+        first.failed();
+        final ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        first.print(new PrintStream(printed));
+
+        final Summary second = new Summary(GameSize.STANDARD);
+        second.add(Value.ONE_PAIR, Value.ONE_PAIR, 0);
+        second.add(Arrays.asList(printed.toString().split("\n")));
+        assertEquals(3, second.getGames());
+        assertEquals(1, second.getErrors());
+        assertEquals(1, second.getCount(Value.STRAIGHT_FLUSH));
+        assertEquals(2, second.getStartingCount(Value.ONE_PAIR));
+        assertEquals(1, second.getDiscardCount(5));
+        assertEquals(1, second.getDiscardCount(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddPrintedUnknown() {
+        new Summary(GameSize.STANDARD).add(Arrays.asList("games: 1", "best royal-flush: 1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddOtherSize() {
+        new Summary(GameSize.STANDARD).add(new Summary(GameSize.of(7, 5)));
+    }
+}
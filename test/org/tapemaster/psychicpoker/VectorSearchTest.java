@@ -0,0 +1,89 @@
+package org.tapemaster.psychicpoker;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+import static org.tapemaster.psychicpoker.PsychicPoker.parseCards;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit test for VectorSearch class, its results are checked by
+ * {@link GameSolverTest}. Tests of the lanes run only when the Vector API is
+ * available.
+ */
+public class VectorSearchTest {
+
+    @Test
+    public void testLanes() {
+        assumeTrue(VectorSupport.isAvailable());
+        final Hand hand = new Hand(parseCards("2H 3D 4C 5S 6H"));
+        final Card[] deck = parseCards("9C TD JH QS KC");
+        for (int variation = 0; variation < PrunedSearch.NUMBER_OF_VARIATIONS; variation++) {
+            final Card[] candidate = hand.getCards().clone();
+            for (int position = 0; position < Hand.NUMBER_OF_CARDS; position++) {
+                for (int deckIndex = 0; deckIndex <= position; deckIndex++) {
+                    if (VectorSearch.isReplaced(variation, position, deckIndex)) {
+                        assertEquals("Card " + position + " of variation " + variation
+                                + " replaced twice", hand.getCards()[position],
+                                candidate[position]);
+                        candidate[position] = deck[deckIndex];
+                    }
+                }
+            }
+            assertArrayEquals("Variation " + variation, hand.discard(variation, deck).getCards(),
+                    new Hand(candidate).getCards());
+        }
+    }
+
+    @Test
+    public void testSearch() {
+        assumeTrue(VectorSupport.isAvailable());
+        assertEquals(VectorSearch.class, VectorSupport.createSearch().getClass());
+    }
+
+    @Test
+    public void testFallback() {
+        assumeFalse(VectorSupport.isAvailable());
+        assertEquals(GameSolver.ALL_VARIATIONS, VectorSupport.createSearch());
+    }
+
+    @Test
+    public void testFallbackWithoutModule() throws IOException, InterruptedException {
+        final File input = File.createTempFile("games", ".txt");
+        final File output = File.createTempFile("results", ".txt");
+        final File errors = File.createTempFile("errors", ".txt");
+        try {
+            Files.write(input.toPath(), Arrays.asList("TH JH QC QD QS QH KH AH 2S 6S"),
+                    StandardCharsets.US_ASCII);
+            // workers of shards run without the module unless they solve
+            // with the Vector API
+            final List<String> command = ShardedRunner.getDefaultCommand(false);
+            command.add("--vector");
+            command.add(input.getPath());
+            final Process process = new ProcessBuilder(command)
+                    .redirectOutput(output).redirectError(errors).start();
+            assertEquals(0, process.waitFor());
+
+            assertEquals(Arrays.asList("Hand: TH JH QC QD QS Deck: QH KH AH 2S 6S "
+                    + "Best hand: straight-flush"),
+                    Files.readAllLines(output.toPath(), StandardCharsets.US_ASCII));
+            assertTrue(Files.readAllLines(errors.toPath(), StandardCharsets.US_ASCII)
+                    .contains("Vector API is not available, add "
+                            + "--add-modules jdk.incubator.vector to use it"));
+        } finally {
+            input.delete();
+            output.delete();
+            errors.delete();
+        }
+    }
+}